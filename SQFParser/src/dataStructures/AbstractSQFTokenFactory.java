@@ -1,11 +1,28 @@
 package dataStructures;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is a general implementation of the {@linkplain ITokenFactory}
- * interface for producing SQF-tokens
+ * interface for producing SQF-tokens.<br>
+ * <br>
+ * <b>Concurrency:</b> The commands known to a factory are kept in an immutable
+ * {@linkplain CommandTable} that is built only once per factory class and is
+ * then shared by all of its instances (on any thread). A factory instance itself
+ * is <b>not</b> thread-safe as it interns the spellings of the produced tokens
+ * into its own {@linkplain SymbolTable}. Therefore every thread (respectively
+ * every lexer) has to use its own factory instance. Creating additional
+ * instances is cheap as the command table is not rebuilt.<br>
+ * <br>
+ * <b>Lifetime:</b> The symbol table lives as long as the factory and keeps
+ * every spelling the factory has been asked for as the symbol IDs of the
+ * produced tokens refer to it. If a factory is used for several inputs (e.g.
+ * one file after the other), {@link #clearSymbols()} has to be called once the
+ * tokens of the previous inputs are no longer in use. Alternatively a new
+ * factory can be used per input.
  * 
  * @author Raven
  *
@@ -15,40 +32,47 @@ public abstract class AbstractSQFTokenFactory implements ITokenFactory<SQFToken>
 	/**
 	 * The default entry which is nular
 	 */
-	protected static LookupTableEntry DEFAULT = new LookupTableEntry(0, ESQFOperatorType.NULAR);
+	protected static final LookupTableEntry DEFAULT = new LookupTableEntry(0, ESQFOperatorType.NULAR);
 	/**
 	 * Alias for {@link #DEFAULT}
 	 */
-	protected static LookupTableEntry NULAR = DEFAULT;
+	protected static final LookupTableEntry NULAR = DEFAULT;
 	/**
 	 * The default unary lookup entry
 	 */
-	protected static LookupTableEntry UNARY = new LookupTableEntry(0, ESQFOperatorType.UNARY);
+	protected static final LookupTableEntry UNARY = new LookupTableEntry(0, ESQFOperatorType.UNARY);
 	/**
 	 * The default binary lookup entry. It is for "ordinary" binary operators that
 	 * are not listed in {@link #specialOperators}
 	 */
-	protected static LookupTableEntry BINARY = new LookupTableEntry(5, ESQFOperatorType.BINARY);
+	protected static final LookupTableEntry BINARY = new LookupTableEntry(5, ESQFOperatorType.BINARY);
 	/**
 	 * The default entry for macros
 	 */
-	protected static LookupTableEntry MACRO = new LookupTableEntry(0, ESQFOperatorType.MACRO);
+	protected static final LookupTableEntry MACRO = new LookupTableEntry(0, ESQFOperatorType.MACRO);
 	/**
 	 * The entry for the "other" type
 	 */
-	protected static LookupTableEntry OTHER = new LookupTableEntry(0, ESQFOperatorType.OTHER);
+	protected static final LookupTableEntry OTHER = new LookupTableEntry(0, ESQFOperatorType.OTHER);
 
 	/**
-	 * A map of operators with "special" precedence
+	 * A map of operators with "special" precedence (all keys are in lowercase)
 	 */
-	protected static Map<String, LookupTableEntry> specialOperators;
+	protected static final Map<String, LookupTableEntry> specialOperators = createSpecialOperators();
 
-	private boolean initialized;
+	/**
+	 * The command tables that are shared between all instances of the respective
+	 * factory class
+	 */
+	private static final Map<Class<?>, CommandTable> sharedCommands = new ConcurrentHashMap<>();
 
 
+	/**
+	 * An (immutable) entry of the command table
+	 */
 	protected static class LookupTableEntry {
-		int precedence;
-		ESQFOperatorType operatorType;
+		final int precedence;
+		final ESQFOperatorType operatorType;
 
 		public LookupTableEntry(int precedence, ESQFOperatorType operatorType) {
 			this.precedence = precedence;
@@ -65,11 +89,25 @@ public abstract class AbstractSQFTokenFactory implements ITokenFactory<SQFToken>
 	}
 
 	/**
-	 * The table that contains all operator and their respective precedence and
-	 * operator type
+	 * The table that gets populated by {@link #doInitialize()} with all operators
+	 * and their respective precedence and operator type. It is only used in order
+	 * to build the {@link #commands}
 	 */
 	protected HashMap<String, LookupTableEntry> lookupTable;
 
+	/**
+	 * The (immutable and possibly shared) table of all known commands. This is set
+	 * up by {@link #initialize()}
+	 */
+	protected CommandTable commands;
+
+	/**
+	 * The table interning the spellings of all IDs, operators and macros. The
+	 * commands have the same IDs as in {@link #commands}. It only grows until it
+	 * is cleared via {@link #clearSymbols()}
+	 */
+	protected SymbolTable symbols;
+
 	/**
 	 * The default character buffer
 	 */
@@ -83,10 +121,19 @@ public abstract class AbstractSQFTokenFactory implements ITokenFactory<SQFToken>
 
 	public AbstractSQFTokenFactory() {
 		lookupTable = new HashMap<>();
+	}
 
-		if (specialOperators == null) {
-			setUpSpecialOperators();
-		}
+	/**
+	 * Creates a factory using the given command table instead of populating one
+	 * via {@link #doInitialize()}
+	 * 
+	 * @param commands
+	 *            The table of all known commands
+	 */
+	public AbstractSQFTokenFactory(CommandTable commands) {
+		this();
+		this.commands = commands;
+		symbols = commands.newSymbolTable();
 	}
 
 
@@ -96,14 +143,92 @@ public abstract class AbstractSQFTokenFactory implements ITokenFactory<SQFToken>
 			throw new IllegalArgumentException("The token type has to be an ESQFTokenType!");
 		}
 
-		if (!initialized) {
+		int symbol = symbolOf((ESQFTokentype) type, start, end, buffer);
+		LookupTableEntry entry = entryOf((ESQFTokentype) type, symbol);
+
+		return new SQFToken((ESQFTokentype) type, start, end, entry.getPrecedence(), entry.getOperatorType(), symbol,
+				buffer);
+	}
+
+	@Override
+	public SQFToken produce(Object type, int start, int end) {
+		return produce(type, start, end, buffer);
+	}
+
+	/**
+	 * Determines the symbol ID of the token delimited by the given indices without
+	 * producing a token object. Only IDs, operators and macros have a symbol ID.
+	 * 
+	 * @param type
+	 *            The token type
+	 * @param start
+	 *            The start index of the token (inclusive)
+	 * @param end
+	 *            The end index of the token (exclusive)
+	 * @param buffer
+	 *            The characterBuffer corresponding to the token
+	 * @return The symbol ID or {@link SymbolTable#NO_SYMBOL}
+	 */
+	public int symbolOf(ESQFTokentype type, int start, int end, ICharacterBuffer buffer) {
+		switch (type) {
+		case ID:
+		case OPERATOR:
+		case MACRO:
+			if (symbols == null) {
+				initialize();
+			}
+
+			return symbols.intern(buffer, start, end);
+		default:
+			return SymbolTable.NO_SYMBOL;
+		}
+	}
+
+	/**
+	 * Gets the precedence a token of the given type and symbol ID has
+	 * 
+	 * @param type
+	 *            The token type
+	 * @param symbol
+	 *            The symbol ID as determined by
+	 *            {@link #symbolOf(ESQFTokentype, int, int, ICharacterBuffer)}
+	 */
+	public int precedenceOf(ESQFTokentype type, int symbol) {
+		return entryOf(type, symbol).getPrecedence();
+	}
+
+	/**
+	 * Gets the operator type a token of the given type and symbol ID has
+	 * 
+	 * @param type
+	 *            The token type
+	 * @param symbol
+	 *            The symbol ID as determined by
+	 *            {@link #symbolOf(ESQFTokentype, int, int, ICharacterBuffer)}
+	 */
+	public ESQFOperatorType operatorTypeOf(ESQFTokentype type, int symbol) {
+		return entryOf(type, symbol).getOperatorType();
+	}
+
+	/**
+	 * Gets the {@linkplain LookupTableEntry} that applies to a token of the given
+	 * type and symbol ID
+	 * 
+	 * @param type
+	 *            The token type
+	 * @param symbol
+	 *            The symbol ID of the token
+	 * @return The respective entry (never <code>null</code>)
+	 */
+	protected LookupTableEntry entryOf(ESQFTokentype type, int symbol) {
+		if (commands == null) {
 			initialize();
 		}
-		LookupTableEntry entry = type == ESQFTokentype.MACRO ? null
-				: lookupTable.get(buffer.getText(start, end - start).toLowerCase());
+
+		LookupTableEntry entry = (type == ESQFTokentype.MACRO) ? null : getEntry(symbol);
 
 		if (entry == null) {
-			switch ((ESQFTokentype) type) {
+			switch (type) {
 			case COMMENT:
 			case CURLY_BRACKET_CLOSE:
 			case CURLY_BRACKET_OPEN:
@@ -129,12 +254,55 @@ public abstract class AbstractSQFTokenFactory implements ITokenFactory<SQFToken>
 			}
 		}
 
-		return new SQFToken((ESQFTokentype) type, start, end, entry.getPrecedence(), entry.getOperatorType(), buffer);
+		return entry;
 	}
 
-	@Override
-	public SQFToken produce(Object type, int start, int end) {
-		return produce(type, start, end, buffer);
+	/**
+	 * Gets the {@linkplain LookupTableEntry} for the given symbol
+	 * 
+	 * @param symbol
+	 *            The symbol ID to look up
+	 * @return The respective entry or <code>null</code> if there is none
+	 */
+	protected LookupTableEntry getEntry(int symbol) {
+		return commands.entry(symbol);
+	}
+
+	/**
+	 * Gets the {@linkplain SymbolTable} used by this factory. It can be used in
+	 * order to resolve the symbol IDs of the produced tokens (and vice versa)
+	 */
+	public SymbolTable getSymbolTable() {
+		if (symbols == null) {
+			initialize();
+		}
+
+		return symbols;
+	}
+
+	/**
+	 * Removes all spellings that have been interned into the
+	 * {@linkplain SymbolTable} of this factory (see {@link SymbolTable#clear()}).
+	 * The commands keep their IDs but the symbol IDs of all other tokens produced
+	 * so far become invalid. Therefore this may only be called once none of
+	 * these tokens is in use anymore (e.g. before lexing the next file).
+	 */
+	public void clearSymbols() {
+		if (symbols != null) {
+			symbols.clear();
+		}
+	}
+
+	/**
+	 * Gets the (immutable) table of all commands known to this factory. It may be
+	 * shared with other factories on other threads.
+	 */
+	public CommandTable getCommandTable() {
+		if (commands == null) {
+			initialize();
+		}
+
+		return commands;
 	}
 
 	@Override
@@ -143,10 +311,10 @@ public abstract class AbstractSQFTokenFactory implements ITokenFactory<SQFToken>
 	}
 
 	/**
-	 * Fills {@link #specialOperators} with content (all keys are in lowercase)
+	 * Creates the content of {@link #specialOperators}
 	 */
-	protected void setUpSpecialOperators() {
-		specialOperators = new HashMap<String, LookupTableEntry>();
+	private static Map<String, LookupTableEntry> createSpecialOperators() {
+		Map<String, LookupTableEntry> specialOperators = new HashMap<String, LookupTableEntry>();
 
 		// assignment
 		specialOperators.put("=", new LookupTableEntry(10, ESQFOperatorType.BINARY));
@@ -176,6 +344,8 @@ public abstract class AbstractSQFTokenFactory implements ITokenFactory<SQFToken>
 		specialOperators.put("mod", new LookupTableEntry(2, ESQFOperatorType.BINARY));
 		specialOperators.put("atan2", new LookupTableEntry(2, ESQFOperatorType.BINARY));
 		specialOperators.put("^", new LookupTableEntry(1, ESQFOperatorType.BINARY));
+
+		return Collections.unmodifiableMap(specialOperators);
 	}
 
 	/**
@@ -197,12 +367,43 @@ public abstract class AbstractSQFTokenFactory implements ITokenFactory<SQFToken>
 	protected abstract void doInitialize();
 
 	/**
-	 * Initializes this factory
+	 * Initializes this factory. The command table is only built (via
+	 * {@link #doInitialize()}) by the first instance of the respective factory
+	 * class unless {@link #isCommandTableShared()} returns <code>false</code>.
+	 * Calling this method on an initialized factory has no effect.
 	 */
 	public void initialize() {
+		if (commands == null) {
+			commands = isCommandTableShared() ? sharedCommands.computeIfAbsent(getClass(), c -> buildCommandTable())
+					: buildCommandTable();
+		}
+		if (symbols == null) {
+			symbols = commands.newSymbolTable();
+		}
+	}
+
+	/**
+	 * Builds the command table from the entries {@link #doInitialize()} puts into
+	 * the {@link #lookupTable}
+	 */
+	protected CommandTable buildCommandTable() {
+		lookupTable.clear();
 		doInitialize();
 
-		initialized = true;
+		CommandTable table = CommandTable.of(lookupTable);
+		lookupTable.clear();
+
+		return table;
+	}
+
+	/**
+	 * Checks whether the command table built by this factory only depends on the
+	 * factory's class and can therefore be shared with all other instances of that
+	 * class. Factories whose {@link #doInitialize()} depends on per-instance state
+	 * have to override this and return <code>false</code>.
+	 */
+	protected boolean isCommandTableShared() {
+		return true;
 	}
 
 }
@@ -0,0 +1,113 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * An unsynchronized, array-based stack. In contrast to
+ * {@linkplain java.util.Stack} no monitor has to be acquired for any of the
+ * operations and the elements can be accessed by their index (counted from the
+ * bottom of the stack) without any copying.
+ * 
+ * @author Raven
+ *
+ * @param <T>
+ *            The type of the elements on this stack
+ */
+public class ArrayStack<T> {
+
+	/**
+	 * The elements (the top of the stack is at <code>size - 1</code>)
+	 */
+	protected Object[] elements;
+	/**
+	 * The amount of elements on this stack
+	 */
+	protected int size;
+
+
+	public ArrayStack() {
+		this(16);
+	}
+
+	public ArrayStack(int initialCapacity) {
+		elements = new Object[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Pushes the given element onto this stack
+	 * 
+	 * @param element
+	 *            The element to push
+	 */
+	public void push(T element) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size * 2);
+		}
+
+		elements[size++] = element;
+	}
+
+	/**
+	 * Removes the topmost element from this stack
+	 * 
+	 * @return The removed element
+	 */
+	@SuppressWarnings("unchecked")
+	public T pop() {
+		if (size == 0) {
+			throw new IllegalStateException("The stack is empty!");
+		}
+
+		T element = (T) elements[--size];
+		// don't keep the element alive
+		elements[size] = null;
+
+		return element;
+	}
+
+	/**
+	 * Gets the topmost element of this stack without removing it
+	 */
+	@SuppressWarnings("unchecked")
+	public T peek() {
+		if (size == 0) {
+			throw new IllegalStateException("The stack is empty!");
+		}
+
+		return (T) elements[size - 1];
+	}
+
+	/**
+	 * Gets the element at the given index (counted from the bottom of the stack)
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		return (T) elements[index];
+	}
+
+	/**
+	 * Gets the amount of elements on this stack
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether this stack is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all elements from this stack (the allocated capacity is kept)
+	 */
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+	}
+}
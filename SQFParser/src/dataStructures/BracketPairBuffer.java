@@ -0,0 +1,488 @@
+package dataStructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An index of matching bracket pairs in a token sequence. For every bracket
+ * token the index of its partner (the matching closing token for an opening
+ * bracket and vice versa) is stored in a primitive array indexed by token.
+ * Brackets without a partner are flagged as {@link #UNBALANCED}. The index is
+ * built incrementally by adding the type of each token in order using an
+ * internal bracket stack.<br>
+ * A closing bracket that doesn't match the innermost open bracket closes the
+ * nearest enclosing bracket of its kind (if any) and leaves the brackets in
+ * between unbalanced.<br>
+ * <br>
+ * The partners are stored relative to the respective token so that the pairs
+ * in front of and behind an edited range stay valid when tokens are
+ * {@linkplain #replace(int, int, ITokenSource) replaced}. In addition the
+ * bracket stack is recorded every {@link #SNAPSHOT_INTERVAL} tokens so that
+ * the stack at the start of an edit can be restored without going through all
+ * tokens in front of it.
+ * 
+ * @author Raven
+ * 
+ */
+public class BracketPairBuffer {
+
+	/**
+	 * The value used for tokens that are not brackets
+	 */
+	public static final int NO_BRACKET = -1;
+	/**
+	 * The value used for brackets without a matching partner
+	 */
+	public static final int UNBALANCED = -2;
+	/**
+	 * The amount of tokens between two recorded bracket stacks
+	 */
+	public static final int SNAPSHOT_INTERVAL = 256;
+
+	/**
+	 * The stored partner of tokens that are not brackets
+	 */
+	private static final int NONE = 0;
+	/**
+	 * The stored partner of brackets without a matching partner
+	 */
+	private static final int OPEN = Integer.MIN_VALUE;
+	private static final ESQFTokentype[] TOKEN_TYPES = ESQFTokentype.values();
+
+	/**
+	 * The partner of each token relative to the token's index ({@link #NONE} for
+	 * tokens that are no brackets and {@link #OPEN} for unbalanced brackets)
+	 */
+	protected int[] partners;
+	/**
+	 * The ordinal of the type of each bracket token (-1 for all other tokens)
+	 */
+	protected byte[] types;
+	/**
+	 * The amount of tokens in this index
+	 */
+	protected int size;
+	/**
+	 * The indices of the currently open brackets
+	 */
+	protected int[] openBrackets;
+	/**
+	 * The amount of currently open brackets
+	 */
+	protected int depth;
+	/**
+	 * The type of every token in {@link #openBrackets}
+	 */
+	protected ESQFTokentype[] openTypes;
+	/**
+	 * The recorded bracket stacks ordered by their token index. The first one is
+	 * always the (empty) stack at index 0.
+	 */
+	protected List<Snapshot> snapshots;
+
+
+	public BracketPairBuffer() {
+		this(64);
+	}
+
+	public BracketPairBuffer(int initialCapacity) {
+		partners = new int[Math.max(initialCapacity, 1)];
+		types = new byte[partners.length];
+		openBrackets = new int[16];
+		openTypes = new ESQFTokentype[16];
+		snapshots = new ArrayList<>();
+		snapshots.add(new Snapshot(0, new int[0], new ESQFTokentype[0]));
+	}
+
+	/**
+	 * Adds the next token to this index
+	 * 
+	 * @param type
+	 *            The type of the token
+	 */
+	public void add(ESQFTokentype type) {
+		ensureCapacity(size + 1);
+
+		record(size);
+		process(size++, type, true);
+	}
+
+	/**
+	 * Replaces the tokens in the given range by the given ones. Only the pairs the
+	 * replaced tokens have been part of are updated, unless the replacement leaves
+	 * a different set of brackets open than the replaced tokens did. In that case
+	 * the pairing of the brackets behind the range may change as well and they
+	 * are matched anew.
+	 * 
+	 * @param from
+	 *            The index of the first token to replace (inclusive)
+	 * @param to
+	 *            The index of the last token to replace (exclusive)
+	 * @param replacement
+	 *            The tokens to insert instead
+	 */
+	public void replace(int from, int to, ITokenSource<? extends SQFToken> replacement) {
+		assert (from >= 0 && from <= to && to <= size);
+
+		int count = replacement.size();
+		int delta = count - (to - from);
+		int[] endBrackets = openBrackets();
+		ESQFTokentype[] endTypes = openTypes();
+
+		// the brackets that are open in front of the range
+		dropSnapshots(from);
+		restoreStack(from);
+		int[] startBrackets = openBrackets();
+		ESQFTokentype[] startTypes = openTypes();
+
+		// the brackets the replaced tokens have left open and their old partners
+		for (int i = from; i < to; i++) {
+			if (types[i] >= 0) {
+				process(i, TOKEN_TYPES[types[i]], false);
+			}
+		}
+		int[] oldBrackets = openBrackets();
+		ESQFTokentype[] oldTypes = openTypes();
+		int[] oldPartners = new int[depth];
+		for (int i = 0; i < depth; i++) {
+			oldPartners[i] = partner(oldBrackets[i]);
+		}
+
+		if (delta != 0) {
+			ensureCapacity(size + delta);
+			System.arraycopy(partners, to, partners, to + delta, size - to);
+			System.arraycopy(types, to, types, to + delta, size - to);
+			size += delta;
+		}
+
+		setStack(startBrackets, startTypes);
+		for (int i = 0; i < depth; i++) {
+			// their partners are determined anew
+			partners[openBrackets[i]] = OPEN;
+		}
+		for (int i = 0; i < count; i++) {
+			process(from + i, replacement.get(i).type(), true);
+		}
+
+		boolean sameBrackets = depth == oldBrackets.length;
+		for (int i = 0; sameBrackets && i < depth; i++) {
+			// brackets opened by the replaced tokens correspond to the ones opened by
+			// the replacement
+			sameBrackets = openTypes[i] == oldTypes[i]
+					&& ((openBrackets[i] < from) ? openBrackets[i] == oldBrackets[i] : oldBrackets[i] >= from);
+		}
+
+		if (!sameBrackets) {
+			// the pairing behind the range changes as well
+			for (int i = from + count; i < size; i++) {
+				record(i);
+
+				if (types[i] >= 0) {
+					process(i, TOKEN_TYPES[types[i]], true);
+				}
+			}
+
+			return;
+		}
+
+		// the brackets behind the range are still closed by the same tokens
+		for (int i = 0; i < depth; i++) {
+			if (oldPartners[i] != UNBALANCED) {
+				pair(openBrackets[i], oldPartners[i] + delta);
+			}
+		}
+
+		for (int i = 0; i < endBrackets.length; i++) {
+			if (endBrackets[i] >= to) {
+				endBrackets[i] += delta;
+			} else if (endBrackets[i] >= from) {
+				// a bracket opened by the replaced tokens that has never been closed
+				int index = Arrays.binarySearch(oldBrackets, endBrackets[i]);
+				endBrackets[i] = openBrackets[index];
+			}
+		}
+		setStack(endBrackets, endTypes);
+	}
+
+	/**
+	 * Gets the index of the partner of the bracket at the given index
+	 * 
+	 * @param index
+	 *            The index of the bracket token
+	 * @return The index of the partner, {@link #UNBALANCED} if the bracket has no
+	 *         partner or {@link #NO_BRACKET} if the token is not a bracket
+	 */
+	public int partner(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		int partner = partners[index];
+		if (partner == NONE) {
+			return NO_BRACKET;
+		}
+
+		return (partner == OPEN) ? UNBALANCED : index + partner;
+	}
+
+	/**
+	 * Checks whether the token at the given index is a bracket without a partner
+	 * 
+	 * @param index
+	 *            The index of the token
+	 */
+	public boolean isUnbalanced(int index) {
+		return partner(index) == UNBALANCED;
+	}
+
+	/**
+	 * Gets the amount of currently open brackets (that is the nesting depth
+	 * behind the last added token)
+	 */
+	public int depth() {
+		return depth;
+	}
+
+	/**
+	 * Gets the indices of the currently open brackets (outermost first)
+	 */
+	public int[] openBrackets() {
+		return Arrays.copyOf(openBrackets, depth);
+	}
+
+	/**
+	 * Gets the types of the currently open brackets (outermost first)
+	 */
+	public ESQFTokentype[] openTypes() {
+		return Arrays.copyOf(openTypes, depth);
+	}
+
+	/**
+	 * Removes all tokens from the given index on and restores the bracket stack
+	 * as it was at that point. The given brackets are unbalanced again as their
+	 * partners (if any) have been removed.
+	 * 
+	 * @param size
+	 *            The amount of tokens to keep
+	 * @param openBrackets
+	 *            The indices of the brackets that were open at that point as
+	 *            returned by {@link #openBrackets()}
+	 * @param openTypes
+	 *            The types of these brackets as returned by {@link #openTypes()}
+	 */
+	public void truncate(int size, int[] openBrackets, ESQFTokentype[] openTypes) {
+		assert (size >= 0 && size <= this.size && openBrackets.length == openTypes.length);
+
+		this.size = size;
+		dropSnapshots(size);
+		setStack(openBrackets, openTypes);
+
+		for (int i = 0; i < openBrackets.length; i++) {
+			partners[openBrackets[i]] = OPEN;
+		}
+		if (snapshots.get(snapshots.size() - 1).index < size) {
+			snapshots.add(new Snapshot(size, openBrackets(), openTypes()));
+		}
+	}
+
+	/**
+	 * Gets the amount of tokens in this index
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all tokens from this index (the allocated capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+		Arrays.fill(openTypes, 0, depth, null);
+		depth = 0;
+		dropSnapshots(0);
+	}
+
+	/**
+	 * Processes the token at the given index
+	 * 
+	 * @param index
+	 *            The index of the token
+	 * @param type
+	 *            The type of the token
+	 * @param write
+	 *            Whether the pairs should be stored or only the bracket stack
+	 *            should be updated
+	 */
+	private void process(int index, ESQFTokentype type, boolean write) {
+		switch (type) {
+		case PARENTHESIS_OPEN:
+		case SQUARE_BRACKET_OPEN:
+		case CURLY_BRACKET_OPEN:
+			if (write) {
+				// unbalanced until the matching bracket is found
+				partners[index] = OPEN;
+				types[index] = (byte) type.ordinal();
+			}
+
+			if (depth == openBrackets.length) {
+				openBrackets = Arrays.copyOf(openBrackets, depth * 2);
+				openTypes = Arrays.copyOf(openTypes, depth * 2);
+			}
+			openBrackets[depth] = index;
+			openTypes[depth++] = type;
+			break;
+
+		case PARENTHESIS_CLOSE:
+			close(index, type, ESQFTokentype.PARENTHESIS_OPEN, write);
+			break;
+		case SQUARE_BRACKET_CLOSE:
+			close(index, type, ESQFTokentype.SQUARE_BRACKET_OPEN, write);
+			break;
+		case CURLY_BRACKET_CLOSE:
+			close(index, type, ESQFTokentype.CURLY_BRACKET_OPEN, write);
+			break;
+
+		default:
+			if (write) {
+				partners[index] = NONE;
+				types[index] = -1;
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Matches the closing bracket at the given index
+	 * 
+	 * @param index
+	 *            The index of the closing bracket
+	 * @param type
+	 *            The type of the closing bracket
+	 * @param opener
+	 *            The type of the corresponding opening bracket
+	 * @param write
+	 *            Whether the pair should be stored
+	 */
+	private void close(int index, ESQFTokentype type, ESQFTokentype opener, boolean write) {
+		if (write) {
+			types[index] = (byte) type.ordinal();
+		}
+
+		int match = depth - 1;
+		while (match >= 0 && openTypes[match] != opener) {
+			match--;
+		}
+
+		if (match < 0) {
+			// there is no bracket this one could close
+			if (write) {
+				partners[index] = OPEN;
+			}
+			return;
+		}
+
+		// the brackets opened in between stay unbalanced
+		if (write) {
+			pair(openBrackets[match], index);
+		}
+
+		for (int i = match; i < depth; i++) {
+			openTypes[i] = null;
+		}
+		depth = match;
+	}
+
+	private void pair(int first, int second) {
+		partners[first] = second - first;
+		partners[second] = first - second;
+	}
+
+	/**
+	 * Sets the bracket stack to the given brackets
+	 */
+	private void setStack(int[] brackets, ESQFTokentype[] bracketTypes) {
+		Arrays.fill(openTypes, 0, depth, null);
+
+		if (brackets.length > openBrackets.length) {
+			openBrackets = Arrays.copyOf(openBrackets, brackets.length);
+			openTypes = Arrays.copyOf(openTypes, brackets.length);
+		}
+
+		System.arraycopy(brackets, 0, openBrackets, 0, brackets.length);
+		System.arraycopy(bracketTypes, 0, openTypes, 0, brackets.length);
+		depth = brackets.length;
+	}
+
+	/**
+	 * Sets the bracket stack to the one in front of the token at the given index.
+	 * It is restored from the last recorded stack in front of it.
+	 */
+	private void restoreStack(int index) {
+		Snapshot snapshot = snapshots.get(snapshots.size() - 1);
+		assert (snapshot.index <= index);
+
+		setStack(snapshot.brackets, snapshot.types);
+
+		for (int i = snapshot.index; i < index; i++) {
+			record(i);
+
+			if (types[i] >= 0) {
+				process(i, TOKEN_TYPES[types[i]], false);
+			}
+		}
+	}
+
+	/**
+	 * Records the current bracket stack as the one in front of the token at the
+	 * given index if a snapshot is due there
+	 */
+	private void record(int index) {
+		if (index % SNAPSHOT_INTERVAL == 0 && snapshots.get(snapshots.size() - 1).index < index) {
+			snapshots.add(new Snapshot(index, openBrackets(), openTypes()));
+		}
+	}
+
+	/**
+	 * Removes all recorded stacks behind the given index
+	 */
+	private void dropSnapshots(int index) {
+		while (snapshots.get(snapshots.size() - 1).index > index) {
+			snapshots.remove(snapshots.size() - 1);
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > partners.length) {
+			capacity = Math.max(capacity, partners.length * 2);
+
+			partners = Arrays.copyOf(partners, capacity);
+			types = Arrays.copyOf(types, capacity);
+		}
+	}
+
+	/**
+	 * The bracket stack in front of a token
+	 */
+	protected static class Snapshot {
+		/**
+		 * The index of the token
+		 */
+		final int index;
+		/**
+		 * The indices of the open brackets
+		 */
+		final int[] brackets;
+		/**
+		 * The types of the open brackets
+		 */
+		final ESQFTokentype[] types;
+
+
+		Snapshot(int index, int[] brackets, ESQFTokentype[] types) {
+			this.index = index;
+			this.brackets = brackets;
+			this.types = types;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package dataStructures;
+
+/**
+ * A token that can be used to cancel a running lexing or parsing process
+ * cooperatively. The process checks the token every {@link #CHECK_INTERVAL}
+ * tokens and stops in a resumable state once it has been cancelled. A token
+ * can also be given a time budget after which it cancels itself (e.g. in
+ * order to lex or parse a big input in slices on a UI thread).<br>
+ * The token may be cancelled from any thread. Once cancelled, a token stays
+ * cancelled.
+ *
+ * @author Raven
+ *
+ */
+public class CancellationToken {
+
+	/**
+	 * The amount of tokens that are processed between two checks of the token
+	 */
+	public static final int CHECK_INTERVAL = 256;
+
+	/**
+	 * Whether this token has been cancelled
+	 */
+	protected volatile boolean cancelled;
+	/**
+	 * Whether this token has a time budget
+	 */
+	protected final boolean hasDeadline;
+	/**
+	 * The value of {@link System#nanoTime()} at which this token cancels itself
+	 */
+	protected final long deadline;
+
+
+	/**
+	 * Creates a token that is only cancelled via {@link #cancel()}
+	 */
+	public CancellationToken() {
+		hasDeadline = false;
+		deadline = 0;
+	}
+
+	/**
+	 * Creates a token that cancels itself once the given time budget has been
+	 * used up
+	 *
+	 * @param budgetMillis
+	 *            The time budget in milliseconds
+	 */
+	public CancellationToken(long budgetMillis) {
+		hasDeadline = true;
+		deadline = System.nanoTime() + budgetMillis * 1000000L;
+	}
+
+	/**
+	 * Cancels this token
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Checks whether this token has been cancelled or its time budget has been
+	 * used up
+	 */
+	public boolean isCancelled() {
+		if (!cancelled && hasDeadline && System.nanoTime() - deadline >= 0) {
+			cancelled = true;
+		}
+
+		return cancelled;
+	}
+}
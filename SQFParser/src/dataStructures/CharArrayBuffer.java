@@ -0,0 +1,124 @@
+package dataStructures;
+
+/**
+ * An immutable {@linkplain ICharacterBuffer} backed by a <code>char</code>
+ * array that holds an entire input in memory. This allows random access into
+ * the input from multiple threads and lexing from arbitrary offsets via a
+ * {@linkplain CharArrayInputStream}.
+ *
+ * @author Raven
+ *
+ */
+public class CharArrayBuffer implements ICharacterBuffer {
+
+	/**
+	 * The characters in this buffer
+	 */
+	protected final char[] characters;
+	/**
+	 * The amount of characters in this buffer
+	 */
+	protected final int length;
+
+
+	/**
+	 * Creates a buffer containing the given text. Just like the
+	 * {@linkplain CharacterInputStream} this skips all characters for which
+	 * {@link Character#isIdentifierIgnorable(int)} holds so that the offsets
+	 * match.
+	 *
+	 * @param text
+	 *            The text to store
+	 */
+	public CharArrayBuffer(CharSequence text) {
+		char[] chars = new char[text.length()];
+		int count = 0;
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			if (!Character.isIdentifierIgnorable(c)) {
+				chars[count++] = c;
+			}
+		}
+
+		characters = chars;
+		length = count;
+	}
+
+	/**
+	 * Gets the array backing this buffer. Only the first {@link #length()}
+	 * characters are valid. The array must not be modified!
+	 */
+	public char[] array() {
+		return characters;
+	}
+
+	@Override
+	public int[] get(int start, int end) {
+		int[] result = new int[end - start];
+
+		for (int i = start; i < end; i++) {
+			result[i - start] = get(i);
+		}
+
+		return result;
+	}
+
+	@Override
+	public char[] getChar(int start, int end) {
+		char[] result = new char[end - start];
+
+		for (int i = start; i < end; i++) {
+			result[i - start] = getChar(i);
+		}
+
+		return result;
+	}
+
+	@Override
+	public int get(int index) {
+		return (index < length) ? characters[index] : -1;
+	}
+
+	@Override
+	public char getChar(int index) {
+		return (char) get(index);
+	}
+
+	@Override
+	public int[] get(SQFToken token) {
+		return get(token.start(), token.stop());
+	}
+
+	/**
+	 * Not supported as this buffer is immutable
+	 */
+	@Override
+	public void append(char c) {
+		throw new UnsupportedOperationException("A CharArrayBuffer is immutable!");
+	}
+
+	/**
+	 * Not supported as this buffer is immutable
+	 */
+	@Override
+	public void append(int c) {
+		throw new UnsupportedOperationException("A CharArrayBuffer is immutable!");
+	}
+
+	@Override
+	public String getText(int start, int length) {
+		return new String(characters, start, length);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return new String(characters, 0, length);
+	}
+}
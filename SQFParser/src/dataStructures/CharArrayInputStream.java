@@ -0,0 +1,86 @@
+package dataStructures;
+
+/**
+ * An {@linkplain ICharacterInputStream} reading from an in-memory
+ * {@linkplain ICharacterBuffer} (usually a {@linkplain CharArrayBuffer}). The
+ * stream may start at an arbitrary offset of the buffer and reports absolute
+ * offsets. Multiple streams can read from the same (immutable) buffer
+ * concurrently.
+ *
+ * @author Raven
+ *
+ */
+public class CharArrayInputStream implements ICharacterInputStream {
+
+	/**
+	 * The buffer to read from
+	 */
+	protected ICharacterBuffer buffer;
+	/**
+	 * The offset of the next character to be read
+	 */
+	protected int offset;
+
+
+	public CharArrayInputStream(ICharacterBuffer buffer) {
+		this(buffer, 0);
+	}
+
+	/**
+	 * Creates a new stream
+	 * 
+	 * @param buffer
+	 *            The buffer to read from
+	 * @param offset
+	 *            The offset of the first character to be read
+	 */
+	public CharArrayInputStream(ICharacterBuffer buffer, int offset) {
+		this.buffer = buffer;
+		this.offset = offset;
+	}
+
+	@Override
+	public int read() {
+		// reading beyond the end keeps on advancing the offset so that unread()
+		// behaves the same as for the CharacterInputStream
+		int c = (offset < buffer.length()) ? buffer.get(offset) : -1;
+		offset++;
+
+		return c;
+	}
+
+	@Override
+	public void unread() {
+		offset--;
+	}
+
+	@Override
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Moves this stream to the given offset
+	 * 
+	 * @param offset
+	 *            The offset of the character to read next
+	 */
+	public void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+	@Override
+	public int peek() {
+		return (offset < buffer.length()) ? buffer.get(offset) : -1;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return offset < buffer.length();
+	}
+
+	@Override
+	public ICharacterBuffer getBuffer() {
+		return buffer;
+	}
+}
@@ -62,6 +62,44 @@ public class CharacterBuffer implements ICharacterBuffer {
 		characters.add((int) c);
 	}
 
+	@Override
+	public int length() {
+		return characters.size();
+	}
+
+	/**
+	 * Replaces the given range of characters by the given text
+	 * 
+	 * @param offset
+	 *            The offset of the first character to replace
+	 * @param removedLength
+	 *            The amount of characters to remove
+	 * @param text
+	 *            The text to insert at the given offset
+	 */
+	public void replace(int offset, int removedLength, CharSequence text) {
+		characters.subList(offset, offset + removedLength).clear();
+
+		List<Integer> inserted = new ArrayList<>(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			inserted.add((int) text.charAt(i));
+		}
+
+		characters.addAll(offset, inserted);
+	}
+
+	/**
+	 * Removes all characters starting at the given index
+	 * 
+	 * @param length
+	 *            The new length of this buffer
+	 */
+	public void truncate(int length) {
+		if (length < characters.size()) {
+			characters.subList(length, characters.size()).clear();
+		}
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder(characters.size());
@@ -0,0 +1,241 @@
+package dataStructures;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import dataStructures.AbstractSQFTokenFactory.LookupTableEntry;
+
+/**
+ * Reads and writes the compact binary command database that is shipped as the
+ * resource {@value #RESOURCE_NAME} next to this class. The database is
+ * generated at build time by {@linkplain CommandDatabaseGenerator} and is read
+ * with a single read into a ready-to-query {@linkplain CommandTable}.<br>
+ * <br>
+ * The format is (all numbers big-endian):
+ *
+ * <pre>
+ * int   magic ("SQFC")
+ * short version
+ * byte  amount of distinct entries E
+ * E x   (byte precedence, byte ordinal of the ESQFOperatorType)
+ * int   amount of commands N
+ * int   length of the name block L
+ * L x   byte (the lowercase names of all commands in ISO-8859-1, concatenated)
+ * N x   byte (the length of each name)
+ * N x   byte (the index of the entry of each command)
+ * </pre>
+ *
+ * @author Raven
+ *
+ */
+public class CommandDatabase {
+
+	/**
+	 * The name of the resource containing the default database
+	 */
+	public static final String RESOURCE_NAME = "commands.sqfc";
+	/**
+	 * The magic number every database starts with ("SQFC")
+	 */
+	static final int MAGIC = 0x53514643;
+	/**
+	 * The current version of the format
+	 */
+	static final short VERSION = 1;
+
+	private static final ESQFOperatorType[] OPERATOR_TYPES = ESQFOperatorType.values();
+
+
+	private CommandDatabase() {
+	}
+
+	/**
+	 * Gets the command table of the database that is shipped with this parser.
+	 * The database is loaded on first use and is then shared.
+	 *
+	 * @throws UncheckedIOException
+	 *             If the database can't be read
+	 */
+	public static CommandTable getDefault() {
+		return DefaultHolder.TABLE;
+	}
+
+	/**
+	 * Reads a database from the given stream. The stream is not closed.
+	 *
+	 * @param in
+	 *            The stream to read from
+	 * @return The table containing all commands of the database
+	 * @throws IOException
+	 *             If the stream can't be read or doesn't contain a valid database
+	 */
+	public static CommandTable read(InputStream in) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream(Math.max(in.available(), 1024));
+		byte[] chunk = new byte[8192];
+		int read;
+
+		while ((read = in.read(chunk)) >= 0) {
+			content.write(chunk, 0, read);
+		}
+
+		return read(content.toByteArray());
+	}
+
+	/**
+	 * Reads a database from the given bytes
+	 *
+	 * @param bytes
+	 *            The content of the database
+	 * @return The table containing all commands of the database
+	 * @throws IOException
+	 *             If the given bytes are no valid database
+	 */
+	public static CommandTable read(byte[] bytes) throws IOException {
+		ByteBuffer data = ByteBuffer.wrap(bytes);
+
+		try {
+			if (data.getInt() != MAGIC) {
+				throw new IOException("Not a command database");
+			}
+			short version = data.getShort();
+			if (version != VERSION) {
+				throw new IOException("Unsupported command database version " + version);
+			}
+
+			LookupTableEntry[] palette = new LookupTableEntry[data.get() & 0xFF];
+			for (int i = 0; i < palette.length; i++) {
+				int precedence = data.get();
+				int type = data.get();
+
+				if (type < 0 || type >= OPERATOR_TYPES.length) {
+					throw new IOException("Invalid operator type " + type);
+				}
+
+				palette[i] = new LookupTableEntry(precedence, OPERATOR_TYPES[type]);
+			}
+
+			int count = data.getInt();
+			int nameLength = data.getInt();
+			if (count < 0 || nameLength < 0 || data.remaining() != nameLength + 2L * count) {
+				throw new IOException("Corrupt command database");
+			}
+
+			int nameOffset = data.position();
+			int lengthOffset = nameOffset + nameLength;
+			int entryOffset = lengthOffset + count;
+
+			String[] names = new String[count];
+			LookupTableEntry[] entries = new LookupTableEntry[count];
+			int position = nameOffset;
+
+			for (int i = 0; i < count; i++) {
+				int length = bytes[lengthOffset + i] & 0xFF;
+				int entry = bytes[entryOffset + i] & 0xFF;
+
+				if (position + length > lengthOffset || entry >= palette.length) {
+					throw new IOException("Corrupt command database");
+				}
+
+				names[i] = new String(bytes, position, length, StandardCharsets.ISO_8859_1);
+				entries[i] = palette[entry];
+				position += length;
+			}
+
+			return CommandTable.of(names, entries, count);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated command database", e);
+		}
+	}
+
+	/**
+	 * Writes a database containing the given commands
+	 *
+	 * @param names
+	 *            The names of the commands (case-insensitive)
+	 * @param precedences
+	 *            The precedence of each command
+	 * @param operatorTypes
+	 *            The operator type of each command
+	 * @param count
+	 *            The amount of commands in the given arrays
+	 * @param out
+	 *            The stream to write to. It is not closed.
+	 * @throws IOException
+	 */
+	public static void write(String[] names, int[] precedences, ESQFOperatorType[] operatorTypes, int count,
+			OutputStream out) throws IOException {
+		List<Integer> palette = new ArrayList<>();
+		ByteArrayOutputStream nameBlock = new ByteArrayOutputStream(count * 8);
+		byte[] lengths = new byte[count];
+		byte[] entries = new byte[count];
+
+		for (int i = 0; i < count; i++) {
+			byte[] name = names[i].toLowerCase().getBytes(StandardCharsets.ISO_8859_1);
+			if (name.length == 0 || name.length > 0xFF) {
+				throw new IllegalArgumentException("Invalid command name \"" + names[i] + "\"");
+			}
+			if (precedences[i] < 0 || precedences[i] > Byte.MAX_VALUE) {
+				throw new IllegalArgumentException("Precedence out of range for \"" + names[i] + "\"");
+			}
+
+			// each distinct (precedence, operator type) pair is only stored once
+			Integer key = (precedences[i] << 8) | operatorTypes[i].ordinal();
+			int entry = palette.indexOf(key);
+			if (entry < 0) {
+				if (palette.size() == 0xFF) {
+					throw new IllegalArgumentException("Too many distinct command entries");
+				}
+
+				entry = palette.size();
+				palette.add(key);
+			}
+
+			nameBlock.write(name);
+			lengths[i] = (byte) name.length;
+			entries[i] = (byte) entry;
+		}
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeShort(VERSION);
+		data.writeByte(palette.size());
+		for (int current : palette) {
+			data.writeByte(current >> 8);
+			data.writeByte(current & 0xFF);
+		}
+		data.writeInt(count);
+		data.writeInt(nameBlock.size());
+		nameBlock.writeTo(data);
+		data.write(lengths);
+		data.write(entries);
+		data.flush();
+	}
+
+	/**
+	 * Lazily loads the default database
+	 */
+	private static class DefaultHolder {
+		static final CommandTable TABLE = load();
+
+		private static CommandTable load() {
+			try (InputStream in = CommandDatabase.class.getResourceAsStream(RESOURCE_NAME)) {
+				if (in == null) {
+					throw new IOException("Missing resource " + RESOURCE_NAME);
+				}
+
+				return read(in);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Can't load the command database", e);
+			}
+		}
+	}
+}
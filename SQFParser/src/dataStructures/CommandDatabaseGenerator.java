@@ -0,0 +1,149 @@
+package dataStructures;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Generates the binary command database (see {@linkplain CommandDatabase}) from
+ * a plain text command list. Each line of the list contains the name of a
+ * command, its operator type (NULAR, UNARY or BINARY) and optionally its
+ * precedence (defaults to 5 for binary and 0 for all other commands), separated
+ * by whitespace. Empty lines and lines starting with "//" are ignored.<br>
+ * <br>
+ * Usage: <code>CommandDatabaseGenerator &lt;command list&gt; &lt;output
+ * file&gt;</code>
+ *
+ * @author Raven
+ *
+ */
+public class CommandDatabaseGenerator {
+
+	/**
+	 * The names of the commands read so far
+	 */
+	protected String[] names;
+	/**
+	 * The precedence of each command
+	 */
+	protected int[] precedences;
+	/**
+	 * The operator type of each command
+	 */
+	protected ESQFOperatorType[] operatorTypes;
+	/**
+	 * The amount of commands read so far
+	 */
+	protected int size;
+
+
+	public CommandDatabaseGenerator() {
+		names = new String[256];
+		precedences = new int[256];
+		operatorTypes = new ESQFOperatorType[256];
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: CommandDatabaseGenerator <command list> <output file>");
+			System.exit(1);
+		}
+
+		CommandDatabaseGenerator generator = new CommandDatabaseGenerator();
+
+		try (Reader in = new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8)) {
+			generator.read(in);
+		}
+		try (OutputStream out = new FileOutputStream(args[1])) {
+			generator.write(out);
+		}
+
+		System.out.println("Wrote " + generator.size() + " commands to " + args[1]);
+	}
+
+	/**
+	 * Reads the commands of the given command list
+	 *
+	 * @param in
+	 *            The reader to read the list from
+	 * @throws IOException
+	 */
+	public void read(Reader in) throws IOException {
+		BufferedReader reader = new BufferedReader(in);
+		String line;
+		int lineNumber = 0;
+
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+
+			if (line.isEmpty() || line.startsWith("//")) {
+				continue;
+			}
+
+			String[] parts = line.split("\\s+");
+			if (parts.length < 2 || parts.length > 3) {
+				throw new IOException("Malformed command in line " + lineNumber + ": " + line);
+			}
+
+			ESQFOperatorType type;
+			int precedence;
+			try {
+				type = ESQFOperatorType.valueOf(parts[1].toUpperCase());
+				precedence = (parts.length == 3) ? Integer.parseInt(parts[2])
+						: (type == ESQFOperatorType.BINARY) ? 5 : 0;
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Malformed command in line " + lineNumber + ": " + line, e);
+			}
+
+			add(parts[0], precedence, type);
+		}
+	}
+
+	/**
+	 * Adds a command
+	 *
+	 * @param name
+	 *            The name of the command
+	 * @param precedence
+	 *            The precedence of the command
+	 * @param operatorType
+	 *            The operator type of the command
+	 */
+	public void add(String name, int precedence, ESQFOperatorType operatorType) {
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			precedences = Arrays.copyOf(precedences, size * 2);
+			operatorTypes = Arrays.copyOf(operatorTypes, size * 2);
+		}
+
+		names[size] = name;
+		precedences[size] = precedence;
+		operatorTypes[size] = operatorType;
+		size++;
+	}
+
+	/**
+	 * Writes the database containing all commands added so far
+	 *
+	 * @param out
+	 *            The stream to write to
+	 * @throws IOException
+	 */
+	public void write(OutputStream out) throws IOException {
+		CommandDatabase.write(names, precedences, operatorTypes, size, out);
+	}
+
+	/**
+	 * Gets the amount of commands added so far
+	 */
+	public int size() {
+		return size;
+	}
+}
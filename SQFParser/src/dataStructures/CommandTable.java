@@ -0,0 +1,215 @@
+package dataStructures;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import dataStructures.AbstractSQFTokenFactory.LookupTableEntry;
+
+/**
+ * An immutable table of all known commands (and operators) together with their
+ * precedence and operator type. Every command is identified by a symbol ID. A
+ * table is built once (via a {@linkplain Builder}) and can then be shared by
+ * any number of token factories on any number of threads: all fields are final
+ * and never modified after construction, so a table is safely published to
+ * every thread that obtains a reference to it.<br>
+ * Token factories use {@link #newSymbolTable()} in order to get their own
+ * (mutable) {@linkplain SymbolTable} in which all commands have the same IDs
+ * as in this table.
+ * 
+ * @author Raven
+ *
+ */
+public final class CommandTable {
+
+	/**
+	 * The symbol table containing the commands. It is never modified after
+	 * construction and must not be leaked.
+	 */
+	private final SymbolTable symbols;
+	/**
+	 * The entry of each command indexed by its symbol ID
+	 */
+	private final LookupTableEntry[] entries;
+	/**
+	 * The amount of commands in this table
+	 */
+	private final int size;
+
+
+	private CommandTable(String[] names, LookupTableEntry[] entries, int count) {
+		SymbolTable symbols = new SymbolTable(count + 1);
+		LookupTableEntry[] symbolEntries = new LookupTableEntry[count + SymbolTable.PREDEFINED.length];
+		int size = 0;
+
+		for (int i = 0; i < count; i++) {
+			int symbol = symbols.intern(names[i]);
+
+			if (symbolEntries[symbol] == null) {
+				size++;
+			}
+			symbolEntries[symbol] = entries[i];
+		}
+
+		this.symbols = symbols;
+		this.entries = symbolEntries;
+		this.size = size;
+	}
+
+	/**
+	 * Creates a table containing the given commands
+	 * 
+	 * @param commands
+	 *            The commands mapped to their lookup entries
+	 */
+	static CommandTable of(Map<String, LookupTableEntry> commands) {
+		return of(commands.keySet().toArray(new String[commands.size()]),
+				commands.values().toArray(new LookupTableEntry[commands.size()]), commands.size());
+	}
+
+	/**
+	 * Creates a table containing the given commands. If a command occurs multiple
+	 * times the last entry wins.
+	 * 
+	 * @param names
+	 *            The names of the commands
+	 * @param entries
+	 *            The entry of each command
+	 * @param count
+	 *            The amount of commands in the given arrays
+	 */
+	static CommandTable of(String[] names, LookupTableEntry[] entries, int count) {
+		return new CommandTable(names, entries, count);
+	}
+
+	/**
+	 * Creates a new builder for a table
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Creates a new {@linkplain SymbolTable} in which all commands of this table
+	 * are already interned (with the same IDs as in this table). Every token
+	 * factory needs its own symbol table as these are not thread-safe.
+	 */
+	public SymbolTable newSymbolTable() {
+		return new SymbolTable(symbols);
+	}
+
+	/**
+	 * Looks up the symbol ID of the given command
+	 * 
+	 * @param command
+	 *            The command to look up (case-insensitive)
+	 * @return The ID of the command or {@link SymbolTable#NO_SYMBOL} if it is
+	 *         unknown
+	 */
+	public int lookup(CharSequence command) {
+		int symbol = symbols.lookup(command);
+
+		return (symbol != SymbolTable.NO_SYMBOL && entries[symbol] != null) ? symbol : SymbolTable.NO_SYMBOL;
+	}
+
+	/**
+	 * Checks whether the given command is contained in this table
+	 * 
+	 * @param command
+	 *            The command to check (case-insensitive)
+	 */
+	public boolean contains(CharSequence command) {
+		return lookup(command) != SymbolTable.NO_SYMBOL;
+	}
+
+	/**
+	 * Gets the precedence of the command with the given symbol ID
+	 * 
+	 * @param symbol
+	 *            The symbol ID of the command
+	 */
+	public int precedence(int symbol) {
+		return entry(symbol).getPrecedence();
+	}
+
+	/**
+	 * Gets the operator type of the command with the given symbol ID
+	 * 
+	 * @param symbol
+	 *            The symbol ID of the command
+	 */
+	public ESQFOperatorType operatorType(int symbol) {
+		return entry(symbol).getOperatorType();
+	}
+
+	/**
+	 * Gets the (lowercase) name of the command with the given symbol ID
+	 * 
+	 * @param symbol
+	 *            The symbol ID of the command
+	 * @return The name or <code>null</code> if the symbol is no command
+	 */
+	public String name(int symbol) {
+		return (entry(symbol) != null) ? symbols.getSymbol(symbol) : null;
+	}
+
+	/**
+	 * Gets the entry of the command with the given symbol ID
+	 * 
+	 * @param symbol
+	 *            The symbol ID
+	 * @return The respective entry or <code>null</code> if the symbol is no
+	 *         command
+	 */
+	LookupTableEntry entry(int symbol) {
+		return (symbol >= 0 && symbol < entries.length) ? entries[symbol] : null;
+	}
+
+	/**
+	 * Gets the amount of commands in this table
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * A builder collecting the commands for a {@linkplain CommandTable}. Builders
+	 * are not thread-safe.
+	 */
+	public static class Builder {
+		/**
+		 * The commands added so far
+		 */
+		protected Map<String, LookupTableEntry> commands;
+
+
+		protected Builder() {
+			commands = new LinkedHashMap<>();
+		}
+
+		/**
+		 * Adds a command to the table. If the command is already present its entry
+		 * is replaced.
+		 * 
+		 * @param command
+		 *            The name of the command (case-insensitive)
+		 * @param precedence
+		 *            The precedence of the command
+		 * @param operatorType
+		 *            The operator type of the command
+		 * @return This builder
+		 */
+		public Builder put(String command, int precedence, ESQFOperatorType operatorType) {
+			commands.put(command.toLowerCase(), new LookupTableEntry(precedence, operatorType));
+
+			return this;
+		}
+
+		/**
+		 * Creates the (immutable) table containing all commands added to this
+		 * builder
+		 */
+		public CommandTable build() {
+			return of(commands);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * An {@linkplain IDiagnosticListener} that collects all diagnostics in
+ * primitive arrays. Messages are only formatted when they are requested via
+ * {@link #message(int)}.
+ * 
+ * @author Raven
+ *
+ */
+public class DiagnosticCollector implements IDiagnosticListener {
+
+	private static final EDiagnosticCode[] CODES = EDiagnosticCode.values();
+
+	/**
+	 * The ordinal of the code of each diagnostic
+	 */
+	protected byte[] codes;
+	/**
+	 * The start offset of each diagnostic
+	 */
+	protected int[] starts;
+	/**
+	 * The end offset of each diagnostic
+	 */
+	protected int[] ends;
+	/**
+	 * The argument of each diagnostic
+	 */
+	protected int[] arguments;
+	/**
+	 * The amount of collected diagnostics
+	 */
+	protected int size;
+
+
+	public DiagnosticCollector() {
+		this(16);
+	}
+
+	public DiagnosticCollector(int initialCapacity) {
+		initialCapacity = Math.max(initialCapacity, 1);
+
+		codes = new byte[initialCapacity];
+		starts = new int[initialCapacity];
+		ends = new int[initialCapacity];
+		arguments = new int[initialCapacity];
+	}
+
+	@Override
+	public void diagnostic(EDiagnosticCode code, int start, int end, int argument) {
+		if (size == codes.length) {
+			int capacity = size * 2;
+
+			codes = Arrays.copyOf(codes, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			arguments = Arrays.copyOf(arguments, capacity);
+		}
+
+		codes[size] = (byte) code.ordinal();
+		starts[size] = start;
+		ends[size] = end;
+		arguments[size] = argument;
+
+		size++;
+	}
+
+	/**
+	 * Reports all collected diagnostics to the given listener (in the order they
+	 * have been collected)
+	 * 
+	 * @param listener
+	 *            The listener to report to
+	 */
+	public void replay(IDiagnosticListener listener) {
+		for (int i = 0; i < size; i++) {
+			listener.diagnostic(CODES[codes[i]], starts[i], ends[i], arguments[i]);
+		}
+	}
+
+	/**
+	 * Gets the code of the diagnostic at the given index
+	 */
+	public EDiagnosticCode code(int index) {
+		checkIndex(index);
+
+		return CODES[codes[index]];
+	}
+
+	/**
+	 * Gets the start offset of the diagnostic at the given index
+	 */
+	public int start(int index) {
+		checkIndex(index);
+
+		return starts[index];
+	}
+
+	/**
+	 * Gets the end offset of the diagnostic at the given index
+	 */
+	public int end(int index) {
+		checkIndex(index);
+
+		return ends[index];
+	}
+
+	/**
+	 * Gets the argument of the diagnostic at the given index
+	 */
+	public int argument(int index) {
+		checkIndex(index);
+
+		return arguments[index];
+	}
+
+	/**
+	 * Formats the message of the diagnostic at the given index
+	 */
+	public String message(int index) {
+		return code(index).format(arguments[index]);
+	}
+
+	/**
+	 * Counts the collected diagnostics with the given code
+	 * 
+	 * @param code
+	 *            The code to count
+	 */
+	public int count(EDiagnosticCode code) {
+		int count = 0;
+
+		for (int i = 0; i < size; i++) {
+			if (codes[i] == code.ordinal()) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Gets the amount of collected diagnostics
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all diagnostics (the allocated capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package dataStructures;
+
+/**
+ * An enum describing the kinds of problems the lexer and the parser report.
+ * Each code knows how its message is formatted so that a message only has to
+ * be created if somebody actually asks for it.
+ * 
+ * @author Raven
+ *
+ */
+public enum EDiagnosticCode {
+	/**
+	 * A character that can't start any token. The argument is the character
+	 */
+	RECOGNITION_ERROR("Recognition error on '%s'", true),
+	/**
+	 * A '$' that isn't followed by a hex-number
+	 */
+	UNFINISHED_HEX_NUMBER("Unfinished hex-number specification", false),
+	/**
+	 * A '.' that isn't followed by the digits of a number
+	 */
+	MISSING_DECIMAL_DIGITS("Error on '.' - Insert trailing digits to complete Number definition", false),
+	/**
+	 * A scientific notation without exponent. The argument is the character found
+	 * instead
+	 */
+	MISSING_EXPONENT_DIGITS("Error on '%s' - Digits expected to complete scientific notation", true),
+	/**
+	 * A number containing a second '.'
+	 */
+	MULTIPLE_PERIODS("Error on '.' - Only one period per number allowed", false),
+	/**
+	 * A single '&amp;'
+	 */
+	MISSING_SECOND_AMPERSAND("Missing second '&'", false),
+	/**
+	 * A single '|'
+	 */
+	MISSING_SECOND_PIPE("Missing second '|'", false),
+	/**
+	 * A ',' outside of an array
+	 */
+	COMMA_OUTSIDE_ARRAY("',' outside of array context!", false),
+	/**
+	 * A ';' inside of an array
+	 */
+	SEMICOLON_IN_ARRAY("';' instead of ',' in array context!", false),
+	/**
+	 * A binary or unary operator without right argument
+	 */
+	MISSING_RIGHT_ARGUMENT("Missing argument to the right", false),
+	/**
+	 * A missing ';' between two statements
+	 */
+	MISSING_SEMICOLON("Missing ';'", false),
+	/**
+	 * A missing ',' between two array elements
+	 */
+	MISSING_COMMA("Missing ','", false),
+	/**
+	 * An opening bracket without closing bracket
+	 */
+	UNCLOSED_BRACKET("Unclosed opening bracket!", false),
+	/**
+	 * A closing bracket without opening bracket
+	 */
+	UNOPENED_BRACKET("Unopened closing bracket!", false);
+
+	/**
+	 * The value used for diagnostics without argument
+	 */
+	public static final int NO_ARGUMENT = Integer.MIN_VALUE;
+
+	/**
+	 * The pattern of the message (see {@link String#format(String, Object...)})
+	 */
+	private final String pattern;
+	/**
+	 * Whether the message contains the argument (as a character)
+	 */
+	private final boolean hasArgument;
+
+
+	private EDiagnosticCode(String pattern, boolean hasArgument) {
+		this.pattern = pattern;
+		this.hasArgument = hasArgument;
+	}
+
+	/**
+	 * Formats the message of a diagnostic with this code
+	 * 
+	 * @param argument
+	 *            The argument of the diagnostic (or {@link #NO_ARGUMENT})
+	 * @return The formatted message
+	 */
+	public String format(int argument) {
+		return hasArgument ? String.format(pattern, (char) argument) : pattern;
+	}
+
+	/**
+	 * Checks whether diagnostics with this code carry an argument
+	 */
+	public boolean hasArgument() {
+		return hasArgument;
+	}
+}
@@ -15,7 +15,9 @@ public interface IBuildableIndexTree {
 
 	/**
 	 * Takes the given index and makes it the top-level element of the current
-	 * branch by grouping the current branch as a child to the newly created index
+	 * branch by grouping the current branch as a child to the newly created index.
+	 * If there is no current branch (yet), a new branch is started with the given
+	 * index instead
 	 * 
 	 * @param index
 	 *            The index to use as the new top-level
@@ -61,6 +63,15 @@ public interface IBuildableIndexTree {
 	 */
 	public int insert(int level, int index);
 
+	/**
+	 * Gets the rightmost node on the given level of the current branch
+	 * 
+	 * @param level
+	 *            The level of the node
+	 * @return The found node
+	 */
+	public IndexTreeElement get(int level);
+
 	/**
 	 * Gets an iterator for iterating over all branches of this index tree
 	 */
@@ -94,6 +105,32 @@ public interface IBuildableIndexTree {
 	 */
 	public Collection<? extends IndexTreeElement> branches();
 
+	/**
+	 * Gets the amount of branches in this tree
+	 */
+	public int branchCount();
+
+	/**
+	 * Gets the branch at the given position
+	 * 
+	 * @param index
+	 *            The position of the branch
+	 */
+	public IndexTreeElement getBranch(int index);
+
+	/**
+	 * Replaces the branches in the given range by the branches of the given tree.
+	 * The last branch of this tree becomes the current one afterwards.
+	 * 
+	 * @param from
+	 *            The position of the first branch to replace (inclusive)
+	 * @param to
+	 *            The position of the last branch to replace (exclusive)
+	 * @param replacement
+	 *            The tree whose branches should be inserted instead
+	 */
+	public void replaceBranches(int from, int to, IBuildableIndexTree replacement);
+
 	/**
 	 * Adds an empty node as a child to the rightmost element of the given level
 	 * 
@@ -110,6 +147,26 @@ public interface IBuildableIndexTree {
 	 */
 	public IndexTreeElement newEmptyBranch();
 
+	/**
+	 * Adds the given (already created) node as a child to the rightmost element of
+	 * the given level
+	 * 
+	 * @param level
+	 *            The level to add the node to
+	 * @param element
+	 *            The node to add
+	 */
+	public void addElement(int level, IndexTreeElement element);
+
+	/**
+	 * Creates a new branch with the given (already created) node as the current
+	 * branch content
+	 * 
+	 * @param element
+	 *            The node to start the new branch with
+	 */
+	public void newBranch(IndexTreeElement element);
+
 	/**
 	 * Clears all contents of this tree
 	 */
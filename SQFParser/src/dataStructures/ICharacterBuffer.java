@@ -79,4 +79,9 @@ public interface ICharacterBuffer {
 	 * @return The corresponding string
 	 */
 	public String getText(int start, int length);
+
+	/**
+	 * Gets the amount of characters in this buffer
+	 */
+	public int length();
 }
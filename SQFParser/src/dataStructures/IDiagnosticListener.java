@@ -0,0 +1,28 @@
+package dataStructures;
+
+/**
+ * A listener for structured diagnostics. In contrast to the
+ * {@linkplain IErrorListener} no message and no token object is created for a
+ * diagnostic - the message can be obtained via
+ * {@link EDiagnosticCode#format(int)} if it is needed.
+ * 
+ * @author Raven
+ *
+ */
+public interface IDiagnosticListener {
+
+	/**
+	 * Reports a diagnostic
+	 * 
+	 * @param code
+	 *            The kind of the diagnostic
+	 * @param start
+	 *            The start offset of the affected text (inclusive)
+	 * @param end
+	 *            The end offset of the affected text (exclusive)
+	 * @param argument
+	 *            The argument of the diagnostic (or
+	 *            {@link EDiagnosticCode#NO_ARGUMENT})
+	 */
+	public void diagnostic(EDiagnosticCode code, int start, int end, int argument);
+}
@@ -22,6 +22,15 @@ public interface IToken {
 	 */
 	public int length();
 
+	/**
+	 * Moves this token by the given amount of characters (e.g. because the text
+	 * in front of it has been edited)
+	 * 
+	 * @param delta
+	 *            The amount of characters to move this token by (may be negative)
+	 */
+	public void move(int delta);
+
 	/**
 	 * Gets the text corresponding to this token
 	 */
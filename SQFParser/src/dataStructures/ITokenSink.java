@@ -0,0 +1,57 @@
+package dataStructures;
+
+/**
+ * An interface describing a consumer that tokens can be pushed to one by one.
+ * The tokens are handed over as their plain properties so that a sink can
+ * decide for itself whether it wants to materialize token objects at all.
+ * 
+ * @author Raven
+ *
+ */
+public interface ITokenSink {
+
+	/**
+	 * Notifies this sink that a new token sequence starts
+	 * 
+	 * @param characterSource
+	 *            The character buffer the following tokens refer to
+	 */
+	public default void start(ICharacterBuffer characterSource) {
+	}
+
+	/**
+	 * Hands the next token over to this sink
+	 * 
+	 * @param type
+	 *            The token type
+	 * @param start
+	 *            The start index of the token (inclusive)
+	 * @param end
+	 *            The end index of the token (exclusive)
+	 * @param precedence
+	 *            The precedence of the token
+	 * @param operatorType
+	 *            The operator type of the token
+	 * @param symbol
+	 *            The symbol ID of the token (or {@link SymbolTable#NO_SYMBOL})
+	 */
+	public void accept(ESQFTokentype type, int start, int end, int precedence, ESQFOperatorType operatorType,
+			int symbol);
+
+	/**
+	 * Checks whether the lexer should record its per-token side information
+	 * (number values, String literal IDs, bracket pairs, separated trivia,
+	 * newline indices and checkpoints) for the tokens emitted to this sink. As
+	 * this information grows with the input, sinks that don't keep all tokens
+	 * themselves should return <code>false</code>.
+	 */
+	public default boolean requiresSideInformation() {
+		return true;
+	}
+
+	/**
+	 * Notifies this sink that the current token sequence is complete
+	 */
+	public default void finish() {
+	}
+}
@@ -14,4 +14,16 @@ public interface ITokenSource<T extends IToken> {
 	 * Gets the amount of tokens in this source
 	 */
 	public int size();
+
+	/**
+	 * Checks whether this source contains a token with the given index. This is
+	 * the streaming variant of {@link #size()}: sources that produce their tokens
+	 * on demand only have to produce the tokens up to the given index.
+	 * 
+	 * @param index
+	 *            The index of the token to check
+	 */
+	public default boolean has(int index) {
+		return index >= 0 && index < size();
+	}
 }
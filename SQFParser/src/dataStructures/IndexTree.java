@@ -28,6 +28,11 @@ public class IndexTree implements IBuildableIndexTree {
 
 	@Override
 	public void makeTopElement(int index) {
+		if (currentBranch == null) {
+			newBranch(index);
+			return;
+		}
+
 		IndexTreeElement newBranch = new IndexTreeElement(index);
 
 		newBranch.add(currentBranch);
@@ -52,6 +57,11 @@ public class IndexTree implements IBuildableIndexTree {
 		return currentBranch.insert(index, level);
 	}
 
+	@Override
+	public IndexTreeElement get(int level) {
+		return currentBranch.get(level);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -95,6 +105,25 @@ public class IndexTree implements IBuildableIndexTree {
 		return branches;
 	}
 
+	@Override
+	public int branchCount() {
+		return branches.size();
+	}
+
+	@Override
+	public IndexTreeElement getBranch(int index) {
+		return branches.get(index);
+	}
+
+	@Override
+	public void replaceBranches(int from, int to, IBuildableIndexTree replacement) {
+		List<IndexTreeElement> range = branches.subList(from, to);
+		range.clear();
+		range.addAll(replacement.branches());
+
+		currentBranch = branches.isEmpty() ? null : branches.get(branches.size() - 1);
+	}
+
 	@Override
 	public IndexTreeElement addEmpty(int level) {
 		IndexTreeElement empty = new IndexTreeElement(IndexTreeElement.EMPTY);
@@ -110,6 +139,17 @@ public class IndexTree implements IBuildableIndexTree {
 		return currentBranch;
 	}
 
+	@Override
+	public void addElement(int level, IndexTreeElement element) {
+		currentBranch.get(level).add(element);
+	}
+
+	@Override
+	public void newBranch(IndexTreeElement element) {
+		currentBranch = element;
+		branches.add(currentBranch);
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (!(obj instanceof IndexTree)) {
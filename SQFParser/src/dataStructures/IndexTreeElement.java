@@ -228,6 +228,68 @@ public class IndexTreeElement {
 		}
 	}
 
+	/**
+	 * Gets the smallest index of this element and all of its children
+	 * 
+	 * @return The index or {@link #EMPTY} if none of the elements corresponds to
+	 *         an index
+	 */
+	public int firstIndex() {
+		int first = (index >= 0) ? index : EMPTY;
+
+		if (hasChildren()) {
+			for (int i = 0; i < children.size(); i++) {
+				int current = children.get(i).firstIndex();
+
+				if (current >= 0 && (first < 0 || current < first)) {
+					first = current;
+				}
+			}
+		}
+
+		return first;
+	}
+
+	/**
+	 * Gets the biggest index of this element and all of its children
+	 * 
+	 * @return The index or {@link #EMPTY} if none of the elements corresponds to
+	 *         an index
+	 */
+	public int lastIndex() {
+		int last = (index >= 0) ? index : EMPTY;
+
+		if (hasChildren()) {
+			for (int i = 0; i < children.size(); i++) {
+				last = Math.max(last, children.get(i).lastIndex());
+			}
+		}
+
+		return last;
+	}
+
+	/**
+	 * Shifts the indices of this and all child-elements that are at least the
+	 * given index by the given amount (e.g. after tokens have been inserted in
+	 * front of them)
+	 * 
+	 * @param from
+	 *            The smallest index to shift
+	 * @param amount
+	 *            The amount to shift the indices by (may be negative)
+	 */
+	public void shiftIndices(int from, int amount) {
+		if (index >= from) {
+			index += amount;
+		}
+
+		if (hasChildren()) {
+			for (int i = 0; i < children.size(); i++) {
+				children.get(i).shiftIndices(from, amount);
+			}
+		}
+	}
+
 	/**
 	 * Gets the level of this element
 	 */
@@ -305,7 +367,7 @@ public class IndexTreeElement {
 		}
 
 		if (hasChildren()) {
-			return children.equals(compare.children);
+			return children.equals(compare.getChildren());
 		} else {
 			return !compare.hasChildren();
 		}
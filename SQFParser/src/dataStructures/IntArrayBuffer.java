@@ -0,0 +1,116 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer of <code>int</code> values (e.g. one value per token) that
+ * doesn't box its content
+ * 
+ * @author Raven
+ *
+ */
+public class IntArrayBuffer {
+
+	/**
+	 * The values
+	 */
+	protected int[] values;
+	/**
+	 * The amount of values in this buffer
+	 */
+	protected int size;
+
+
+	public IntArrayBuffer() {
+		this(64);
+	}
+
+	public IntArrayBuffer(int initialCapacity) {
+		values = new int[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Adds the given value to the end of this buffer
+	 * 
+	 * @param value
+	 *            The value to add
+	 */
+	public void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+
+		values[size++] = value;
+	}
+
+	/**
+	 * Gets the value at the given index
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		return values[index];
+	}
+
+	/**
+	 * Sets the value at the given index
+	 */
+	public void set(int index, int value) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		values[index] = value;
+	}
+
+	/**
+	 * Gets the amount of values in this buffer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all values from this buffer (the allocated capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Removes all values from the given index on
+	 * 
+	 * @param size
+	 *            The amount of values to keep
+	 */
+	public void truncate(int size) {
+		assert (size >= 0 && size <= this.size);
+
+		this.size = size;
+	}
+
+	/**
+	 * Replaces the values in the given range by the values of the given buffer
+	 * 
+	 * @param from
+	 *            The index of the first value to replace (inclusive)
+	 * @param to
+	 *            The index of the last value to replace (exclusive)
+	 * @param replacement
+	 *            The values to insert instead
+	 */
+	public void replace(int from, int to, IntArrayBuffer replacement) {
+		int newSize = size - (to - from) + replacement.size;
+
+		if (newSize > values.length) {
+			values = Arrays.copyOf(values, Math.max(newSize, size * 2));
+		}
+
+		System.arraycopy(values, to, values, from + replacement.size, size - to);
+		System.arraycopy(replacement.values, 0, values, from, replacement.size);
+
+		size = newSize;
+	}
+}
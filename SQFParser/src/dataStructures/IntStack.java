@@ -0,0 +1,101 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * An unsynchronized stack of <code>int</code> values that doesn't box its
+ * content. Pushing only allocates if the capacity has to grow.
+ * 
+ * @author Raven
+ *
+ */
+public class IntStack {
+
+	/**
+	 * The values (the top of the stack is at <code>size - 1</code>)
+	 */
+	protected int[] values;
+	/**
+	 * The amount of values on this stack
+	 */
+	protected int size;
+
+
+	public IntStack() {
+		this(16);
+	}
+
+	public IntStack(int initialCapacity) {
+		values = new int[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Pushes the given value onto this stack
+	 * 
+	 * @param value
+	 *            The value to push
+	 */
+	public void push(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+
+		values[size++] = value;
+	}
+
+	/**
+	 * Removes the topmost value from this stack
+	 * 
+	 * @return The removed value
+	 */
+	public int pop() {
+		if (size == 0) {
+			throw new IllegalStateException("The stack is empty!");
+		}
+
+		return values[--size];
+	}
+
+	/**
+	 * Gets the topmost value of this stack without removing it
+	 */
+	public int peek() {
+		if (size == 0) {
+			throw new IllegalStateException("The stack is empty!");
+		}
+
+		return values[size - 1];
+	}
+
+	/**
+	 * Gets the value at the given index (counted from the bottom of the stack)
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		return values[index];
+	}
+
+	/**
+	 * Gets the amount of values on this stack
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether this stack is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all values from this stack (the allocated capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
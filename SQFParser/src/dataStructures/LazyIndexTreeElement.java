@@ -0,0 +1,207 @@
+package dataStructures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An empty element standing for a bracket expression whose content hasn't been
+ * built yet. Only the indices of the opening and the closing bracket are known
+ * up front. As soon as the children of this element are accessed in any way,
+ * the content is created via {@link #parseContent()} and the element behaves
+ * like the regular bracket node it stands for from then on (its children being
+ * the opening bracket, the content and the closing bracket).<br>
+ * Changing the level of an element that hasn't been expanded yet as well as
+ * asking it for its first or last index doesn't expand it.
+ *
+ * @author Raven
+ *
+ */
+public abstract class LazyIndexTreeElement extends IndexTreeElement {
+
+	/**
+	 * The index of the opening bracket
+	 */
+	protected int open;
+	/**
+	 * The index of the closing bracket
+	 */
+	protected int close;
+	/**
+	 * Indicates whether the content has been created already
+	 */
+	protected boolean expanded;
+
+
+	/**
+	 * @param open
+	 *            The index of the opening bracket
+	 * @param close
+	 *            The index of the closing bracket
+	 */
+	public LazyIndexTreeElement(int open, int close) {
+		super(EMPTY);
+
+		this.open = open;
+		this.close = close;
+	}
+
+	/**
+	 * Creates the content of the bracket expression
+	 *
+	 * @return An element on the level of this one whose children are the branches
+	 *         of the content (without the brackets)
+	 */
+	protected abstract IndexTreeElement parseContent();
+
+	/**
+	 * Creates the children of this element if that hasn't been done yet
+	 */
+	public void expand() {
+		if (expanded) {
+			return;
+		}
+		expanded = true;
+
+		IndexTreeElement content = parseContent();
+
+		children = new ArrayList<IndexTreeElement>();
+		doAdd(new IndexTreeElement(open));
+		if (content.hasChildren()) {
+			children.addAll(content.getChildren());
+		}
+		doAdd(new IndexTreeElement(close));
+	}
+
+	/**
+	 * Checks whether the children of this element have been created already
+	 */
+	public boolean isExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * Gets the index of the opening bracket
+	 */
+	public int getOpen() {
+		return open;
+	}
+
+	/**
+	 * Gets the index of the closing bracket
+	 */
+	public int getClose() {
+		return close;
+	}
+
+	/**
+	 * Sets the index of the closing bracket. This is only possible as long as the
+	 * element hasn't been expanded
+	 *
+	 * @param close
+	 *            The new index
+	 */
+	public void setClose(int close) {
+		if (expanded) {
+			throw new IllegalStateException("The element has already been expanded!");
+		}
+
+		this.close = close;
+	}
+
+	@Override
+	public int getChildrenCount() {
+		expand();
+		return super.getChildrenCount();
+	}
+
+	@Override
+	public boolean hasChildren() {
+		expand();
+		return super.hasChildren();
+	}
+
+	@Override
+	protected int doAdd(IndexTreeElement child) {
+		expand();
+		return super.doAdd(child);
+	}
+
+	@Override
+	public IndexTreeElement get(int level) {
+		expand();
+		return super.get(level);
+	}
+
+	@Override
+	protected int doInsert(IndexTreeElement child) {
+		expand();
+		return super.doInsert(child);
+	}
+
+	@Override
+	public void changeLevel(int amount) {
+		if (expanded) {
+			super.changeLevel(amount);
+		} else {
+			level += amount;
+
+			if (level < 0) {
+				throw new IllegalStateException("Level may not be negative!");
+			}
+		}
+	}
+
+	@Override
+	public int firstIndex() {
+		return expanded ? super.firstIndex() : open;
+	}
+
+	@Override
+	public int lastIndex() {
+		return expanded ? super.lastIndex() : close;
+	}
+
+	@Override
+	public void shiftIndices(int from, int amount) {
+		if (expanded) {
+			super.shiftIndices(from, amount);
+		} else {
+			if (open >= from) {
+				open += amount;
+			}
+			if (close >= from) {
+				close += amount;
+			}
+		}
+	}
+
+	@Override
+	public List<IndexTreeElement> getChildren() {
+		expand();
+		return super.getChildren();
+	}
+
+	@Override
+	public String toString() {
+		expand();
+		return super.toString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		expand();
+		return super.equals(obj);
+	}
+
+	@Override
+	public String getPopulationString() {
+		expand();
+		return super.getPopulationString();
+	}
+
+	@Override
+	public boolean contains(IndexTreeElement element) {
+		expand();
+		return super.contains(element);
+	}
+}
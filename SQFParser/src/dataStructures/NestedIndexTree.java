@@ -0,0 +1,215 @@
+package dataStructures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An index tree that is built in place inside another tree. The branches of
+ * this tree are the children of a host element of the enclosing tree and all
+ * levels are relative to these branches (a branch is on level 0 just like in an
+ * {@linkplain IndexTree}). This allows to build the content of a bracket
+ * expression directly where it belongs instead of building a separate tree
+ * that has to be added to the enclosing one afterwards.<br>
+ * The view can be re-attached to another host so that it can be reused.
+ * 
+ * @author Raven
+ *
+ */
+public class NestedIndexTree implements IBuildableIndexTree {
+
+	/**
+	 * The element whose children are the branches of this tree
+	 */
+	protected IndexTreeElement host;
+	/**
+	 * The currently processed and changeable branch
+	 */
+	protected IndexTreeElement currentBranch;
+
+
+	public NestedIndexTree() {
+	}
+
+	public NestedIndexTree(IndexTreeElement host) {
+		attach(host);
+	}
+
+	/**
+	 * Attaches this tree to the given host. All branches created afterwards are
+	 * added as children to it.
+	 * 
+	 * @param host
+	 *            The element to build this tree in
+	 * @return This tree
+	 */
+	public NestedIndexTree attach(IndexTreeElement host) {
+		this.host = host;
+		currentBranch = null;
+
+		return this;
+	}
+
+	/**
+	 * Gets the element this tree is built in
+	 */
+	public IndexTreeElement getHost() {
+		return host;
+	}
+
+	/**
+	 * Gets the absolute level of the branches of this tree
+	 */
+	protected int offset() {
+		return host.getLevel() + 1;
+	}
+
+	@Override
+	public void newBranch(int index) {
+		currentBranch = new IndexTreeElement(index);
+		host.doAdd(currentBranch);
+	}
+
+	@Override
+	public void makeTopElement(int index) {
+		if (currentBranch == null) {
+			newBranch(index);
+			return;
+		}
+
+		IndexTreeElement newBranch = new IndexTreeElement(index);
+		// place the new element on the level of the branch so that the branch only
+		// has to be moved down once
+		newBranch.level = currentBranch.level;
+		newBranch.doAdd(currentBranch);
+
+		currentBranch = newBranch;
+		// update reference in the host
+		host.children.set(host.children.size() - 1, currentBranch);
+	}
+
+	@Override
+	public int add(int level, int index) {
+		int offset = offset();
+		return currentBranch.add(index, level + offset) - offset;
+	}
+
+	@Override
+	public int add(int index) {
+		return currentBranch.add(index, IndexTreeElement.LOWEST_LEVEL) - offset();
+	}
+
+	@Override
+	public int insert(int level, int index) {
+		int offset = offset();
+		return currentBranch.insert(index, level + offset) - offset;
+	}
+
+	@Override
+	public IndexTreeElement get(int level) {
+		return currentBranch.get(level + offset());
+	}
+
+	@Override
+	public Iterator<IndexTreeElement> branchIterator() {
+		return branches().iterator();
+	}
+
+	@Override
+	public int add(int level, IBuildableIndexTree tree) {
+		IndexTreeElement element = get(level);
+
+		for (IndexTreeElement currentBranch : tree.branches()) {
+			element.add(currentBranch);
+		}
+
+		return element.get(IndexTreeElement.LOWEST_LEVEL).getLevel() - offset();
+	}
+
+	@Override
+	public void merge(IBuildableIndexTree tree) {
+		for (IndexTreeElement currentBranch : tree.branches()) {
+			host.doAdd(currentBranch);
+		}
+
+		if (host.hasChildren()) {
+			currentBranch = host.children.get(host.children.size() - 1);
+		}
+	}
+
+	/**
+	 * Gets the branches of this tree. These are all children of the host
+	 * (including the ones it had before this tree has been attached)
+	 */
+	@Override
+	public List<IndexTreeElement> branches() {
+		return host.hasChildren() ? host.getChildren() : Collections.<IndexTreeElement>emptyList();
+	}
+
+	@Override
+	public int branchCount() {
+		return host.getChildrenCount();
+	}
+
+	@Override
+	public IndexTreeElement getBranch(int index) {
+		return branches().get(index);
+	}
+
+	@Override
+	public void replaceBranches(int from, int to, IBuildableIndexTree replacement) {
+		if (!host.hasChildren()) {
+			host.children = new ArrayList<>();
+		}
+		host.children.subList(from, to).clear();
+
+		int position = from;
+		for (IndexTreeElement currentBranch : replacement.branches()) {
+			currentBranch.changeLevel(offset() - currentBranch.getLevel());
+			host.children.add(position++, currentBranch);
+		}
+
+		currentBranch = host.hasChildren() ? host.children.get(host.children.size() - 1) : null;
+	}
+
+	@Override
+	public IndexTreeElement addEmpty(int level) {
+		IndexTreeElement empty = new IndexTreeElement(IndexTreeElement.EMPTY);
+		get(level).add(empty);
+		return empty;
+	}
+
+	@Override
+	public IndexTreeElement newEmptyBranch() {
+		currentBranch = new IndexTreeElement(IndexTreeElement.EMPTY);
+		host.doAdd(currentBranch);
+
+		return currentBranch;
+	}
+
+	@Override
+	public void addElement(int level, IndexTreeElement element) {
+		get(level).add(element);
+	}
+
+	@Override
+	public void newBranch(IndexTreeElement element) {
+		currentBranch = element;
+		host.doAdd(currentBranch);
+	}
+
+	/**
+	 * Removes all children from the host
+	 */
+	@Override
+	public void clear() {
+		host.children = null;
+		currentBranch = null;
+	}
+
+	@Override
+	public boolean contains(IndexTreeElement element) {
+		return host.contains(element);
+	}
+}
@@ -0,0 +1,112 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A primitive side array holding the numeric value of every token of a token
+ * sequence. The value at a token's index is the value of the number literal
+ * represented by that token or {@link Double#NaN} if the token is not a
+ * number.
+ * 
+ * @author Raven
+ *
+ */
+public class NumberValueBuffer {
+
+	/**
+	 * The value of each token
+	 */
+	protected double[] values;
+	/**
+	 * The amount of tokens in this buffer
+	 */
+	protected int size;
+
+
+	public NumberValueBuffer() {
+		this(64);
+	}
+
+	public NumberValueBuffer(int initialCapacity) {
+		values = new double[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Adds the value of the next token to the end of this buffer
+	 * 
+	 * @param value
+	 *            The value of the token or {@link Double#NaN} if it isn't a number
+	 */
+	public void add(double value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+
+		values[size++] = value;
+	}
+
+	/**
+	 * Gets the value of the token at the given index
+	 * 
+	 * @param index
+	 *            The index of the token
+	 * @return The value of the number literal or {@link Double#NaN} if the token
+	 *         is not a number
+	 */
+	public double get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		return values[index];
+	}
+
+	/**
+	 * Gets the amount of token values in this buffer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all values from this buffer (the allocated capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Removes all values from the given index on
+	 * 
+	 * @param size
+	 *            The amount of values to keep
+	 */
+	public void truncate(int size) {
+		assert (size >= 0 && size <= this.size);
+
+		this.size = size;
+	}
+
+	/**
+	 * Replaces the values in the given range by the values of the given buffer
+	 * 
+	 * @param from
+	 *            The index of the first value to replace (inclusive)
+	 * @param to
+	 *            The index of the last value to replace (exclusive)
+	 * @param replacement
+	 *            The values to insert instead
+	 */
+	public void replace(int from, int to, NumberValueBuffer replacement) {
+		int newSize = size - (to - from) + replacement.size;
+
+		if (newSize > values.length) {
+			values = Arrays.copyOf(values, Math.max(newSize, size * 2));
+		}
+
+		System.arraycopy(values, to, values, from + replacement.size, size - to);
+		System.arraycopy(replacement.values, 0, values, from, replacement.size);
+
+		size = newSize;
+	}
+}
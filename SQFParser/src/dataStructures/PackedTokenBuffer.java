@@ -0,0 +1,317 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A token source that stores its tokens in parallel primitive arrays instead of
+ * keeping a separate {@linkplain SQFToken} object per token. The single token
+ * properties can be queried by index directly. {@link #get(int)} materializes a
+ * new token object for the given index whereas a {@linkplain Cursor} can be used
+ * as a reusable flyweight in order to walk the buffer without allocating.
+ *
+ * @author Raven
+ *
+ */
+public class PackedTokenBuffer implements ITokenSource<SQFToken>, ITokenSink {
+
+	private static final ESQFTokentype[] TOKEN_TYPES = ESQFTokentype.values();
+	private static final ESQFOperatorType[] OPERATOR_TYPES = ESQFOperatorType.values();
+
+	/**
+	 * The start offset of each token
+	 */
+	protected int[] starts;
+	/**
+	 * The end offset of each token
+	 */
+	protected int[] ends;
+	/**
+	 * The symbol ID of each token
+	 */
+	protected int[] symbols;
+	/**
+	 * The ordinal of the {@linkplain ESQFTokentype} of each token
+	 */
+	protected byte[] types;
+	/**
+	 * The ordinal of the {@linkplain ESQFOperatorType} of each token
+	 */
+	protected byte[] operatorTypes;
+	/**
+	 * The precedence of each token
+	 */
+	protected short[] precedences;
+	/**
+	 * The amount of tokens in this buffer
+	 */
+	protected int size;
+	/**
+	 * The character buffer the tokens in this buffer refer to
+	 */
+	protected ICharacterBuffer characterSource;
+
+
+	public PackedTokenBuffer() {
+		this(64);
+	}
+
+	public PackedTokenBuffer(int initialCapacity) {
+		initialCapacity = Math.max(initialCapacity, 1);
+
+		starts = new int[initialCapacity];
+		ends = new int[initialCapacity];
+		symbols = new int[initialCapacity];
+		types = new byte[initialCapacity];
+		operatorTypes = new byte[initialCapacity];
+		precedences = new short[initialCapacity];
+	}
+
+	/**
+	 * Adds a token with the given properties to the end of this buffer
+	 *
+	 * @param type
+	 *            The token type
+	 * @param start
+	 *            The start index of the token (inclusive)
+	 * @param end
+	 *            The end index of the token (exclusive)
+	 * @param precedence
+	 *            The precedence of the token
+	 * @param operatorType
+	 *            The operator type of the token
+	 * @param symbol
+	 *            The symbol ID of the token
+	 */
+	public void add(ESQFTokentype type, int start, int end, int precedence, ESQFOperatorType operatorType,
+			int symbol) {
+		if (size == starts.length) {
+			grow();
+		}
+
+		starts[size] = start;
+		ends[size] = end;
+		symbols[size] = symbol;
+		types[size] = (byte) type.ordinal();
+		operatorTypes[size] = (byte) operatorType.ordinal();
+		precedences[size] = (short) precedence;
+
+		size++;
+	}
+
+	@Override
+	public void start(ICharacterBuffer characterSource) {
+		this.characterSource = characterSource;
+	}
+
+	@Override
+	public void accept(ESQFTokentype type, int start, int end, int precedence, ESQFOperatorType operatorType,
+			int symbol) {
+		add(type, start, end, precedence, operatorType, symbol);
+	}
+
+	/**
+	 * Adds the given token to the end of this buffer
+	 *
+	 * @param token
+	 *            The token to add
+	 */
+	public void add(SQFToken token) {
+		if (characterSource == null) {
+			characterSource = token.characterSource;
+		}
+
+		add(token.type(), token.start(), token.stop(), token.precendence(), token.operatorType(), token.symbolId());
+	}
+
+	/**
+	 * Removes all tokens from this buffer (the allocated capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Materializes the token at the given index. Each call will create a new
+	 * {@linkplain SQFToken}. Use a {@link #cursor()} in order to avoid this.
+	 */
+	@Override
+	public SQFToken get(int index) {
+		checkIndex(index);
+
+		return new SQFToken(type(index), starts[index], ends[index], precedences[index], operatorType(index),
+				symbols[index], characterSource);
+	}
+
+	/**
+	 * Gets the type of the token at the given index
+	 */
+	public ESQFTokentype type(int index) {
+		checkIndex(index);
+
+		return TOKEN_TYPES[types[index]];
+	}
+
+	/**
+	 * Gets the start offset of the token at the given index
+	 */
+	public int start(int index) {
+		checkIndex(index);
+
+		return starts[index];
+	}
+
+	/**
+	 * Gets the end offset of the token at the given index
+	 */
+	public int stop(int index) {
+		checkIndex(index);
+
+		return ends[index];
+	}
+
+	/**
+	 * Gets the precedence of the token at the given index
+	 */
+	public int precedence(int index) {
+		checkIndex(index);
+
+		return precedences[index];
+	}
+
+	/**
+	 * Gets the operator type of the token at the given index
+	 */
+	public ESQFOperatorType operatorType(int index) {
+		checkIndex(index);
+
+		return OPERATOR_TYPES[operatorTypes[index]];
+	}
+
+	/**
+	 * Gets the symbol ID of the token at the given index
+	 */
+	public int symbolId(int index) {
+		checkIndex(index);
+
+		return symbols[index];
+	}
+
+	/**
+	 * Gets the text of the token at the given index
+	 */
+	public String getText(int index) {
+		checkIndex(index);
+
+		return characterSource.getText(starts[index], ends[index] - starts[index]);
+	}
+
+	/**
+	 * Sets the character buffer the tokens in this buffer refer to
+	 *
+	 * @param characterSource
+	 *            The respective character buffer
+	 */
+	public void setCharacterSource(ICharacterBuffer characterSource) {
+		this.characterSource = characterSource;
+	}
+
+	/**
+	 * Gets the character buffer the tokens in this buffer refer to
+	 */
+	public ICharacterBuffer getCharacterSource() {
+		return characterSource;
+	}
+
+	/**
+	 * Creates a new cursor positioned at the first token of this buffer
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private void grow() {
+		int capacity = starts.length * 2;
+
+		starts = Arrays.copyOf(starts, capacity);
+		ends = Arrays.copyOf(ends, capacity);
+		symbols = Arrays.copyOf(symbols, capacity);
+		types = Arrays.copyOf(types, capacity);
+		operatorTypes = Arrays.copyOf(operatorTypes, capacity);
+		precedences = Arrays.copyOf(precedences, capacity);
+	}
+
+	/**
+	 * A flyweight token that can be moved over the tokens of the enclosing buffer.
+	 * As the cursor is mutable it must not be stored by anyone expecting a fixed
+	 * token - {@link PackedTokenBuffer#get(int)} has to be used in that case.
+	 */
+	public class Cursor extends SQFToken {
+		/**
+		 * The index of the token this cursor is currently positioned at
+		 */
+		protected int index;
+
+		protected Cursor() {
+			super(null, 0, 0, 0, null, SymbolTable.NO_SYMBOL, PackedTokenBuffer.this.characterSource);
+
+			index = -1;
+			if (size > 0) {
+				moveTo(0);
+			}
+		}
+
+		/**
+		 * Positions this cursor at the token with the given index
+		 *
+		 * @param index
+		 *            The index of the token
+		 * @return This cursor
+		 */
+		public Cursor moveTo(int index) {
+			checkIndex(index);
+
+			this.index = index;
+			type = TOKEN_TYPES[types[index]];
+			start = starts[index];
+			end = ends[index];
+			precedence = precedences[index];
+			operatorType = OPERATOR_TYPES[operatorTypes[index]];
+			symbol = symbols[index];
+			characterSource = PackedTokenBuffer.this.characterSource;
+
+			return this;
+		}
+
+		/**
+		 * Moves this cursor to the next token
+		 *
+		 * @return Whether there was a next token to move to
+		 */
+		public boolean next() {
+			if (index + 1 >= size) {
+				return false;
+			}
+
+			moveTo(index + 1);
+			return true;
+		}
+
+		/**
+		 * Gets the index of the token this cursor is positioned at
+		 */
+		public int index() {
+			return index;
+		}
+	}
+}
@@ -6,16 +6,27 @@ public class SQFToken implements IToken {
 	protected int end;
 	protected int precedence;
 	protected ESQFOperatorType operatorType;
+	/**
+	 * The ID of this token's spelling in the {@linkplain SymbolTable} of the
+	 * producing factory or {@link SymbolTable#NO_SYMBOL}
+	 */
+	protected int symbol;
 	protected ICharacterBuffer characterSource;
 
 
 	public SQFToken(ESQFTokentype type, int start, int end, int precedence, ESQFOperatorType operatorType,
 			ICharacterBuffer characterSource) {
+		this(type, start, end, precedence, operatorType, SymbolTable.NO_SYMBOL, characterSource);
+	}
+
+	public SQFToken(ESQFTokentype type, int start, int end, int precedence, ESQFOperatorType operatorType,
+			int symbol, ICharacterBuffer characterSource) {
 		this.type = type;
 		this.start = start;
 		this.end = end;
 		this.precedence = precedence;
 		this.operatorType = operatorType;
+		this.symbol = symbol;
 		this.characterSource = characterSource;
 	}
 
@@ -48,11 +59,64 @@ public class SQFToken implements IToken {
 		return operatorType;
 	}
 
+	/**
+	 * Gets the ID of this token's spelling in the {@linkplain SymbolTable} of the
+	 * factory that produced it. Only IDs, operators and macros have a symbol ID.
+	 * 
+	 * @return The symbol ID or {@link SymbolTable#NO_SYMBOL}
+	 */
+	public int symbolId() {
+		return symbol;
+	}
+
 	@Override
 	public int precendence() {
 		return precedence;
 	}
 
+	/**
+	 * Moves this token by the given amount of characters. This is used in order to
+	 * keep tokens valid when the underlying text is edited in front of them.
+	 * 
+	 * @param delta
+	 *            The amount of characters to move this token by (may be negative)
+	 */
+	@Override
+	public void move(int delta) {
+		start += delta;
+		end += delta;
+	}
+
+	/**
+	 * Checks whether the given token follows this one directly, i.e. whether
+	 * there is no trivia (whitespace or comments) in between. Characters that
+	 * haven't been turned into a token because they are erroneous don't separate
+	 * the two tokens. If the characters between them aren't known, any character
+	 * does.
+	 *
+	 * @param next
+	 *            The token behind this one
+	 */
+	public boolean isFollowedDirectlyBy(SQFToken next) {
+		if (next.start() == end) {
+			return true;
+		}
+		if (characterSource == null || next.start() < end || next.start() > characterSource.length()) {
+			return false;
+		}
+
+		for (int i = end; i < next.start(); i++) {
+			int c = characterSource.get(i);
+
+			// every comment starts with a slash, which is never an erroneous character
+			if (Character.isWhitespace(c) || c == '/') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		return "SQFToken: " + type + " (" + precedence + ") - " + "[" + start + ":" + end + "]";
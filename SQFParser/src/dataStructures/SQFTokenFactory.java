@@ -0,0 +1,26 @@
+package dataStructures;
+
+/**
+ * A token factory using the commands of the shipped command database (see
+ * {@link CommandDatabase#getDefault()})
+ *
+ * @author Raven
+ *
+ */
+public class SQFTokenFactory extends AbstractSQFTokenFactory {
+
+	public SQFTokenFactory(CharacterBuffer buffer) {
+		this();
+		this.buffer = buffer;
+	}
+
+	public SQFTokenFactory() {
+		super(CommandDatabase.getDefault());
+	}
+
+	@Override
+	protected void doInitialize() {
+		// the commands are taken from the command database
+	}
+
+}
@@ -36,7 +36,8 @@ public class SQFTreeWalker extends TreeWalker {
 	protected void notifyListener(boolean enter, IndexTreeElement node) {
 		if (enter) {
 			if (node.getIndex() >= 0 && node.getChildrenCount() == 2) {
-				assignmentContext = getSource().get(node.getIndex()).getText().equals("=");
+				assignmentContext = ((SQFToken) getSource().get(node.getIndex()))
+						.symbolId() == SymbolTable.ASSIGNMENT;
 			}
 			if (node.getIndex() >= 0 && node.getChildrenCount() > 2) {
 				if (((SQFToken) getSource().get(node.getIndex())).type() == ESQFTokentype.MACRO) {
@@ -0,0 +1,272 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * An index of the significant tokens in a token sequence. These are all tokens
+ * except for trivia (whitespace, comments and preprocessor statements). The
+ * index maps the dense positions of the significant tokens to their indices in
+ * the sequence so that the trivia can be skipped without looking at it.<br>
+ * The index can either be built from a complete sequence or be filled token by
+ * token while the sequence is produced (as the lexer does). In the latter case
+ * it has to be updated along with the sequence (see
+ * {@link #replace(int, int, SignificantTokenIndex)}) - otherwise it only stays
+ * valid as long as the indexed sequence doesn't change.
+ *
+ * @author Raven
+ *
+ */
+public class SignificantTokenIndex {
+
+	/**
+	 * The index of each significant token in the sequence
+	 */
+	protected int[] indices;
+	/**
+	 * The amount of significant tokens
+	 */
+	protected int size;
+	/**
+	 * The amount of tokens in the indexed sequence
+	 */
+	protected int sourceSize;
+	/**
+	 * The position of the first index that still has to be moved by
+	 * {@link #pendingShift}
+	 */
+	protected int shiftStart;
+	/**
+	 * The amount the indices from {@link #shiftStart} on still have to be moved
+	 * by (see {@link #replace(int, int, SignificantTokenIndex)})
+	 */
+	protected int pendingShift;
+
+
+	/**
+	 * Creates an empty index that is filled via {@link #add(ESQFTokentype)}
+	 */
+	public SignificantTokenIndex() {
+		this(10);
+	}
+
+	/**
+	 * Creates an empty index that is filled via {@link #add(ESQFTokentype)}
+	 *
+	 * @param initialCapacity
+	 *            The amount of significant tokens the index can hold before it
+	 *            has to grow
+	 */
+	public SignificantTokenIndex(int initialCapacity) {
+		indices = new int[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Creates the index of the given source
+	 *
+	 * @param source
+	 *            The source to index. All of its tokens are read
+	 */
+	public SignificantTokenIndex(ITokenSource<? extends SQFToken> source) {
+		indices = new int[Math.max(source.size() / 2, 1)];
+
+		for (int i = 0; source.has(i); i++) {
+			if (isSignificant(source.get(i).type())) {
+				if (size == indices.length) {
+					indices = Arrays.copyOf(indices, size * 2);
+				}
+
+				indices[size++] = i;
+			}
+
+			sourceSize = i + 1;
+		}
+	}
+
+	/**
+	 * Appends a token of the given type to the indexed sequence
+	 *
+	 * @param type
+	 *            The type of the token
+	 */
+	public void add(ESQFTokentype type) {
+		if (isSignificant(type)) {
+			applyShift();
+
+			if (size == indices.length) {
+				indices = Arrays.copyOf(indices, size * 2);
+			}
+
+			indices[size++] = sourceSize;
+		}
+
+		sourceSize++;
+	}
+
+	/**
+	 * Replaces the tokens in the given range of the indexed sequence by the
+	 * tokens indexed by the given index. The indices behind the range are only
+	 * moved once they are requested so that an edit doesn't have to touch every
+	 * index behind it.
+	 *
+	 * @param from
+	 *            The index of the first token to replace (inclusive)
+	 * @param to
+	 *            The index of the last token to replace (exclusive)
+	 * @param replacement
+	 *            The index of the tokens to insert instead
+	 */
+	public void replace(int from, int to, SignificantTokenIndex replacement) {
+		int first = positionOf(from);
+		int last = positionOf(to);
+		int delta = replacement.sourceSize - (to - from);
+		int positionDelta = replacement.size - (last - first);
+		int newSize = size + positionDelta;
+
+		if (pendingShift != 0 && shiftStart < first) {
+			// the indices in front of the range don't depend on the edit
+			move(shiftStart, first, pendingShift);
+			shiftStart = first;
+		}
+
+		if (newSize > indices.length) {
+			indices = Arrays.copyOf(indices, Math.max(newSize, size * 2));
+		}
+		System.arraycopy(indices, last, indices, first + replacement.size, size - last);
+		for (int i = 0; i < replacement.size; i++) {
+			indices[first + i] = replacement.get(i) + from;
+		}
+		size = newSize;
+
+		int tail = first + replacement.size;
+		if (pendingShift == 0) {
+			shiftStart = tail;
+		} else if (shiftStart > last) {
+			// the indices in between have been moved already
+			move(tail, shiftStart + positionDelta, delta);
+			shiftStart += positionDelta;
+		} else {
+			shiftStart = tail;
+		}
+		pendingShift += delta;
+		sourceSize += delta;
+	}
+
+	/**
+	 * Removes all tokens from the given index on from the indexed sequence
+	 *
+	 * @param sourceSize
+	 *            The amount of tokens to keep
+	 */
+	public void truncate(int sourceSize) {
+		size = positionOf(sourceSize);
+		this.sourceSize = sourceSize;
+
+		if (shiftStart >= size) {
+			pendingShift = 0;
+		}
+	}
+
+	/**
+	 * Removes all tokens from the indexed sequence
+	 */
+	public void clear() {
+		size = 0;
+		sourceSize = 0;
+		pendingShift = 0;
+	}
+
+	/**
+	 * Gets the position the first significant token at or behind the given index
+	 * has (or would have)
+	 *
+	 * @param index
+	 *            The index in the indexed sequence
+	 */
+	public int positionOf(int index) {
+		int low = 0;
+		int high = size;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (get(mid) < index) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Checks whether tokens of the given type are significant
+	 *
+	 * @param type
+	 *            The type to check
+	 */
+	public static boolean isSignificant(ESQFTokentype type) {
+		switch (type) {
+		case WHITESPACE:
+		case COMMENT:
+		case PREPROCESSOR:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Gets the index of the significant token at the given position
+	 *
+	 * @param position
+	 *            The position of the token among the significant tokens
+	 * @return The index of the token in the indexed sequence
+	 */
+	public int get(int position) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+		}
+
+		return indices[position] + ((position >= shiftStart) ? pendingShift : 0);
+	}
+
+	/**
+	 * Gets the amount of significant tokens
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the amount of tokens in the indexed sequence (including trivia)
+	 */
+	public int sourceSize() {
+		return sourceSize;
+	}
+
+	/**
+	 * Gets the indices of all significant tokens in order
+	 */
+	public int[] toArray() {
+		applyShift();
+
+		return Arrays.copyOf(indices, size);
+	}
+
+	/**
+	 * Moves all indices by the pending shift
+	 */
+	private void applyShift() {
+		if (pendingShift != 0) {
+			move(shiftStart, size, pendingShift);
+			pendingShift = 0;
+		}
+	}
+
+	private void move(int from, int to, int delta) {
+		for (int i = from; i < to; i++) {
+			indices[i] += delta;
+		}
+	}
+}
@@ -0,0 +1,352 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A table that deduplicates String literals. Every distinct literal value (the
+ * content without the enclosing quotes and with escaped quotes ("" or '')
+ * replaced by a single quote) gets a dense <code>int</code> ID so that e.g.
+ * <code>"x"</code> and <code>'x'</code> share the same ID. Literals are
+ * unescaped while they are interned - looking up a literal that is already
+ * known does not allocate any memory.<br>
+ * A table may be shared between the lexers of multiple files (one after
+ * another) so that literals are deduplicated across a whole corpus. It is not
+ * thread-safe.
+ * 
+ * @author Raven
+ *
+ */
+public class StringLiteralTable {
+
+	/**
+	 * The ID used for tokens that are no String literals
+	 */
+	public static final int NO_LITERAL = -1;
+
+	private static final ESQFTokentype[] TOKEN_TYPES = ESQFTokentype.values();
+
+	/**
+	 * The ordinal of the token type (STRING, SUBSTRING or SUBSTRING_END) of every
+	 * literal
+	 */
+	protected byte[] types;
+	/**
+	 * The unescaped value of every literal indexed by its ID
+	 */
+	protected String[] values;
+	/**
+	 * The hash of every literal's value
+	 */
+	protected int[] hashes;
+	/**
+	 * The open-addressing hash table. Each slot contains the ID of the respective
+	 * literal + 1 or 0 if the slot is free
+	 */
+	protected int[] slots;
+	/**
+	 * The amount of literals
+	 */
+	protected int size;
+
+
+	public StringLiteralTable() {
+		this(64);
+	}
+
+	public StringLiteralTable(int initialCapacity) {
+		int capacity = Integer.highestOneBit(Math.max(initialCapacity, 8) - 1) << 2;
+
+		types = new byte[capacity / 2];
+		values = new String[capacity / 2];
+		hashes = new int[capacity / 2];
+		slots = new int[capacity];
+	}
+
+	/**
+	 * Checks whether tokens of the given type are String literals
+	 * 
+	 * @param type
+	 *            The token type to check
+	 */
+	public static boolean isLiteral(ESQFTokentype type) {
+		return type == ESQFTokentype.STRING || type == ESQFTokentype.SUBSTRING || type == ESQFTokentype.SUBSTRING_END;
+	}
+
+	/**
+	 * Interns the literal delimited by the given indices. Literals of the same
+	 * type share their ID if their values are equal.
+	 * 
+	 * @param type
+	 *            The type of the literal's token (STRING, SUBSTRING or
+	 *            SUBSTRING_END)
+	 * @param buffer
+	 *            The buffer containing the literal
+	 * @param start
+	 *            The start index of the literal (inclusive)
+	 * @param end
+	 *            The end index of the literal (exclusive)
+	 * @return The ID of the literal
+	 */
+	public int intern(ESQFTokentype type, ICharacterBuffer buffer, int start, int end) {
+		assert (isLiteral(type));
+
+		int hash = hash(type, buffer, start, end);
+		int mask = slots.length - 1;
+
+		for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+			int id = slots[i] - 1;
+
+			if (hashes[id] == hash && types[id] == type.ordinal() && matches(values[id], type, buffer, start, end)) {
+				return id;
+			}
+		}
+
+		if ((size + 1) * 2 > slots.length) {
+			grow();
+		}
+
+		int id = size++;
+		values[id] = unescape(buffer.getText(start, end - start), type);
+		types[id] = (byte) type.ordinal();
+		hashes[id] = hash;
+		insertSlot(id);
+
+		return id;
+	}
+
+	/**
+	 * Gets the type of the token the literal with the given ID has been interned
+	 * for
+	 * 
+	 * @param id
+	 *            The ID of the literal
+	 */
+	public ESQFTokentype getType(int id) {
+		checkID(id);
+
+		return TOKEN_TYPES[types[id]];
+	}
+
+	/**
+	 * Gets the value of the literal with the given ID
+	 * 
+	 * @param id
+	 *            The ID of the literal
+	 * @return The content of the literal without the enclosing quotes and with
+	 *         escaped quotes replaced by a single one
+	 */
+	public String getValue(int id) {
+		checkID(id);
+
+		return values[id];
+	}
+
+	/**
+	 * Gets the amount of literals in this table. All IDs are smaller than this
+	 * value
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all literals from this table
+	 */
+	public void clear() {
+		Arrays.fill(values, 0, size, null);
+		Arrays.fill(slots, 0);
+		size = 0;
+	}
+
+	/**
+	 * Removes all literals that are not referenced by the given IDs from this
+	 * table. The remaining literals get new dense IDs (in the order of their first
+	 * reference) and the given IDs are replaced accordingly. This is meant for
+	 * tables that are used by a single lexer only in order to get rid of the
+	 * literals of tokens that have been removed by edits.
+	 * 
+	 * @param ids
+	 *            All IDs that are still in use (may contain
+	 *            {@link #NO_LITERAL})
+	 */
+	public void compact(IntArrayBuffer ids) {
+		int[] mapping = new int[size];
+		Arrays.fill(mapping, NO_LITERAL);
+		byte[] keptTypes = new byte[types.length];
+		String[] keptValues = new String[values.length];
+		int[] keptHashes = new int[hashes.length];
+		int kept = 0;
+
+		for (int i = 0; i < ids.size(); i++) {
+			int id = ids.get(i);
+
+			if (id == NO_LITERAL) {
+				continue;
+			}
+
+			if (mapping[id] == NO_LITERAL) {
+				mapping[id] = kept;
+				keptTypes[kept] = types[id];
+				keptValues[kept] = values[id];
+				keptHashes[kept++] = hashes[id];
+			}
+
+			ids.set(i, mapping[id]);
+		}
+
+		types = keptTypes;
+		values = keptValues;
+		hashes = keptHashes;
+		Arrays.fill(slots, 0);
+		size = kept;
+
+		for (int id = 0; id < size; id++) {
+			insertSlot(id);
+		}
+	}
+
+	/**
+	 * Unescapes the given literal
+	 * 
+	 * @param literal
+	 *            The literal as it is written in the code
+	 * @param type
+	 *            The type of the literal's token. A SUBSTRING has no closing and
+	 *            a SUBSTRING_END no opening quote
+	 * @return The unescaped value
+	 */
+	public static String unescape(String literal, ESQFTokentype type) {
+		if (literal.isEmpty()) {
+			return literal;
+		}
+
+		int i = 0;
+		char quote;
+		if (type == ESQFTokentype.SUBSTRING_END) {
+			quote = literal.charAt(literal.length() - 1);
+		} else {
+			quote = literal.charAt(0);
+			i++;
+		}
+
+		StringBuilder value = null;
+		int contentStart = i;
+
+		while (i < literal.length()) {
+			char c = literal.charAt(i);
+
+			if (c == quote) {
+				if (i + 1 < literal.length() && literal.charAt(i + 1) == quote) {
+					// escaped quote -> keep only one of them
+					if (value == null) {
+						value = new StringBuilder(literal.length());
+						value.append(literal, contentStart, i);
+					}
+					value.append(quote);
+					i += 2;
+					continue;
+				}
+
+				// closing quote
+				break;
+			}
+
+			if (value != null) {
+				value.append(c);
+			}
+			i++;
+		}
+
+		return (value == null) ? literal.substring(contentStart, i) : value.toString();
+	}
+
+	private void grow() {
+		types = Arrays.copyOf(types, types.length * 2);
+		values = Arrays.copyOf(values, values.length * 2);
+		hashes = Arrays.copyOf(hashes, hashes.length * 2);
+		slots = new int[slots.length * 2];
+
+		for (int id = 0; id < size; id++) {
+			insertSlot(id);
+		}
+	}
+
+	private void insertSlot(int id) {
+		int mask = slots.length - 1;
+		int i = hashes[id] & mask;
+
+		while (slots[i] != 0) {
+			i = (i + 1) & mask;
+		}
+
+		slots[i] = id + 1;
+	}
+
+	private void checkID(int id) {
+		if (id < 0 || id >= size) {
+			throw new IllegalArgumentException("Unknown literal ID " + id);
+		}
+	}
+
+	/**
+	 * Gets the index of the first content character of the given literal
+	 */
+	private static int contentStart(ESQFTokentype type, int start) {
+		// a SUBSTRING_END has no opening quote
+		return (type == ESQFTokentype.SUBSTRING_END) ? start : start + 1;
+	}
+
+	/**
+	 * Gets the quote character of the given literal
+	 */
+	private static char quote(ESQFTokentype type, ICharacterBuffer buffer, int start, int end) {
+		return buffer.getChar((type == ESQFTokentype.SUBSTRING_END) ? end - 1 : start);
+	}
+
+	private static boolean matches(String value, ESQFTokentype type, ICharacterBuffer buffer, int start, int end) {
+		char quote = quote(type, buffer, start, end);
+		int length = 0;
+
+		for (int i = contentStart(type, start); i < end; i++) {
+			char c = buffer.getChar(i);
+
+			if (c == quote) {
+				if (i + 1 >= end || buffer.getChar(i + 1) != quote) {
+					// closing quote
+					break;
+				}
+				// escaped quote
+				i++;
+			}
+
+			if (length >= value.length() || value.charAt(length++) != c) {
+				return false;
+			}
+		}
+
+		return length == value.length();
+	}
+
+	private static int hash(ESQFTokentype type, ICharacterBuffer buffer, int start, int end) {
+		char quote = quote(type, buffer, start, end);
+		int hash = 0;
+
+		// the hash of the unescaped value
+		for (int i = contentStart(type, start); i < end; i++) {
+			char c = buffer.getChar(i);
+
+			if (c == quote) {
+				if (i + 1 >= end || buffer.getChar(i + 1) != quote) {
+					break;
+				}
+				i++;
+			}
+
+			hash = 31 * hash + c;
+		}
+
+		// spread the bits so that the low bits used for the slot index are well
+		// distributed
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,334 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A table that interns the spellings of IDs, operators and macros to dense
+ * <code>int</code> IDs. The spellings are treated case-insensitively and are
+ * stored in lowercase. Looking up or interning a spelling that is already known
+ * does not allocate any memory.<br>
+ * <br>
+ * Symbols are never evicted on their own as every token produced with the
+ * table refers to them by their ID. A table that outlives the inputs it has
+ * been used for (e.g. the one of a token factory that is used for one file
+ * after the other) has to be {@linkplain #clear() cleared} once the tokens of
+ * the previous inputs are no longer in use. Otherwise it keeps every spelling
+ * that has ever been interned.
+ *
+ * @author Raven
+ *
+ */
+public class SymbolTable {
+
+	/**
+	 * The ID used for tokens that don't correspond to a symbol
+	 */
+	public static final int NO_SYMBOL = -1;
+	/**
+	 * The (pre-interned) ID of the assignment operator "="
+	 */
+	public static final int ASSIGNMENT = 0;
+
+	/**
+	 * The symbols that are interned into every table in the order of their IDs
+	 */
+	protected static final String[] PREDEFINED = new String[] { "=" };
+
+	/**
+	 * The canonical (lowercase) spelling of every symbol indexed by its ID
+	 */
+	protected String[] symbols;
+	/**
+	 * The hash of every symbol indexed by its ID
+	 */
+	protected int[] hashes;
+	/**
+	 * The open-addressing hash table. Each slot contains the ID of the respective
+	 * symbol + 1 or 0 if the slot is free
+	 */
+	protected int[] slots;
+	/**
+	 * The amount of interned symbols
+	 */
+	protected int size;
+	/**
+	 * The amount of symbols that have been interned when this table has been
+	 * created. They are kept by {@link #clear()}
+	 */
+	protected final int baseSize;
+	/**
+	 * The amount of slots this table has been created with
+	 */
+	protected final int baseCapacity;
+
+
+	public SymbolTable() {
+		this(64);
+	}
+
+	public SymbolTable(int initialCapacity) {
+		int capacity = Integer.highestOneBit(Math.max(initialCapacity, 8) - 1) << 2;
+
+		symbols = new String[capacity / 2];
+		hashes = new int[capacity / 2];
+		slots = new int[capacity];
+
+		for (String current : PREDEFINED) {
+			intern(current);
+		}
+
+		baseSize = size;
+		baseCapacity = slots.length;
+	}
+
+	/**
+	 * Creates a copy of the given table. Interning into the copy doesn't affect
+	 * the original table (and vice versa).
+	 * 
+	 * @param base
+	 *            The table to copy
+	 */
+	public SymbolTable(SymbolTable base) {
+		symbols = base.symbols.clone();
+		hashes = base.hashes.clone();
+		slots = base.slots.clone();
+		size = base.size;
+		baseSize = size;
+		baseCapacity = slots.length;
+	}
+
+	/**
+	 * Interns the spelling delimited by the given indices
+	 *
+	 * @param buffer
+	 *            The buffer containing the spelling
+	 * @param start
+	 *            The start index of the spelling (inclusive)
+	 * @param end
+	 *            The end index of the spelling (exclusive)
+	 * @return The ID of the respective symbol
+	 */
+	public int intern(ICharacterBuffer buffer, int start, int end) {
+		int hash = hash(buffer, start, end);
+		int id = find(buffer, start, end, hash);
+
+		if (id != NO_SYMBOL) {
+			return id;
+		}
+
+		return add(buffer.getText(start, end - start), hash);
+	}
+
+	/**
+	 * Interns the given spelling
+	 *
+	 * @param spelling
+	 *            The spelling to intern
+	 * @return The ID of the respective symbol
+	 */
+	public int intern(CharSequence spelling) {
+		int hash = hash(spelling);
+		int id = find(spelling, hash);
+
+		if (id != NO_SYMBOL) {
+			return id;
+		}
+
+		return add(spelling.toString(), hash);
+	}
+
+	/**
+	 * Looks up the spelling delimited by the given indices without interning it
+	 *
+	 * @param buffer
+	 *            The buffer containing the spelling
+	 * @param start
+	 *            The start index of the spelling (inclusive)
+	 * @param end
+	 *            The end index of the spelling (exclusive)
+	 * @return The ID of the respective symbol or {@link #NO_SYMBOL} if it is
+	 *         unknown
+	 */
+	public int lookup(ICharacterBuffer buffer, int start, int end) {
+		return find(buffer, start, end, hash(buffer, start, end));
+	}
+
+	/**
+	 * Looks up the given spelling without interning it
+	 *
+	 * @param spelling
+	 *            The spelling to search for
+	 * @return The ID of the respective symbol or {@link #NO_SYMBOL} if it is
+	 *         unknown
+	 */
+	public int lookup(CharSequence spelling) {
+		return find(spelling, hash(spelling));
+	}
+
+	/**
+	 * Gets the canonical (lowercase) spelling of the symbol with the given ID
+	 *
+	 * @param id
+	 *            The ID of the symbol
+	 * @return The respective spelling
+	 */
+	public String getSymbol(int id) {
+		if (id < 0 || id >= size) {
+			throw new IllegalArgumentException("Unknown symbol ID " + id);
+		}
+
+		return symbols[id];
+	}
+
+	/**
+	 * Removes all symbols that have been interned since this table has been
+	 * created. The symbols it has been created with (the predefined ones and the
+	 * ones of the copied table) keep their IDs, all other IDs become invalid and
+	 * will be handed out again. Therefore a table may only be cleared once no
+	 * token referring to one of its IDs is in use anymore.
+	 */
+	public void clear() {
+		if (slots.length > baseCapacity) {
+			// release the memory the removed symbols have required
+			symbols = Arrays.copyOf(symbols, baseCapacity / 2);
+			hashes = Arrays.copyOf(hashes, baseCapacity / 2);
+			slots = new int[baseCapacity];
+		} else {
+			Arrays.fill(symbols, baseSize, size, null);
+			Arrays.fill(slots, 0);
+		}
+
+		size = baseSize;
+		for (int id = 0; id < size; id++) {
+			insertSlot(id);
+		}
+	}
+
+	/**
+	 * Gets the amount of interned symbols. All IDs are smaller than this value
+	 */
+	public int size() {
+		return size;
+	}
+
+	private int find(ICharacterBuffer buffer, int start, int end, int hash) {
+		int mask = slots.length - 1;
+
+		for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+			int id = slots[i] - 1;
+
+			if (hashes[id] == hash && matches(symbols[id], buffer, start, end)) {
+				return id;
+			}
+		}
+
+		return NO_SYMBOL;
+	}
+
+	private int find(CharSequence spelling, int hash) {
+		int mask = slots.length - 1;
+
+		for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+			int id = slots[i] - 1;
+
+			if (hashes[id] == hash && matches(symbols[id], spelling)) {
+				return id;
+			}
+		}
+
+		return NO_SYMBOL;
+	}
+
+	private int add(String spelling, int hash) {
+		if ((size + 1) * 2 > slots.length) {
+			grow();
+		}
+
+		StringBuilder canonical = new StringBuilder(spelling.length());
+		for (int i = 0; i < spelling.length(); i++) {
+			canonical.append(Character.toLowerCase(spelling.charAt(i)));
+		}
+
+		int id = size++;
+		symbols[id] = canonical.toString();
+		hashes[id] = hash;
+		insertSlot(id);
+
+		return id;
+	}
+
+	private void grow() {
+		symbols = Arrays.copyOf(symbols, symbols.length * 2);
+		hashes = Arrays.copyOf(hashes, hashes.length * 2);
+		slots = new int[slots.length * 2];
+
+		for (int id = 0; id < size; id++) {
+			insertSlot(id);
+		}
+	}
+
+	private void insertSlot(int id) {
+		int mask = slots.length - 1;
+		int i = hashes[id] & mask;
+
+		while (slots[i] != 0) {
+			i = (i + 1) & mask;
+		}
+
+		slots[i] = id + 1;
+	}
+
+	private static boolean matches(String symbol, ICharacterBuffer buffer, int start, int end) {
+		if (symbol.length() != end - start) {
+			return false;
+		}
+
+		for (int i = 0; i < symbol.length(); i++) {
+			if (symbol.charAt(i) != Character.toLowerCase(buffer.getChar(start + i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean matches(String symbol, CharSequence spelling) {
+		if (symbol.length() != spelling.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < symbol.length(); i++) {
+			if (symbol.charAt(i) != Character.toLowerCase(spelling.charAt(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int hash(ICharacterBuffer buffer, int start, int end) {
+		int hash = 0;
+
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + Character.toLowerCase(buffer.getChar(i));
+		}
+
+		return mix(hash);
+	}
+
+	private static int hash(CharSequence spelling) {
+		int hash = 0;
+
+		for (int i = 0; i < spelling.length(); i++) {
+			hash = 31 * hash + Character.toLowerCase(spelling.charAt(i));
+		}
+
+		return mix(hash);
+	}
+
+	private static int mix(int hash) {
+		// spread the bits so that the low bits used for the slot index are well
+		// distributed
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -6,6 +6,16 @@ import java.util.List;
 
 public class TokenBuffer<T extends IToken> implements ITokenSource<T> {
 	protected List<T> tokens;
+	/**
+	 * The index of the first token that still has to be moved by
+	 * {@link #pendingShift}
+	 */
+	protected int shiftStart;
+	/**
+	 * The amount of characters the tokens from {@link #shiftStart} on still have
+	 * to be moved by (see {@link #shift(int, int)})
+	 */
+	protected int pendingShift;
 
 	public TokenBuffer() {
 		this(10);
@@ -29,6 +39,8 @@ public class TokenBuffer<T extends IToken> implements ITokenSource<T> {
 	 *            The token to end
 	 */
 	public void add(T token) {
+		applyShift(tokens.size());
+
 		tokens.add(token);
 	}
 
@@ -43,13 +55,87 @@ public class TokenBuffer<T extends IToken> implements ITokenSource<T> {
 	 *            The token to add
 	 */
 	public void add(int index, T token) {
+		applyShift(tokens.size());
+
 		tokens.add(index, token);
 	}
 
+	/**
+	 * Replaces the tokens in the given range by the tokens of the given buffer
+	 * 
+	 * @param from
+	 *            The index of the first token to replace (inclusive)
+	 * @param to
+	 *            The index of the last token to replace (exclusive)
+	 * @param replacement
+	 *            The buffer containing the tokens to insert instead
+	 */
+	public void replace(int from, int to, TokenBuffer<T> replacement) {
+		replacement.applyShift(replacement.size());
+
+		if (pendingShift != 0) {
+			// the replaced tokens don't have to be moved anymore
+			if (shiftStart < from) {
+				move(shiftStart, from, pendingShift);
+			}
+			shiftStart = Math.max(shiftStart, to) + replacement.size() - (to - from);
+		}
+
+		tokens.subList(from, to).clear();
+		tokens.addAll(from, replacement.tokens);
+	}
+
+	/**
+	 * Moves all tokens from the given index on by the given amount of characters.
+	 * The tokens are only moved once they are requested via {@link #get(int)} so
+	 * that an edit doesn't have to touch every token behind it. If the buffer is
+	 * shifted repeatedly, only the tokens between the current and the previous
+	 * index are moved right away.<br>
+	 * Use {@link #start(int)} and {@link #stop(int)} in order to look at the
+	 * offsets of a token without moving it.
+	 * 
+	 * @param from
+	 *            The index of the first token to move
+	 * @param delta
+	 *            The amount of characters to move the tokens by (may be negative)
+	 */
+	public void shift(int from, int delta) {
+		if (delta == 0 || from >= tokens.size()) {
+			return;
+		}
+
+		if (pendingShift == 0) {
+			shiftStart = from;
+		} else if (from >= shiftStart) {
+			move(shiftStart, from, pendingShift);
+			shiftStart = from;
+		} else {
+			move(from, shiftStart, delta);
+		}
+
+		pendingShift += delta;
+	}
+
+	/**
+	 * Removes all tokens from the given index on
+	 * 
+	 * @param size
+	 *            The amount of tokens to keep
+	 */
+	public void truncate(int size) {
+		tokens.subList(size, tokens.size()).clear();
+
+		if (shiftStart >= size) {
+			pendingShift = 0;
+		}
+	}
+
 	/**
 	 * Gets an iterator for this buffer
 	 */
 	public Iterator<T> iterator() {
+		applyShift(tokens.size());
+
 		return tokens.iterator();
 	}
 
@@ -61,6 +147,57 @@ public class TokenBuffer<T extends IToken> implements ITokenSource<T> {
 	 * @return The respective token
 	 */
 	public T get(int index) {
+		if (pendingShift != 0 && index >= shiftStart) {
+			applyShift(index + 1);
+		}
+
 		return tokens.get(index);
 	}
+
+	/**
+	 * Gets the start offset of the token at the specified index without moving
+	 * it (see {@link #shift(int, int)})
+	 * 
+	 * @param index
+	 *            The index of the token
+	 */
+	public int start(int index) {
+		return tokens.get(index).start() + ((index >= shiftStart) ? pendingShift : 0);
+	}
+
+	/**
+	 * Gets the end offset of the token at the specified index without moving it
+	 * (see {@link #shift(int, int)})
+	 * 
+	 * @param index
+	 *            The index of the token
+	 */
+	public int stop(int index) {
+		return tokens.get(index).stop() + ((index >= shiftStart) ? pendingShift : 0);
+	}
+
+	/**
+	 * Moves the tokens up to the given index by the pending shift
+	 * 
+	 * @param end
+	 *            The index of the first token that may remain unmoved
+	 */
+	private void applyShift(int end) {
+		if (pendingShift == 0 || end <= shiftStart) {
+			return;
+		}
+
+		move(shiftStart, end, pendingShift);
+		shiftStart = end;
+
+		if (shiftStart >= tokens.size()) {
+			pendingShift = 0;
+		}
+	}
+
+	private void move(int from, int to, int delta) {
+		for (int i = from; i < to; i++) {
+			tokens.get(i).move(delta);
+		}
+	}
 }
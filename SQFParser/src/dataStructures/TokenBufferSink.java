@@ -0,0 +1,49 @@
+package dataStructures;
+
+/**
+ * An {@linkplain ITokenSink} that collects the tokens as {@linkplain SQFToken}s
+ * in a {@linkplain TokenBuffer}
+ * 
+ * @author Raven
+ *
+ */
+public class TokenBufferSink implements ITokenSink {
+
+	/**
+	 * The buffer the tokens are collected in
+	 */
+	protected TokenBuffer<SQFToken> tokens;
+	/**
+	 * The character buffer the tokens refer to
+	 */
+	protected ICharacterBuffer characterSource;
+
+
+	public TokenBufferSink() {
+		this(new TokenBuffer<SQFToken>());
+	}
+
+	public TokenBufferSink(TokenBuffer<SQFToken> tokens) {
+		assert (tokens != null);
+
+		this.tokens = tokens;
+	}
+
+	@Override
+	public void start(ICharacterBuffer characterSource) {
+		this.characterSource = characterSource;
+	}
+
+	@Override
+	public void accept(ESQFTokentype type, int start, int end, int precedence, ESQFOperatorType operatorType,
+			int symbol) {
+		tokens.add(new SQFToken(type, start, end, precedence, operatorType, symbol, characterSource));
+	}
+
+	/**
+	 * Gets the buffer the tokens are collected in
+	 */
+	public TokenBuffer<SQFToken> getTokens() {
+		return tokens;
+	}
+}
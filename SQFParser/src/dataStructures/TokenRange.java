@@ -0,0 +1,123 @@
+package dataStructures;
+
+import java.util.List;
+
+/**
+ * Describes a range of tokens in a token sequence that has been replaced by a
+ * different amount of new tokens
+ * 
+ * @author Raven
+ *
+ */
+public class TokenRange {
+
+	/**
+	 * The index of the first replaced token
+	 */
+	protected final int start;
+	/**
+	 * The amount of tokens that have been removed
+	 */
+	protected final int removedCount;
+	/**
+	 * The amount of tokens that have been inserted instead
+	 */
+	protected final int insertedCount;
+	/**
+	 * The tokens that have been removed (in their old positions) or
+	 * <code>null</code> if they are unknown
+	 */
+	protected final List<SQFToken> removedTokens;
+	/**
+	 * The amount of characters the tokens behind the range have been moved by
+	 */
+	protected final int movedBy;
+
+
+	public TokenRange(int start, int removedCount, int insertedCount) {
+		this(start, removedCount, insertedCount, null, 0);
+	}
+
+	/**
+	 * @param start
+	 *            The index of the first replaced token
+	 * @param removedCount
+	 *            The amount of tokens that have been removed
+	 * @param insertedCount
+	 *            The amount of tokens that have been inserted instead
+	 * @param removedTokens
+	 *            The removed tokens or <code>null</code> if they are unknown
+	 * @param movedBy
+	 *            The amount of characters the tokens behind the range have been
+	 *            moved by
+	 */
+	public TokenRange(int start, int removedCount, int insertedCount, List<SQFToken> removedTokens, int movedBy) {
+		assert (removedTokens == null || removedTokens.size() == removedCount);
+
+		this.start = start;
+		this.removedCount = removedCount;
+		this.insertedCount = insertedCount;
+		this.removedTokens = removedTokens;
+		this.movedBy = movedBy;
+	}
+
+	/**
+	 * Gets the index of the first replaced token
+	 */
+	public int start() {
+		return start;
+	}
+
+	/**
+	 * Gets the amount of tokens that have been removed
+	 */
+	public int removedCount() {
+		return removedCount;
+	}
+
+	/**
+	 * Gets the amount of tokens that have been inserted
+	 */
+	public int insertedCount() {
+		return insertedCount;
+	}
+
+	/**
+	 * Gets the tokens that have been removed. They still have the positions they
+	 * had in the old token sequence.
+	 * 
+	 * @return The tokens or <code>null</code> if they are unknown
+	 */
+	public List<SQFToken> removedTokens() {
+		return removedTokens;
+	}
+
+	/**
+	 * Gets the amount of characters the tokens behind this range have been moved
+	 * by (may be negative)
+	 */
+	public int movedBy() {
+		return movedBy;
+	}
+
+	/**
+	 * Gets the index (exclusive) up to which the tokens have been replaced in the
+	 * new token sequence
+	 */
+	public int newStop() {
+		return start + insertedCount;
+	}
+
+	/**
+	 * Gets the index (exclusive) up to which the tokens have been replaced in the
+	 * old token sequence
+	 */
+	public int oldStop() {
+		return start + removedCount;
+	}
+
+	@Override
+	public String toString() {
+		return "TokenRange: " + start + " - " + removedCount + " + " + insertedCount;
+	}
+}
@@ -0,0 +1,84 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * An {@linkplain ITokenSink} that doesn't keep any tokens but only counts them
+ * (and the characters they span) per token and operator type
+ * 
+ * @author Raven
+ *
+ */
+public class TokenStatisticsSink implements ITokenSink {
+
+	/**
+	 * The amount of tokens per {@linkplain ESQFTokentype} ordinal
+	 */
+	protected int[] typeCounts;
+	/**
+	 * The amount of characters per {@linkplain ESQFTokentype} ordinal
+	 */
+	protected long[] typeCharacters;
+	/**
+	 * The amount of tokens per {@linkplain ESQFOperatorType} ordinal
+	 */
+	protected int[] operatorTypeCounts;
+	/**
+	 * The total amount of tokens
+	 */
+	protected int total;
+
+
+	public TokenStatisticsSink() {
+		typeCounts = new int[ESQFTokentype.values().length];
+		typeCharacters = new long[typeCounts.length];
+		operatorTypeCounts = new int[ESQFOperatorType.values().length];
+	}
+
+	@Override
+	public void accept(ESQFTokentype type, int start, int end, int precedence, ESQFOperatorType operatorType,
+			int symbol) {
+		typeCounts[type.ordinal()]++;
+		typeCharacters[type.ordinal()] += end - start;
+		operatorTypeCounts[operatorType.ordinal()]++;
+		total++;
+	}
+
+	/**
+	 * Gets the amount of tokens of the given type
+	 */
+	public int count(ESQFTokentype type) {
+		return typeCounts[type.ordinal()];
+	}
+
+	/**
+	 * Gets the amount of tokens of the given operator type
+	 */
+	public int count(ESQFOperatorType operatorType) {
+		return operatorTypeCounts[operatorType.ordinal()];
+	}
+
+	/**
+	 * Gets the amount of characters spanned by the tokens of the given type
+	 */
+	public long characters(ESQFTokentype type) {
+		return typeCharacters[type.ordinal()];
+	}
+
+	/**
+	 * Gets the total amount of tokens
+	 */
+	public int total() {
+		return total;
+	}
+
+	/**
+	 * Resets all counters to zero
+	 */
+	public void reset() {
+		Arrays.fill(typeCounts, 0);
+		Arrays.fill(typeCharacters, 0);
+		Arrays.fill(operatorTypeCounts, 0);
+		total = 0;
+	}
+}
@@ -0,0 +1,325 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * A compact buffer for trivia tokens (whitespace and comments) that have been
+ * split off the significant token stream. Each trivia token remembers its
+ * anchor - the index of the significant token it precedes - so that the full
+ * token sequence can be recovered by formatters and editors.
+ *
+ * @author Raven
+ *
+ */
+public class TriviaBuffer implements ITokenSource<SQFToken> {
+
+	private static final ESQFTokentype[] TOKEN_TYPES = ESQFTokentype.values();
+
+	/**
+	 * The start offset of each trivia token
+	 */
+	protected int[] starts;
+	/**
+	 * The end offset of each trivia token
+	 */
+	protected int[] ends;
+	/**
+	 * The index of the significant token following each trivia token
+	 */
+	protected int[] anchors;
+	/**
+	 * The ordinal of the {@linkplain ESQFTokentype} of each trivia token
+	 */
+	protected byte[] types;
+	/**
+	 * The amount of trivia tokens in this buffer
+	 */
+	protected int size;
+	/**
+	 * The character buffer the trivia tokens refer to
+	 */
+	protected ICharacterBuffer characterSource;
+	/**
+	 * The index of the first trivia token that still has to be moved by
+	 * {@link #pendingOffset} and {@link #pendingAnchor}
+	 */
+	protected int shiftStart;
+	/**
+	 * The amount of characters the trivia from {@link #shiftStart} on still has
+	 * to be moved by
+	 */
+	protected int pendingOffset;
+	/**
+	 * The value that still has to be added to the anchors of the trivia from
+	 * {@link #shiftStart} on
+	 */
+	protected int pendingAnchor;
+
+
+	public TriviaBuffer() {
+		this(32);
+	}
+
+	public TriviaBuffer(int initialCapacity) {
+		initialCapacity = Math.max(initialCapacity, 1);
+
+		starts = new int[initialCapacity];
+		ends = new int[initialCapacity];
+		anchors = new int[initialCapacity];
+		types = new byte[initialCapacity];
+	}
+
+	/**
+	 * Adds a trivia token to the end of this buffer
+	 *
+	 * @param type
+	 *            The token type
+	 * @param start
+	 *            The start index of the token (inclusive)
+	 * @param end
+	 *            The end index of the token (exclusive)
+	 * @param anchor
+	 *            The index of the significant token that follows the given trivia
+	 *            (that is the amount of significant tokens preceding it)
+	 */
+	public void add(ESQFTokentype type, int start, int end, int anchor) {
+		applyShift(size);
+
+		if (size == starts.length) {
+			int capacity = size * 2;
+
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			anchors = Arrays.copyOf(anchors, capacity);
+			types = Arrays.copyOf(types, capacity);
+		}
+
+		starts[size] = start;
+		ends[size] = end;
+		anchors[size] = anchor;
+		types[size] = (byte) type.ordinal();
+
+		size++;
+	}
+
+	/**
+	 * Replaces the trivia in the given range by the trivia of the given buffer.
+	 * The trivia following the range is moved by the given amounts. It is only
+	 * moved lazily: the accessors add the pending amounts on the fly, so that only
+	 * the trivia between this and the previous replacement has to be touched.
+	 *
+	 * @param from
+	 *            The index of the first trivia token to replace (inclusive)
+	 * @param to
+	 *            The index of the last trivia token to replace (exclusive)
+	 * @param replacement
+	 *            The trivia to insert instead
+	 * @param anchorBase
+	 *            The value that is added to the anchors of the inserted trivia
+	 * @param offsetDelta
+	 *            The amount of characters the trivia following the range is moved
+	 *            by
+	 * @param anchorDelta
+	 *            The value that is added to the anchors of the trivia following
+	 *            the range
+	 */
+	public void replace(int from, int to, TriviaBuffer replacement, int anchorBase, int offsetDelta,
+			int anchorDelta) {
+		replacement.applyShift(replacement.size);
+		int newSize = size - (to - from) + replacement.size;
+
+		if (newSize > starts.length) {
+			int capacity = Math.max(newSize, size * 2);
+
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			anchors = Arrays.copyOf(anchors, capacity);
+			types = Arrays.copyOf(types, capacity);
+		}
+
+		if (pendingOffset != 0 || pendingAnchor != 0) {
+			// the replaced trivia doesn't have to be moved anymore
+			if (shiftStart < from) {
+				move(shiftStart, from, pendingOffset, pendingAnchor);
+			}
+			shiftStart = Math.max(shiftStart, to);
+		} else {
+			shiftStart = to;
+		}
+
+		// move the tail
+		int tail = size - to;
+		int target = from + replacement.size;
+		System.arraycopy(starts, to, starts, target, tail);
+		System.arraycopy(ends, to, ends, target, tail);
+		System.arraycopy(anchors, to, anchors, target, tail);
+		System.arraycopy(types, to, types, target, tail);
+
+		// the trivia in front of the previous shift start hasn't been moved before
+		shiftStart += target - to;
+		move(target, shiftStart, offsetDelta, anchorDelta);
+		pendingOffset += offsetDelta;
+		pendingAnchor += anchorDelta;
+
+		System.arraycopy(replacement.starts, 0, starts, from, replacement.size);
+		System.arraycopy(replacement.ends, 0, ends, from, replacement.size);
+		System.arraycopy(replacement.types, 0, types, from, replacement.size);
+		for (int i = 0; i < replacement.size; i++) {
+			anchors[from + i] = replacement.anchors[i] + anchorBase;
+		}
+
+		size = newSize;
+	}
+
+	/**
+	 * Moves the trivia up to the given index by the pending amounts
+	 *
+	 * @param end
+	 *            The index of the first trivia token that may remain unmoved
+	 */
+	private void applyShift(int end) {
+		if ((pendingOffset == 0 && pendingAnchor == 0) || end <= shiftStart) {
+			return;
+		}
+
+		move(shiftStart, end, pendingOffset, pendingAnchor);
+		shiftStart = end;
+
+		if (shiftStart >= size) {
+			pendingOffset = 0;
+			pendingAnchor = 0;
+		}
+	}
+
+	private void move(int from, int to, int offsetDelta, int anchorDelta) {
+		for (int i = from; i < to; i++) {
+			starts[i] += offsetDelta;
+			ends[i] += offsetDelta;
+			anchors[i] += anchorDelta;
+		}
+	}
+
+	/**
+	 * Removes all trivia from this buffer (the allocated capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+		pendingOffset = 0;
+		pendingAnchor = 0;
+	}
+
+	/**
+	 * Removes all trivia from the given index on
+	 *
+	 * @param size
+	 *            The amount of trivia tokens to keep
+	 */
+	public void truncate(int size) {
+		assert (size >= 0 && size <= this.size);
+
+		this.size = size;
+
+		if (shiftStart >= size) {
+			pendingOffset = 0;
+			pendingAnchor = 0;
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Materializes the trivia token at the given index
+	 */
+	@Override
+	public SQFToken get(int index) {
+		checkIndex(index);
+
+		return new SQFToken(type(index), start(index), stop(index), 0, ESQFOperatorType.OTHER, characterSource);
+	}
+
+	/**
+	 * Gets the type of the trivia token at the given index
+	 */
+	public ESQFTokentype type(int index) {
+		checkIndex(index);
+
+		return TOKEN_TYPES[types[index]];
+	}
+
+	/**
+	 * Gets the start offset of the trivia token at the given index
+	 */
+	public int start(int index) {
+		checkIndex(index);
+
+		return starts[index] + ((index >= shiftStart) ? pendingOffset : 0);
+	}
+
+	/**
+	 * Gets the end offset of the trivia token at the given index
+	 */
+	public int stop(int index) {
+		checkIndex(index);
+
+		return ends[index] + ((index >= shiftStart) ? pendingOffset : 0);
+	}
+
+	/**
+	 * Gets the index of the significant token following the trivia token at the
+	 * given index
+	 */
+	public int anchor(int index) {
+		checkIndex(index);
+
+		return anchors[index] + ((index >= shiftStart) ? pendingAnchor : 0);
+	}
+
+	/**
+	 * Gets the index of the first trivia token that precedes the significant token
+	 * with the given index. The trivia preceding that token is located in the
+	 * range [<code>firstLeading(tokenIndex)</code>,
+	 * <code>firstLeading(tokenIndex + 1)</code>).
+	 *
+	 * @param tokenIndex
+	 *            The index of the significant token
+	 * @return The index of the first leading trivia token. If there is none this
+	 *         is the index of the first trivia token following the given token
+	 *         (or {@link #size()})
+	 */
+	public int firstLeading(int tokenIndex) {
+		// binary search for the first anchor >= tokenIndex (anchors are ascending)
+		int low = 0;
+		int high = size;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (anchors[mid] + ((mid >= shiftStart) ? pendingAnchor : 0) < tokenIndex) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Sets the character buffer the trivia tokens refer to
+	 *
+	 * @param characterSource
+	 *            The respective character buffer
+	 */
+	public void setCharacterSource(ICharacterBuffer characterSource) {
+		this.characterSource = characterSource;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
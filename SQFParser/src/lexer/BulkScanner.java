@@ -0,0 +1,154 @@
+package lexer;
+
+import java.util.List;
+
+/**
+ * Scanning kernels that skip runs of characters directly on the array backing
+ * a {@linkplain dataStructures.CharArrayBuffer} instead of reading them one by
+ * one through an {@linkplain dataStructures.ICharacterInputStream}. Each kernel
+ * only skips characters that the respective scalar loop of the
+ * {@linkplain SQFLexer} would consume without any further effect (apart from
+ * recording newlines) so that the result is exactly the same.
+ * 
+ * @author Raven
+ *
+ */
+final class BulkScanner {
+
+	/**
+	 * Whether the ASCII character with the respective code is whitespace according
+	 * to {@link Character#isWhitespace(int)}
+	 */
+	private static final boolean[] ASCII_WHITESPACE = new boolean[128];
+
+	static {
+		for (int i = 0; i < ASCII_WHITESPACE.length; i++) {
+			ASCII_WHITESPACE[i] = Character.isWhitespace(i);
+		}
+	}
+
+
+	private BulkScanner() {
+	}
+
+	/**
+	 * Skips all whitespace starting at the given index and records the start of
+	 * every new line
+	 * 
+	 * @param chars
+	 *            The characters to scan
+	 * @param from
+	 *            The index to start at
+	 * @param end
+	 *            The index at which to stop scanning
+	 * @param lineStarts
+	 *            The list the line starts are added to
+	 * @return The index of the first character that is not whitespace (or end)
+	 */
+	static int skipWhitespace(char[] chars, int from, int end, List<Integer> lineStarts) {
+		int i = from;
+
+		for (; i < end; i++) {
+			char c = chars[i];
+
+			if (c < 128) {
+				if (!ASCII_WHITESPACE[c]) {
+					break;
+				}
+				if (c == '\n') {
+					lineStarts.add(i + 1);
+				}
+			} else if (!Character.isWhitespace(c)) {
+				break;
+			}
+		}
+
+		return i;
+	}
+
+	/**
+	 * Skips all characters up to the given one and records the start of every new
+	 * line
+	 * 
+	 * @param chars
+	 *            The characters to scan
+	 * @param from
+	 *            The index to start at
+	 * @param end
+	 *            The index at which to stop scanning
+	 * @param stop
+	 *            The character to stop at
+	 * @param lineStarts
+	 *            The list the line starts are added to
+	 * @return The index of the first occurrence of the given character (or end)
+	 */
+	static int skipUntil(char[] chars, int from, int end, char stop, List<Integer> lineStarts) {
+		int i = from;
+
+		for (; i < end; i++) {
+			char c = chars[i];
+
+			if (c == stop) {
+				break;
+			}
+			if (c == '\n') {
+				lineStarts.add(i + 1);
+			}
+		}
+
+		return i;
+	}
+
+	/**
+	 * Finds the next occurrence of the given character
+	 * 
+	 * @param chars
+	 *            The characters to scan
+	 * @param from
+	 *            The index to start at
+	 * @param end
+	 *            The index at which to stop scanning
+	 * @param stop
+	 *            The character to search for
+	 * @return The index of the first occurrence of the given character (or end)
+	 */
+	static int indexOf(char[] chars, int from, int end, char stop) {
+		int i = from;
+
+		while (i < end && chars[i] != stop) {
+			i++;
+		}
+
+		return i;
+	}
+
+	/**
+	 * Finds the next occurrence of either of the given characters
+	 * 
+	 * @param chars
+	 *            The characters to scan
+	 * @param from
+	 *            The index to start at
+	 * @param end
+	 *            The index at which to stop scanning
+	 * @param first
+	 *            The first character to search for
+	 * @param second
+	 *            The second character to search for
+	 * @return The index of the first occurrence of one of the given characters
+	 *         (or end)
+	 */
+	static int indexOf(char[] chars, int from, int end, char first, char second) {
+		int i = from;
+
+		for (; i < end; i++) {
+			char c = chars[i];
+
+			if (c == first || c == second) {
+				break;
+			}
+		}
+
+		return i;
+	}
+}
@@ -0,0 +1,112 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import dataStructures.ICharacterInputStream;
+import dataStructures.ITokenSource;
+import dataStructures.SQFToken;
+
+/**
+ * A token source that lexes its input on demand. Requesting a token lexes the
+ * input up to (and including) that token. The tokens that have been lexed so
+ * far are available via the underlying {@linkplain SQFLexer}.<br>
+ * As {@link #size()} can't be known before the complete input has been lexed
+ * it forces the rest of the input to be lexed. Consumers that only walk the
+ * tokens in order should use {@link #has(int)} instead.<br>
+ * <br>
+ * Instances are obtained via {@link SQFLexer#lexLazily(ICharacterInputStream)}.
+ * Any {@linkplain IOException} thrown by the input is re-thrown as an
+ * {@linkplain UncheckedIOException}.
+ * 
+ * @author Raven
+ *
+ */
+public class LazyTokenSource implements ITokenSource<SQFToken> {
+
+	/**
+	 * The lexer used to produce the tokens
+	 */
+	protected SQFLexer lexer;
+	/**
+	 * The input that is being lexed
+	 */
+	protected ICharacterInputStream input;
+	/**
+	 * Whether the input has been lexed completely
+	 */
+	protected boolean complete;
+
+
+	LazyTokenSource(SQFLexer lexer, ICharacterInputStream input) {
+		this.lexer = lexer;
+		this.input = input;
+	}
+
+	@Override
+	public SQFToken get(int index) {
+		if (!has(index)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + lexer.size());
+		}
+
+		return lexer.get(index);
+	}
+
+	/**
+	 * Gets the amount of tokens in the input. This forces the complete input to be
+	 * lexed.
+	 */
+	@Override
+	public int size() {
+		lexUntil(Integer.MAX_VALUE);
+
+		return lexer.size();
+	}
+
+	@Override
+	public boolean has(int index) {
+		if (index < 0) {
+			return false;
+		}
+
+		lexUntil(index);
+
+		return index < lexer.size();
+	}
+
+	/**
+	 * Gets the amount of tokens that have been lexed so far
+	 */
+	public int lexedSize() {
+		return lexer.size();
+	}
+
+	/**
+	 * Checks whether the input has been lexed completely
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Lexes the input until the token with the given index exists or the end of
+	 * the input has been reached
+	 * 
+	 * @param index
+	 *            The index of the token to lex
+	 */
+	protected void lexUntil(int index) {
+		try {
+			while (!complete && lexer.size() <= index) {
+				if (input.hasNext()) {
+					lexer.lexNext(input);
+				} else {
+					complete = true;
+					lexer.textLength = input.getOffset();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
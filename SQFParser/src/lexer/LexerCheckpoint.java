@@ -0,0 +1,146 @@
+package lexer;
+
+import java.io.Serializable;
+
+import dataStructures.ESQFTokentype;
+import lexer.SQFLexer.ETriviaMode;
+
+/**
+ * A snapshot of the state of an {@linkplain SQFLexer} at a token boundary from
+ * which lexing can be resumed via
+ * {@link SQFLexer#lexFrom(LexerCheckpoint, dataStructures.ICharacterInputStream)}.
+ * Checkpoints are only recorded between two calls of
+ * {@link SQFLexer#lexNext(dataStructures.ICharacterInputStream)} - never inside
+ * a String, a comment or a preprocessor statement (including a whole
+ * <code>#ifdef ... #endif</code> region) as these are always lexed as a whole.
+ * Therefore the only state that has to be remembered is where the lexer has
+ * been in the input and in its outputs.<br>
+ * Checkpoints are immutable and serializable so that they can be stored
+ * together with a file in order to start lexing at an arbitrary position (e.g.
+ * the visible part of an editor) later on.
+ *
+ * @author Raven
+ *
+ */
+public final class LexerCheckpoint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The character offset at which lexing is resumed
+	 */
+	private final int offset;
+	/**
+	 * The amount of tokens that have been emitted before the checkpoint
+	 */
+	private final int tokenIndex;
+	/**
+	 * The amount of separated trivia tokens before the checkpoint
+	 */
+	private final int triviaIndex;
+	/**
+	 * The amount of line starts in front of (or at) the checkpoint
+	 */
+	private final int lineIndex;
+	/**
+	 * The offset of the line the checkpoint is in
+	 */
+	private final int lineStart;
+	/**
+	 * The indices of the brackets that are open at the checkpoint (outermost
+	 * first)
+	 */
+	private final int[] openBrackets;
+	/**
+	 * The types of the brackets in {@link #openBrackets}
+	 */
+	private final ESQFTokentype[] openTypes;
+	/**
+	 * The trivia mode the checkpoint has been recorded in (it determines the token
+	 * indices)
+	 */
+	private final ETriviaMode triviaMode;
+
+
+	LexerCheckpoint(int offset, int tokenIndex, int triviaIndex, int lineIndex, int lineStart, int[] openBrackets,
+			ESQFTokentype[] openTypes, ETriviaMode triviaMode) {
+		this.offset = offset;
+		this.tokenIndex = tokenIndex;
+		this.triviaIndex = triviaIndex;
+		this.lineIndex = lineIndex;
+		this.lineStart = lineStart;
+		this.openBrackets = openBrackets;
+		this.openTypes = openTypes;
+		this.triviaMode = triviaMode;
+	}
+
+	/**
+	 * Gets the character offset at which lexing is resumed
+	 */
+	public int offset() {
+		return offset;
+	}
+
+	/**
+	 * Gets the index of the first token that is lexed after the checkpoint
+	 */
+	public int tokenIndex() {
+		return tokenIndex;
+	}
+
+	/**
+	 * Gets the index of the first separated trivia token that is lexed after the
+	 * checkpoint
+	 */
+	public int triviaIndex() {
+		return triviaIndex;
+	}
+
+	/**
+	 * Gets the amount of lines that have been started in front of (or at) the
+	 * checkpoint
+	 */
+	public int lineIndex() {
+		return lineIndex;
+	}
+
+	/**
+	 * Gets the offset of the line the checkpoint is in
+	 */
+	public int lineStart() {
+		return lineStart;
+	}
+
+	/**
+	 * Gets the amount of brackets that are open at the checkpoint
+	 */
+	public int bracketDepth() {
+		return openBrackets.length;
+	}
+
+	/**
+	 * Gets the indices of the brackets that are open at the checkpoint
+	 */
+	int[] openBrackets() {
+		return openBrackets;
+	}
+
+	/**
+	 * Gets the types of the brackets that are open at the checkpoint
+	 */
+	ESQFTokentype[] openTypes() {
+		return openTypes;
+	}
+
+	/**
+	 * Gets the trivia mode the checkpoint has been recorded in
+	 */
+	public ETriviaMode triviaMode() {
+		return triviaMode;
+	}
+
+	@Override
+	public String toString() {
+		return "LexerCheckpoint[offset=" + offset + ", token=" + tokenIndex + ", line=" + lineIndex + "]";
+	}
+}
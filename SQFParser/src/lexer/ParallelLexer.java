@@ -0,0 +1,322 @@
+package lexer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import dataStructures.AbstractSQFTokenFactory;
+import dataStructures.CharArrayBuffer;
+import dataStructures.CharArrayInputStream;
+import dataStructures.DiagnosticCollector;
+import dataStructures.ITokenFactory;
+import dataStructures.SQFToken;
+import dataStructures.StringLiteralTable;
+import dataStructures.SymbolTable;
+import dataStructures.TriviaBuffer;
+
+/**
+ * Lexes a single input in chunks on a {@linkplain ForkJoinPool} and stitches the
+ * results into an {@linkplain SQFLexer}. The chunk borders are chosen
+ * speculatively at line starts and are verified while stitching: a chunk is only
+ * accepted if the previous one ended exactly at its start. Otherwise it is
+ * re-lexed sequentially from the actual end of the previous chunk.
+ *
+ * @author Raven
+ *
+ */
+class ParallelLexer {
+
+	/**
+	 * The default minimum amount of characters per chunk
+	 */
+	static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * The lexer the result is stitched into
+	 */
+	protected SQFLexer target;
+	/**
+	 * The pool to lex the chunks on
+	 */
+	protected ForkJoinPool pool;
+	/**
+	 * The supplier for the per-chunk token factories
+	 */
+	protected Supplier<? extends ITokenFactory<SQFToken>> factories;
+	/**
+	 * The minimum amount of characters per chunk
+	 */
+	protected int chunkSize;
+
+
+	ParallelLexer(SQFLexer target, ForkJoinPool pool, Supplier<? extends ITokenFactory<SQFToken>> factories,
+			int chunkSize) {
+		assert (chunkSize > 0);
+
+		this.target = target;
+		this.pool = pool;
+		this.factories = factories;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Lexes the given buffer into the target lexer. The target lexer is expected
+	 * to have been reset beforehand.
+	 *
+	 * @param buffer
+	 *            The characters to lex
+	 * @throws IOException
+	 */
+	void lex(CharArrayBuffer buffer) throws IOException {
+		target.factory.setBuffer(buffer);
+		target.trivia.setCharacterSource(buffer);
+
+		int[] splits = findSplitPoints(buffer);
+		List<Chunk> chunks = new ArrayList<>(splits.length);
+
+		for (int i = 0; i < splits.length; i++) {
+			Chunk current = new Chunk(buffer, splits[i], (i + 1 < splits.length) ? splits[i + 1] : Integer.MAX_VALUE);
+			chunks.add(current);
+
+			if (splits.length > 1) {
+				pool.execute(current);
+			}
+		}
+
+		int position = 0;
+		boolean partial = false;
+		for (Chunk current : chunks) {
+			if (splits.length > 1) {
+				current.join();
+			} else {
+				current.compute();
+			}
+
+			if (current.start != position) {
+				// mis-speculated split: the previous chunk has consumed characters of this one
+				if (position >= current.bound) {
+					// the previous chunk has swallowed this chunk entirely
+					continue;
+				}
+
+				current = new Chunk(buffer, position, current.bound);
+				current.compute();
+			}
+
+			if (current.failure != null) {
+				throw current.failure;
+			}
+
+			append(current);
+			position = current.end;
+			partial |= current.lexer.partial;
+		}
+
+		// a used up budget only stops the reporting as all chunks have been lexed
+		target.partial = partial;
+	}
+
+	/**
+	 * Appends the result of the given chunk to the target lexer
+	 *
+	 * @param chunk
+	 *            The chunk to append
+	 */
+	protected void append(Chunk chunk) {
+		SQFLexer source = chunk.lexer;
+		int tokenBase = target.tokens.size();
+
+		SymbolTable targetSymbols = (target.factory instanceof AbstractSQFTokenFactory)
+				? ((AbstractSQFTokenFactory) target.factory).getSymbolTable()
+				: null;
+		SymbolTable chunkSymbols = (source.factory instanceof AbstractSQFTokenFactory)
+				? ((AbstractSQFTokenFactory) source.factory).getSymbolTable()
+				: null;
+		int[] symbolMap = null;
+
+		for (int i = 0; i < source.tokens.size(); i++) {
+			SQFToken current = source.tokens.get(i);
+
+			if (current.symbolId() != SymbolTable.NO_SYMBOL && targetSymbols != null && chunkSymbols != null) {
+				// translate the symbol ID into the symbol table of the target
+				if (symbolMap == null) {
+					symbolMap = new int[chunkSymbols.size()];
+					Arrays.fill(symbolMap, Integer.MIN_VALUE);
+				}
+
+				int symbol = symbolMap[current.symbolId()];
+				if (symbol == Integer.MIN_VALUE) {
+					symbol = targetSymbols.intern(chunkSymbols.getSymbol(current.symbolId()));
+					symbolMap[current.symbolId()] = symbol;
+				}
+
+				if (symbol != current.symbolId()) {
+					current = new SQFToken(current.type(), current.start(), current.stop(), current.precendence(),
+							current.operatorType(), symbol, chunk.buffer);
+				}
+			}
+
+			target.tokens.add(current);
+			// the bracket pairs may span chunks and are therefore determined here
+			target.bracketPairs.add(current.type());
+			target.significant.add(current.type());
+		}
+
+		for (int i = 0; i < source.numberValues.size(); i++) {
+			target.numberValues.add(source.numberValues.get(i));
+		}
+
+		// the chunks use their own literal tables
+		for (int i = 0; i < source.literalIds.size(); i++) {
+			int literal = source.literalIds.get(i);
+
+			if (literal != StringLiteralTable.NO_LITERAL) {
+				SQFToken current = source.tokens.get(i);
+				literal = target.stringLiterals.intern(current.type(), chunk.buffer, current.start(), current.stop());
+			}
+
+			target.literalIds.add(literal);
+		}
+
+		// the first line start (0) is added by every lexer
+		target.lineStarts.addAll(source.lineStarts.subList(1, source.lineStarts.size()));
+
+		TriviaBuffer trivia = source.trivia;
+		for (int i = 0; i < trivia.size(); i++) {
+			target.trivia.add(trivia.type(i), trivia.start(i), trivia.stop(i), trivia.anchor(i) + tokenBase);
+		}
+
+		for (int i = 0; i < chunk.diagnostics.size(); i++) {
+			target.report(chunk.diagnostics.code(i), chunk.diagnostics.start(i), chunk.diagnostics.end(i),
+					chunk.diagnostics.argument(i));
+		}
+	}
+
+	/**
+	 * Finds the offsets at which the input should be split into chunks. A split
+	 * point is a line start that starts with a non-whitespace character and
+	 * follows a line that does not end in a line continuation. Whether a split
+	 * point is an actual token boundary is not known until the preceding chunk
+	 * has been lexed.
+	 *
+	 * @param buffer
+	 *            The input to split
+	 * @return The (ascending) split points. The first one is always 0
+	 */
+	protected int[] findSplitPoints(CharArrayBuffer buffer) {
+		List<Integer> splits = new ArrayList<>();
+		splits.add(0);
+
+		int length = buffer.length();
+		int position = chunkSize;
+
+		while (position < length) {
+			int split = -1;
+
+			for (int i = Math.max(position, 1); i < length; i++) {
+				if (buffer.getChar(i - 1) == '\n' && !Character.isWhitespace(buffer.getChar(i))
+						&& !isContinued(buffer, i - 1)) {
+					split = i;
+					break;
+				}
+			}
+
+			if (split < 0) {
+				break;
+			}
+
+			splits.add(split);
+			position = split + chunkSize;
+		}
+
+		int[] result = new int[splits.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = splits.get(i);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Checks whether the line ending with the newline at the given offset is
+	 * continued by a trailing backslash
+	 */
+	private static boolean isContinued(CharArrayBuffer buffer, int newline) {
+		int i = newline - 1;
+
+		while (i >= 0 && buffer.getChar(i) == '\r') {
+			i--;
+		}
+
+		return i >= 0 && buffer.getChar(i) == '\\';
+	}
+
+	/**
+	 * A task lexing a single chunk using its own lexer and token factory
+	 */
+	protected class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The buffer containing the chunk
+		 */
+		protected final CharArrayBuffer buffer;
+		/**
+		 * The offset the chunk starts at
+		 */
+		protected final int start;
+		/**
+		 * The offset after which no new token is started in this chunk
+		 */
+		protected final int bound;
+		/**
+		 * The offset the chunk actually ended at (after the last token)
+		 */
+		protected int end;
+		/**
+		 * The lexer used for this chunk
+		 */
+		protected SQFLexer lexer;
+		/**
+		 * The diagnostics reported while lexing this chunk
+		 */
+		protected final DiagnosticCollector diagnostics;
+		/**
+		 * The exception that occurred while lexing this chunk (if any)
+		 */
+		protected IOException failure;
+
+
+		protected Chunk(CharArrayBuffer buffer, int start, int bound) {
+			this.buffer = buffer;
+			this.start = start;
+			this.bound = bound;
+			diagnostics = new DiagnosticCollector(4);
+		}
+
+		@Override
+		protected void compute() {
+			lexer = new SQFLexer();
+			// diagnostics are reported in order once the chunk has been accepted
+			lexer.setDiagnosticListener(diagnostics);
+			lexer.setMacros(target.macroSet);
+			lexer.setTriviaMode(target.triviaMode);
+			lexer.setBulkScanning(target.bulkScanning);
+			lexer.setTokenFactory(factories.get());
+			lexer.reset(false);
+
+			CharArrayInputStream input = new CharArrayInputStream(buffer, start);
+			try {
+				lexer.doLex(input, bound);
+			} catch (IOException e) {
+				failure = e;
+			}
+
+			end = input.getOffset();
+		}
+	}
+}
@@ -2,27 +2,80 @@ package lexer;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import dataStructures.AbstractSQFTokenFactory;
+import dataStructures.BracketPairBuffer;
+import dataStructures.CancellationToken;
+import dataStructures.CharArrayBuffer;
+import dataStructures.CharArrayInputStream;
+import dataStructures.CharacterBuffer;
 import dataStructures.CharacterInputStream;
 import dataStructures.ConsoleErrorListener;
+import dataStructures.EDiagnosticCode;
 import dataStructures.ESQFTokentype;
 import dataStructures.ICharacterBuffer;
 import dataStructures.ICharacterInputStream;
+import dataStructures.IDiagnosticListener;
 import dataStructures.IErrorListener;
 import dataStructures.ITokenFactory;
+import dataStructures.ITokenSink;
 import dataStructures.ITokenSource;
+import dataStructures.IntArrayBuffer;
+import dataStructures.NumberValueBuffer;
+import dataStructures.PackedTokenBuffer;
 import dataStructures.SQFToken;
+import dataStructures.SignificantTokenIndex;
+import dataStructures.StringLiteralTable;
 import dataStructures.TokenBuffer;
+import dataStructures.TokenRange;
+import dataStructures.TriviaBuffer;
 
 public class SQFLexer implements ITokenSource<SQFToken> {
+
+	/**
+	 * An enum describing how trivia (whitespace and comments) is handled by the
+	 * lexer
+	 */
+	public enum ETriviaMode {
+		/**
+		 * Trivia is emitted as normal tokens (default)
+		 */
+		KEEP,
+		/**
+		 * Trivia is put into a separate {@linkplain TriviaBuffer} that remembers the
+		 * position of each trivia token relative to the significant tokens
+		 */
+		SEPARATE,
+		/**
+		 * Trivia is discarded
+		 */
+		DROP;
+	}
+
 	/**
 	 * The default error listener used if no other is provided
 	 */
 	protected static final IErrorListener defaultListener = new ConsoleErrorListener();
 
+	/**
+	 * The size the lexer's own String literal table may always grow to before it
+	 * gets compacted
+	 */
+	protected static final int MIN_LITERAL_LIMIT = 256;
+
+	/**
+	 * The powers of ten that are exactly representable as a double
+	 */
+	private static final double[] POWERS_OF_TEN = new double[] { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+			1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
 	/**
 	 * A list containing the index of each newline character in the stream
 	 */
@@ -33,11 +86,30 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 	 * consists of a type, start and end attribute
 	 */
 	protected TokenBuffer<SQFToken> tokens;
+	/**
+	 * The sink the tokens are emitted to directly. If this is <code>null</code>
+	 * the tokens are collected in {@link #tokens}
+	 */
+	protected ITokenSink sink;
+	/**
+	 * The amount of tokens that have been emitted to {@link #sink}
+	 */
+	protected int sinkSize;
+	/**
+	 * Whether the per-token side information is recorded (see
+	 * {@link ITokenSink#requiresSideInformation()})
+	 */
+	protected boolean sideInformation = true;
 
 	/**
 	 * The error listener to use
 	 */
 	protected IErrorListener errorListener;
+	/**
+	 * The listener structured diagnostics are reported to. If this is
+	 * <code>null</code> they are reported to the {@link #errorListener}
+	 */
+	protected IDiagnosticListener diagnosticListener;
 	/**
 	 * The token factory to use when creating tokens
 	 */
@@ -48,6 +120,116 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 	 */
 	protected Set<String> macroSet;
 
+	/**
+	 * The way trivia is handled
+	 */
+	protected ETriviaMode triviaMode;
+	/**
+	 * The buffer holding the trivia if {@link #triviaMode} is
+	 * {@link ETriviaMode#SEPARATE}
+	 */
+	protected TriviaBuffer trivia;
+	/**
+	 * The values of the number literals indexed by the index of the respective
+	 * token
+	 */
+	protected NumberValueBuffer numberValues;
+	/**
+	 * The table the String literals are interned into
+	 */
+	protected StringLiteralTable stringLiterals;
+	/**
+	 * The ID of the String literal of each token indexed by the index of the
+	 * respective token ({@link StringLiteralTable#NO_LITERAL} for other tokens)
+	 */
+	protected IntArrayBuffer literalIds;
+	/**
+	 * Whether {@link #stringLiterals} has been created by this lexer (and is
+	 * therefore only used by it) rather than been set from outside
+	 */
+	protected boolean ownsStringLiterals;
+	/**
+	 * The size {@link #stringLiterals} may grow to before the literals that are no
+	 * longer referenced by any token are removed from it (only if it is owned by
+	 * this lexer)
+	 */
+	protected int literalLimit;
+	/**
+	 * The matching bracket pairs indexed by the index of the respective token
+	 */
+	protected BracketPairBuffer bracketPairs;
+	/**
+	 * The index of the significant tokens among the emitted ones
+	 */
+	protected SignificantTokenIndex significant;
+
+	/**
+	 * Whether runs of whitespace, comments and Strings should be scanned directly
+	 * on the backing array if the input is a {@linkplain CharArrayInputStream}
+	 * reading from a {@linkplain CharArrayBuffer}
+	 */
+	protected boolean bulkScanning;
+
+	/**
+	 * The token that is checked while lexing in order to stop once it has been
+	 * cancelled. This is only set while lexing cancellably
+	 */
+	protected CancellationToken cancellation;
+	/**
+	 * The amount of diagnostics after which lexing stops or 0 if there is no
+	 * limit
+	 */
+	protected int errorBudget;
+	/**
+	 * The amount of diagnostics reported since the last reset
+	 */
+	protected int reportedCount;
+	/**
+	 * Whether lexing has been stopped because the {@link #errorBudget} has been
+	 * used up
+	 */
+	protected boolean partial;
+
+	/**
+	 * The character buffer containing the text that has been lexed last
+	 */
+	protected ICharacterBuffer text;
+	/**
+	 * The length of the text that has been lexed last
+	 */
+	protected int textLength;
+
+	/**
+	 * The minimum amount of tokens (including trivia) between two checkpoints. If
+	 * this is 0 no checkpoints are recorded
+	 */
+	protected int checkpointInterval;
+	/**
+	 * Whether a checkpoint should be recorded at the first token boundary of every
+	 * line (if checkpoints are enabled)
+	 */
+	protected boolean lineCheckpoints;
+	/**
+	 * The checkpoints recorded during the last lexing (in ascending order)
+	 */
+	protected List<LexerCheckpoint> checkpoints;
+	/**
+	 * The index the first token in {@link #tokens} has in the whole input. This
+	 * is only non-zero after resuming from a checkpoint that this lexer has not
+	 * lexed up to itself
+	 */
+	protected int tokenBase;
+	/**
+	 * The index the first separated trivia token has in the whole input (see
+	 * {@link #tokenBase})
+	 */
+	protected int triviaBase;
+	/**
+	 * The index the first entry in {@link #lineStarts} has in the whole input
+	 * (see {@link #tokenBase})
+	 */
+	protected int lineBase;
+
 
 
 	public SQFLexer(IErrorListener listener, HashSet<String> macros) {
@@ -55,6 +237,17 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 		setErrorListener(listener);
 
 		lineStarts = new ArrayList<>();
+		triviaMode = ETriviaMode.KEEP;
+		bulkScanning = true;
+		trivia = new TriviaBuffer();
+		numberValues = new NumberValueBuffer();
+		stringLiterals = new StringLiteralTable();
+		ownsStringLiterals = true;
+		literalLimit = MIN_LITERAL_LIMIT;
+		literalIds = new IntArrayBuffer();
+		bracketPairs = new BracketPairBuffer();
+		significant = new SignificantTokenIndex();
+		checkpoints = new ArrayList<>();
 	}
 
 	public SQFLexer() {
@@ -65,48 +258,679 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 		this(listener, new HashSet<String>());
 	}
 
-	public SQFLexer(HashSet<String> macros) {
-		this(defaultListener, macros);
+	public SQFLexer(HashSet<String> macros) {
+		this(defaultListener, macros);
+	}
+
+	/**
+	 * Lexes the characters provided by the given input. Before it starts lexing
+	 * calling this method triggers a reset of this lexer without clearing the set
+	 * of known macros
+	 * 
+	 * @param input
+	 *            The character source
+	 * @throws IOException
+	 */
+	public void lex(ICharacterInputStream input) throws IOException {
+		reset(false);
+
+		doLex(input);
+	}
+
+	/**
+	 * Lexes the characters provided by the given input until the given token gets
+	 * cancelled. It is checked every {@link CancellationToken#CHECK_INTERVAL}
+	 * tokens. If lexing has been cancelled, it can be continued via
+	 * {@link #resume(ICharacterInputStream, CancellationToken)} (e.g. with a new
+	 * time budget). Before it starts lexing calling this method triggers a reset
+	 * of this lexer without clearing the set of known macros.
+	 * 
+	 * @param input
+	 *            The character source
+	 * @param cancellation
+	 *            The token to check
+	 * @return Whether lexing has finished (the input has been lexed completely
+	 *         or the error budget has been used up - see {@link #isPartial()})
+	 * @throws IOException
+	 */
+	public boolean lex(ICharacterInputStream input, CancellationToken cancellation) throws IOException {
+		reset(false);
+
+		return doLex(input, cancellation);
+	}
+
+	/**
+	 * Continues lexing the given input after lexing it has been cancelled or
+	 * stopped by the error budget. See
+	 * {@link #lex(ICharacterInputStream, CancellationToken)}. The error budget
+	 * starts over for the resumed part.
+	 * 
+	 * @param input
+	 *            The character source lexing has been cancelled on (at the
+	 *            position at which it has been cancelled)
+	 * @param cancellation
+	 *            The token to check
+	 * @return Whether lexing has finished (the input has been lexed completely
+	 *         or the error budget has been used up - see {@link #isPartial()})
+	 * @throws IOException
+	 */
+	public boolean resume(ICharacterInputStream input, CancellationToken cancellation) throws IOException {
+		if (text != null && text != input.getBuffer()) {
+			throw new IllegalArgumentException("Lexing can only be resumed on the same input");
+		}
+
+		reportedCount = 0;
+		partial = false;
+
+		return doLex(input, cancellation);
+	}
+
+	/**
+	 * Lexes the characters provided by the given input until the given token gets
+	 * cancelled
+	 * 
+	 * @param input
+	 *            The character source
+	 * @param cancellation
+	 *            The token to check
+	 * @return Whether lexing has finished (the input has been lexed completely
+	 *         or the error budget has been used up)
+	 * @throws IOException
+	 */
+	protected boolean doLex(ICharacterInputStream input, CancellationToken cancellation) throws IOException {
+		this.cancellation = cancellation;
+		try {
+			doLex(input);
+		} finally {
+			this.cancellation = null;
+		}
+
+		return partial || !input.hasNext();
+	}
+
+	/**
+	 * Creates a token source that lexes the characters provided by the given input
+	 * on demand: a token is only lexed once it (or a token following it) is
+	 * requested from the source. Lexing a huge input can therefore be skipped if
+	 * only its first tokens are of interest (e.g. when parsing up to a certain
+	 * token type). Calling this method triggers a reset of this lexer without
+	 * clearing the set of known macros. The lexed tokens are collected in
+	 * {@link #getTokens()} as usual which is why this lexer must not be used for
+	 * anything else as long as the returned source is in use.
+	 * 
+	 * @param input
+	 *            The character source
+	 * @return The lazy token source
+	 */
+	public LazyTokenSource lexLazily(ICharacterInputStream input) {
+		reset(false);
+		prepare(input);
+
+		return new LazyTokenSource(this, input);
+	}
+
+	/**
+	 * Resumes lexing at the given checkpoint. The given input has to provide the
+	 * same text that the checkpoint has been recorded on (at least up to the
+	 * checkpoint) - its current position is ignored.<br>
+	 * If this lexer still holds the results of lexing that text up to the
+	 * checkpoint (see {@link #canResume(LexerCheckpoint, ICharacterInputStream)})
+	 * everything behind the checkpoint is discarded and lexed again. The result
+	 * is the same as if the whole text had been lexed. This is used in order to
+	 * re-lex everything behind an edit.<br>
+	 * Otherwise this lexer is reset and only the text behind the checkpoint is
+	 * lexed (e.g. in order to lex the visible part of a file first). In that case
+	 * {@link #getTokens()} starts with the token at {@link #getTokenBase()} of the
+	 * whole input and the newline indices start with the start of the
+	 * checkpoint's line. As the brackets in front of the checkpoint are unknown
+	 * their closing brackets are reported as unbalanced.<br>
+	 * The error budget applies to the text behind the checkpoint only.
+	 * 
+	 * @param checkpoint
+	 *            The checkpoint to resume from
+	 * @param input
+	 *            The character source
+	 * @throws IOException
+	 */
+	public void lexFrom(LexerCheckpoint checkpoint, ICharacterInputStream input) throws IOException {
+		if (checkpoint.triviaMode() != triviaMode) {
+			throw new IllegalArgumentException(
+					"The checkpoint has been recorded in trivia mode " + checkpoint.triviaMode());
+		}
+
+		reportedCount = 0;
+		partial = false;
+
+		if (canResume(checkpoint, input)) {
+			tokens.truncate(checkpoint.tokenIndex() - tokenBase);
+			numberValues.truncate(checkpoint.tokenIndex() - tokenBase);
+			literalIds.truncate(checkpoint.tokenIndex() - tokenBase);
+			trivia.truncate(checkpoint.triviaIndex() - triviaBase);
+			lineStarts.subList(checkpoint.lineIndex() - lineBase, lineStarts.size()).clear();
+
+			// only the brackets opened while this lexer has been lexing are known
+			int known = 0;
+			int[] openBrackets = checkpoint.openBrackets();
+			while (known < openBrackets.length && openBrackets[known] < tokenBase) {
+				known++;
+			}
+			int[] localBrackets = new int[openBrackets.length - known];
+			for (int i = 0; i < localBrackets.length; i++) {
+				localBrackets[i] = openBrackets[known + i] - tokenBase;
+			}
+			bracketPairs.truncate(checkpoint.tokenIndex() - tokenBase, localBrackets,
+					Arrays.copyOfRange(checkpoint.openTypes(), known, openBrackets.length));
+			significant.truncate(checkpoint.tokenIndex() - tokenBase);
+
+			while (!checkpoints.isEmpty() && checkpoints.get(checkpoints.size() - 1).offset() > checkpoint.offset()) {
+				checkpoints.remove(checkpoints.size() - 1);
+			}
+		} else {
+			reset(false);
+
+			tokenBase = checkpoint.tokenIndex();
+			triviaBase = checkpoint.triviaIndex();
+			lineBase = checkpoint.lineIndex() - 1;
+			lineStarts.set(0, checkpoint.lineStart());
+		}
+
+		if (checkpoints.isEmpty()) {
+			checkpoints.add(checkpoint);
+		}
+
+		if (input instanceof CharArrayInputStream) {
+			((CharArrayInputStream) input).setOffset(checkpoint.offset());
+		} else {
+			if (input.getOffset() > checkpoint.offset()) {
+				throw new IllegalArgumentException("The input has already passed the checkpoint");
+			}
+
+			while (input.getOffset() < checkpoint.offset() && input.read() != -1) {
+				// skip the text in front of the checkpoint
+			}
+		}
+
+		doLex(input);
+		compactStringLiterals();
+	}
+
+	/**
+	 * Checks whether this lexer still holds the results of lexing the given
+	 * input up to the given checkpoint so that
+	 * {@link #lexFrom(LexerCheckpoint, ICharacterInputStream)} can keep them
+	 * 
+	 * @param checkpoint
+	 *            The checkpoint to check
+	 * @param input
+	 *            The character source lexing should be resumed on
+	 */
+	public boolean canResume(LexerCheckpoint checkpoint, ICharacterInputStream input) {
+		return text != null && text == input.getBuffer() && checkpoint.triviaMode() == triviaMode
+				&& checkpoint.offset() <= textLength && checkpoint.tokenIndex() >= tokenBase
+				&& checkpoint.tokenIndex() - tokenBase <= tokens.size() && checkpoint.triviaIndex() >= triviaBase
+				&& checkpoint.triviaIndex() - triviaBase <= trivia.size() && checkpoint.lineIndex() - lineBase >= 1
+				&& checkpoint.lineIndex() - lineBase <= lineStarts.size();
+	}
+
+	/**
+	 * Lexes the characters provided by the given input and emits the tokens
+	 * directly into the given packed buffer without materializing a token object
+	 * per token. The buffer is cleared beforehand. The tokens will only be
+	 * available via the given buffer - {@link #getTokens()} will be empty
+	 * afterwards.
+	 * 
+	 * @param input
+	 *            The character source
+	 * @param target
+	 *            The buffer to emit the tokens to
+	 * @throws IOException
+	 */
+	public void lex(ICharacterInputStream input, PackedTokenBuffer target) throws IOException {
+		target.clear();
+
+		lex(input, (ITokenSink) target);
+	}
+
+	/**
+	 * Lexes the characters provided by the given input and pushes the tokens
+	 * directly to the given sink. Token objects are only created if the sink
+	 * creates them (or if the token factory is not an
+	 * {@linkplain AbstractSQFTokenFactory}). The tokens will only be available
+	 * via the given sink - {@link #getTokens()} will be empty afterwards. Trivia
+	 * is handled according to the trivia mode. If the sink doesn't require the
+	 * side information (see {@link ITokenSink#requiresSideInformation()}) no
+	 * number values, String literal IDs, bracket pairs, separated trivia or
+	 * checkpoints are recorded and only the last newline index is kept so that
+	 * the memory used by this lexer doesn't grow with the input. Before it starts
+	 * lexing calling this method triggers a reset of this lexer without clearing
+	 * the set of known macros.
+	 * 
+	 * @param input
+	 *            The character source
+	 * @param sink
+	 *            The sink to emit the tokens to
+	 * @throws IOException
+	 */
+	public void lex(ICharacterInputStream input, ITokenSink sink) throws IOException {
+		assert (sink != null);
+
+		reset(false);
+
+		this.sink = sink;
+		sinkSize = 0;
+		sideInformation = sink.requiresSideInformation();
+		int interval = checkpointInterval;
+		if (!sideInformation) {
+			checkpointInterval = 0;
+		}
+		sink.start(input.getBuffer());
+
+		try {
+			doLex(input);
+		} finally {
+			this.sink = null;
+			sideInformation = true;
+			checkpointInterval = interval;
+		}
+
+		sink.finish();
+	}
+
+	/**
+	 * Lexes the given text in parallel. The text is split into chunks at line
+	 * starts that are likely to be token boundaries. The chunks are lexed
+	 * concurrently on the given pool and the results are stitched together
+	 * afterwards. If a split turns out to be in the middle of a token (e.g.
+	 * inside a multi-line String or comment) the affected chunk is re-lexed
+	 * sequentially. Therefore the result (tokens, newline indices and the order
+	 * of reported errors) is exactly the same as if the text had been lexed
+	 * sequentially. Before it starts lexing calling this method triggers a reset
+	 * of this lexer without clearing the set of known macros.
+	 * 
+	 * @param text
+	 *            The text to lex
+	 * @param pool
+	 *            The pool to lex the chunks on
+	 * @param factories
+	 *            A supplier for token factories that are configured the same way
+	 *            as the one of this lexer. Each chunk is lexed using its own
+	 *            factory.
+	 * @throws IOException
+	 */
+	public void lexParallel(CharSequence text, ForkJoinPool pool,
+			Supplier<? extends ITokenFactory<SQFToken>> factories) throws IOException {
+		lexParallel(text, pool, factories, ParallelLexer.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Lexes the given text in parallel using chunks of (roughly) the given size.
+	 * See {@link #lexParallel(CharSequence, ForkJoinPool, Supplier)}
+	 * 
+	 * @param text
+	 *            The text to lex
+	 * @param pool
+	 *            The pool to lex the chunks on
+	 * @param factories
+	 *            A supplier for token factories that are configured the same way
+	 *            as the one of this lexer
+	 * @param chunkSize
+	 *            The minimum amount of characters per chunk
+	 * @throws IOException
+	 */
+	public void lexParallel(CharSequence text, ForkJoinPool pool, Supplier<? extends ITokenFactory<SQFToken>> factories,
+			int chunkSize) throws IOException {
+		reset(false);
+
+		CharArrayBuffer buffer = new CharArrayBuffer(text);
+		new ParallelLexer(this, pool, factories, chunkSize).lex(buffer);
+
+		this.text = buffer;
+		textLength = buffer.length();
+	}
+
+	/**
+	 * Updates the tokens of the last lexed input after the given edit has been
+	 * applied to it. Instead of lexing the whole text again lexing starts at the
+	 * last token boundary in front of the edit and stops as soon as a newly lexed
+	 * token ends at the position an old token has started at behind the edit.
+	 * From there on the old tokens are kept and are merely moved by the length
+	 * difference of the edit. The newline indices and the separated trivia are
+	 * updated accordingly and only errors inside the re-lexed part of the text
+	 * are reported. The error budget doesn't apply as the tokens have to be
+	 * complete afterwards.<br>
+	 * The edit is applied to the character buffer the tokens refer to. If that
+	 * buffer can't be edited (e.g. after lexing in parallel) it gets replaced by
+	 * an editable copy once. Only the tokens in {@link #getTokens()} are updated
+	 * - this won't work for tokens that have been lexed into a
+	 * {@linkplain PackedTokenBuffer}.
+	 * 
+	 * @param offset
+	 *            The offset at which the text has been edited
+	 * @param removedLength
+	 *            The amount of characters that have been removed at the given
+	 *            offset
+	 * @param insertedText
+	 *            The text that has been inserted at the given offset
+	 * @return The range of tokens that has been replaced. The indices of all
+	 *         tokens behind that range are shifted by the difference between the
+	 *         inserted and the removed token count
+	 * @throws IOException
+	 */
+	public TokenRange relex(int offset, int removedLength, CharSequence insertedText) throws IOException {
+		if (text == null) {
+			throw new IllegalStateException("There is no lexed text that could be edited");
+		}
+		if (offset < 0 || removedLength < 0 || offset + removedLength > textLength) {
+			throw new IllegalArgumentException("Invalid edit of " + removedLength + " characters at " + offset
+					+ " (text length is " + textLength + ")");
+		}
+
+		CharacterBuffer buffer = editableText();
+		factory.setBuffer(buffer);
+		int delta = insertedText.length() - removedLength;
+		reportedCount = 0;
+		partial = false;
+
+		// A token ending right at the edit might get merged with the inserted text.
+		// Tokens ending in front of it are unaffected as long as they are directly
+		// followed by another token: the lexer never looks further than one
+		// character behind a token. If characters behind a token haven't been kept
+		// as tokens (e.g. an error character behind a number or dropped trivia),
+		// the token may have been decided by the characters behind those and has
+		// to be lexed again as well
+		int first = firstTokenEndingAt(offset);
+		if (first > 0 && tokens.stop(first - 1) < ((first < tokens.size()) ? tokens.start(first) : offset)) {
+			first--;
+		}
+		while (continuesString(tokens, first)) {
+			// a String containing preprocessor statements has to be lexed as a whole
+			first--;
+		}
+		int restart = (first == 0) ? 0 : tokens.stop(first - 1);
+
+		buffer.replace(offset, removedLength, insertedText);
+		textLength += delta;
+
+		TokenBuffer<SQFToken> oldTokens = tokens;
+		List<Integer> oldLineStarts = lineStarts;
+		TriviaBuffer oldTrivia = trivia;
+		NumberValueBuffer oldNumberValues = numberValues;
+		IntArrayBuffer oldLiteralIds = literalIds;
+		BracketPairBuffer oldBracketPairs = bracketPairs;
+		SignificantTokenIndex oldSignificant = significant;
+
+		tokens = new TokenBuffer<>();
+		lineStarts = new ArrayList<>();
+		trivia = new TriviaBuffer(8);
+		trivia.setCharacterSource(buffer);
+		numberValues = new NumberValueBuffer(8);
+		literalIds = new IntArrayBuffer(8);
+		bracketPairs = new BracketPairBuffer(8);
+		significant = new SignificantTokenIndex(8);
+
+		TokenBuffer<SQFToken> newTokens;
+		List<Integer> newLineStarts;
+		TriviaBuffer newTrivia;
+		NumberValueBuffer newNumberValues;
+		IntArrayBuffer newLiteralIds;
+		SignificantTokenIndex newSignificant;
+
+		int resync = oldTokens.size();
+		int oldResyncOffset = textLength - delta;
+		int interval = checkpointInterval;
+
+		// the checkpoints behind the re-lexed part are dropped
+		while (!checkpoints.isEmpty() && checkpoints.get(checkpoints.size() - 1).offset() > restart) {
+			checkpoints.remove(checkpoints.size() - 1);
+		}
+		checkpointInterval = 0;
+		// the budget doesn't apply as the tokens have to be complete afterwards
+		int budget = errorBudget;
+		errorBudget = 0;
+
+		try {
+			CharArrayInputStream input = new CharArrayInputStream(buffer, restart);
+			int editEnd = offset + insertedText.length();
+			int candidate = first;
+
+			while (input.hasNext()) {
+				lexNext(input);
+
+				if (input.getOffset() < editEnd) {
+					continue;
+				}
+
+				// check whether an old token starts at the current position
+				int oldOffset = input.getOffset() - delta;
+				while (candidate < oldTokens.size() && oldTokens.start(candidate) < oldOffset) {
+					candidate++;
+				}
+
+				if (candidate < oldTokens.size() && oldTokens.start(candidate) == oldOffset
+						&& !continuesString(oldTokens, candidate)) {
+					// from here on the old tokens are still valid
+					resync = candidate;
+					oldResyncOffset = oldOffset;
+					break;
+				}
+			}
+		} finally {
+			newTokens = tokens;
+			newLineStarts = lineStarts;
+			newTrivia = trivia;
+			newNumberValues = numberValues;
+			newLiteralIds = literalIds;
+			newSignificant = significant;
+
+			tokens = oldTokens;
+			lineStarts = oldLineStarts;
+			trivia = oldTrivia;
+			numberValues = oldNumberValues;
+			literalIds = oldLiteralIds;
+			bracketPairs = oldBracketPairs;
+			significant = oldSignificant;
+			checkpointInterval = interval;
+			errorBudget = budget;
+		}
+
+		List<SQFToken> removedTokens = new ArrayList<>(resync - first);
+		for (int i = first; i < resync; i++) {
+			removedTokens.add(tokens.get(i));
+		}
+
+		// splice in the new tokens - the kept ones are only moved once they are
+		// requested
+		bracketPairs.replace(first, resync, newTokens);
+		tokens.shift(resync, delta);
+		tokens.replace(first, resync, newTokens);
+		numberValues.replace(first, resync, newNumberValues);
+		literalIds.replace(first, resync, newLiteralIds);
+		significant.replace(first, resync, newSignificant);
+
+		int firstLine = firstLineStartAfter(restart);
+		int lastLine = firstLineStartAfter(oldResyncOffset);
+		lineStarts.subList(firstLine, lastLine).clear();
+		lineStarts.addAll(firstLine, newLineStarts);
+		for (int i = firstLine + newLineStarts.size(); i < lineStarts.size(); i++) {
+			lineStarts.set(i, lineStarts.get(i) + delta);
+		}
+
+		trivia.replace(trivia.firstLeading(first), trivia.firstLeading(resync + 1), newTrivia, first, delta,
+				newTokens.size() - (resync - first));
+
+		compactStringLiterals();
+
+		return new TokenRange(first, resync - first, newTokens.size(), removedTokens, delta);
+	}
+
+	/**
+	 * Removes the literals that are no longer referenced by any token from the
+	 * String literal table once it has grown to twice the size it had after the
+	 * last compaction. Thus repeated edits can't make it grow without bound while
+	 * the compaction costs amortized constant time per interned literal. A table
+	 * that has been {@linkplain #setStringLiterals(StringLiteralTable) set from
+	 * outside} is left alone.
+	 */
+	protected void compactStringLiterals() {
+		if (!ownsStringLiterals || stringLiterals.size() <= literalLimit) {
+			return;
+		}
+
+		stringLiterals.compact(literalIds);
+		literalLimit = Math.max(stringLiterals.size() * 2, MIN_LITERAL_LIMIT);
+	}
+
+	/**
+	 * Lexes the characters provided by the given input
+	 * 
+	 * @param input
+	 *            The character source
+	 * @throws IOException
+	 */
+	protected void doLex(ICharacterInputStream input) throws IOException {
+		doLex(input, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Lexes the characters provided by the given input until the first token that
+	 * ends at or after the given offset has been lexed
+	 * 
+	 * @param input
+	 *            The character source
+	 * @param end
+	 *            The offset at which to stop lexing
+	 * @throws IOException
+	 */
+	protected void doLex(ICharacterInputStream input, int end) throws IOException {
+		prepare(input);
+
+		int check = 0;
+		while (!partial && input.hasNext() && input.getOffset() < end) {
+			if (cancellation != null && ++check == CancellationToken.CHECK_INTERVAL) {
+				check = 0;
+
+				if (cancellation.isCancelled()) {
+					break;
+				}
+			}
+
+			lexNext(input);
+		}
+
+		textLength = input.getOffset();
+	}
+
+	/**
+	 * Prepares this lexer for lexing the given input
+	 * 
+	 * @param input
+	 *            The character source
+	 */
+	protected void prepare(ICharacterInputStream input) {
+		assert (factory != null);
+		factory.setBuffer(input.getBuffer());
+		trivia.setCharacterSource(input.getBuffer());
+		text = input.getBuffer();
+		textLength = input.getOffset();
+
+		if (checkpointInterval > 0 && checkpoints.isEmpty()) {
+			checkpoints.add(createCheckpoint(input.getOffset()));
+		}
+	}
+
+	/**
+	 * Lexes the next token from the given input. If no token can be matched the
+	 * next character is consumed and reported as an error.
+	 * 
+	 * @param input
+	 *            The character source
+	 * @throws IOException
+	 */
+	protected void lexNext(ICharacterInputStream input) throws IOException {
+		int start = input.getOffset();
+
+		// consecutively execute these methods until the first one returns true
+		// (produces a token)
+		@SuppressWarnings("unused")
+		boolean dummy = matchWhitespace(input) 
+				|| matchPreprocessor(input, false) 
+				|| matchComment(input)
+				|| matchOperator(input) 
+				|| matchString(input) 
+				|| matchNumberOrIDOrMacro(input)
+				|| matchBracket(input);
+
+		if (start == input.getOffset()) {
+			// no token has been consumed -> error
+			int c = input.read();
+			report(EDiagnosticCode.RECOGNITION_ERROR, start, input.getOffset(), c);
+		}
+
+		if (checkpointInterval > 0) {
+			LexerCheckpoint last = checkpoints.get(checkpoints.size() - 1);
+
+			if (emittedCount() - last.tokenIndex() - last.triviaIndex() >= checkpointInterval
+					|| (lineCheckpoints && lineBase + lineStarts.size() > last.lineIndex())) {
+				checkpoints.add(createCheckpoint(input.getOffset()));
+			}
+		}
+	}
+
+	/**
+	 * Reports a diagnostic to the {@link #diagnosticListener}. If there is none
+	 * the message is formatted and reported to the {@link #errorListener}
+	 * together with an error token spanning the affected text.
+	 * 
+	 * @param code
+	 *            The kind of the diagnostic
+	 * @param start
+	 *            The start offset of the affected text (inclusive)
+	 * @param end
+	 *            The end offset of the affected text (exclusive)
+	 * @param argument
+	 *            The argument of the diagnostic (or
+	 *            {@link EDiagnosticCode#NO_ARGUMENT})
+	 */
+	protected void report(EDiagnosticCode code, int start, int end, int argument) {
+		if (partial) {
+			// the rest of the current token is still being lexed
+			return;
+		}
+
+		if (diagnosticListener != null) {
+			diagnosticListener.diagnostic(code, start, end, argument);
+		} else {
+			errorListener.error(code.format(argument), factory.produce(ESQFTokentype.ERROR_TOKEN, start, end));
+		}
+
+		if (++reportedCount == errorBudget) {
+			partial = true;
+		}
+	}
+
+	/**
+	 * Gets the amount of tokens (including separated trivia) emitted in the whole
+	 * input so far
+	 */
+	private int emittedCount() {
+		return tokenBase + (sink == null ? tokens.size() : sinkSize) + triviaBase + trivia.size();
 	}
 
 	/**
-	 * Lexes the characters provided by the given input. Before it starts lexing
-	 * calling this method triggers a reset of this lexer without clearing the set
-	 * of known macros
+	 * Creates a checkpoint for the current state of this lexer
 	 * 
-	 * @param input
-	 *            The character source
-	 * @throws IOException
+	 * @param offset
+	 *            The offset the next token would start at
 	 */
-	public void lex(ICharacterInputStream input) throws IOException {
-		reset(false);
-
-		assert (factory != null);
-		factory.setBuffer(input.getBuffer());
-
-		int lastOffset = 0;
-
-		while (input.hasNext()) {
-			// consecutively execute these methods until the first one returns true
-			// (produces a token) then start from the beginning again in the next iteration
-			@SuppressWarnings("unused")
-			boolean dummy = matchWhitespace(input) 
-					|| matchPreprocessor(input, false) 
-					|| matchComment(input)
-					|| matchOperator(input) 
-					|| matchString(input) 
-					|| matchNumberOrIDOrMacro(input)
-					|| matchBracket(input);
-
-			if (lastOffset == input.getOffset()) {
-				// no token has been consumed -> error
-				int start = input.getOffset();
-				errorListener.error("Recognition error on \'" + (char) input.read() + "\'",
-						factory.produce(ESQFTokentype.ERROR_TOKEN, start, input.getOffset()));
-			}
-
-			lastOffset = input.getOffset();
+	private LexerCheckpoint createCheckpoint(int offset) {
+		int[] openBrackets = bracketPairs.openBrackets();
+		for (int i = 0; i < openBrackets.length; i++) {
+			openBrackets[i] += tokenBase;
 		}
+
+		return new LexerCheckpoint(offset, tokenBase + (sink == null ? tokens.size() : sinkSize),
+				triviaBase + trivia.size(), lineBase + lineStarts.size(), lineStarts.get(lineStarts.size() - 1),
+				openBrackets, bracketPairs.openTypes(), triviaMode);
 	}
 
 	/**
@@ -127,6 +951,19 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 			return false;
 		}
 
+		CharArrayBuffer bulk = bulkBuffer(input);
+		if (bulk != null) {
+			if (c == '\n') {
+				lineStarts.add(input.getOffset());
+			}
+
+			((CharArrayInputStream) input).setOffset(
+					BulkScanner.skipWhitespace(bulk.array(), input.getOffset(), bulk.length(), lineStarts));
+
+			emit(ESQFTokentype.WHITESPACE, start, input.getOffset());
+			return true;
+		}
+
 		while (Character.isWhitespace(c)) {
 			if (c == '\n') {
 				lineStarts.add(input.getOffset());
@@ -140,7 +977,7 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 
 		if (start != input.getOffset()) {
 			// create token
-			tokens.add(factory.produce(ESQFTokentype.WHITESPACE, start, input.getOffset()));
+			emit(ESQFTokentype.WHITESPACE, start, input.getOffset());
 			return true;
 		}
 
@@ -175,11 +1012,16 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 		}
 
 		int c = input.read();
+		CharArrayBuffer bulk = bulkBuffer(input);
 
 		if (second == '/') {
 			// single line comment
 			while (c != '\n' && c != -1) {
 				// consume all characters in the comment until line feed
+				if (bulk != null) {
+					((CharArrayInputStream) input)
+							.setOffset(BulkScanner.indexOf(bulk.array(), input.getOffset(), bulk.length(), '\n'));
+				}
 				c = input.read();
 			}
 			if (c != -1) {
@@ -193,6 +1035,11 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 				if (c == '\n') {
 					lineStarts.add(input.getOffset());
 				}
+				if (bulk != null) {
+					// skip everything that can't be part of the comment end
+					((CharArrayInputStream) input).setOffset(
+							BulkScanner.skipUntil(bulk.array(), input.getOffset(), bulk.length(), '*', lineStarts));
+				}
 				c = input.read();
 			}
 		}
@@ -203,7 +1050,7 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 		}
 
 		if (start != input.getOffset()) {
-			tokens.add(factory.produce(ESQFTokentype.COMMENT, start, input.getOffset()));
+			emit(ESQFTokentype.COMMENT, start, input.getOffset());
 			return true;
 		} else {
 			return false;
@@ -350,7 +1197,7 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 
 		if (start != input.getOffset()) {
 			// create token
-			tokens.add(factory.produce(ESQFTokentype.PREPROCESSOR, start, input.getOffset()));
+			emit(ESQFTokentype.PREPROCESSOR, start, input.getOffset());
 
 			return true;
 		}
@@ -358,6 +1205,24 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 		return false;
 	}
 
+	/**
+	 * Checks whether the input continues with a preprocessor statement that
+	 * {@link #matchPreprocessor(ICharacterInputStream, boolean)} would match
+	 * inside a String (a # that is not followed by whitespace). No input is
+	 * consumed by this method.
+	 * 
+	 * @param input
+	 *            The InputStream to check
+	 * @throws IOException
+	 */
+	private boolean isPreprocessorStart(ICharacterInputStream input) throws IOException {
+		int c = input.read();
+		boolean isStart = c == '#' && !Character.isWhitespace(input.peek());
+		input.unread();
+
+		return isStart;
+	}
+
 	/**
 	 * Matches a String enclosed in either double- or single-quotes. "" or '' are
 	 * considered escaped quotes and will therefore not trigger an end of the String
@@ -377,6 +1242,7 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 		}
 
 		boolean producedSubstring = false;
+		CharArrayBuffer bulk = bulkBuffer(input);
 
 		int c = input.read();
 
@@ -406,20 +1272,24 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 					// Put last read character back because it wasn't WS
 					input.unread();
 
-					int subEnd = input.getOffset();
+					if (isPreprocessorStart(input)) {
+						// create substring token
+						// the substring token has to be emitted before the preprocessor token
+						emit(ESQFTokentype.SUBSTRING, start, input.getOffset());
 
-					matchPreprocessor(input, true);
+						matchPreprocessor(input, true);
 
-					if (subEnd != input.getOffset()) {
-						// create substring token
-						// the substring token has to be inserted before the preprocessor token
-						tokens.add(tokens.size() - 1, factory.produce(ESQFTokentype.SUBSTRING, start, subEnd));
 						start = input.getOffset();
 						producedSubstring = true;
 					}
 				}
 			}
 
+			if (bulk != null) {
+				// skip everything but quotes and newlines
+				((CharArrayInputStream) input).setOffset(
+						BulkScanner.indexOf(bulk.array(), input.getOffset(), bulk.length(), (char) starter, '\n'));
+			}
 			c = input.read();
 		}
 
@@ -430,8 +1300,7 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 
 		if (start != input.getOffset()) {
 			// create token
-			tokens.add(factory.produce(producedSubstring ? ESQFTokentype.SUBSTRING_END : ESQFTokentype.STRING, start,
-					input.getOffset()));
+			emit(producedSubstring ? ESQFTokentype.SUBSTRING_END : ESQFTokentype.STRING, start, input.getOffset());
 			return true;
 		}
 
@@ -463,8 +1332,8 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 
 			if (c == '$') {
 				// dollar sign can't be part of an ID
-				errorListener.error("Unfinished hex-number specification",
-						factory.produce(ESQFTokentype.ERROR_TOKEN, input.getOffset() - 1, input.getOffset()));
+				report(EDiagnosticCode.UNFINISHED_HEX_NUMBER, input.getOffset() - 1, input.getOffset(),
+						EDiagnosticCode.NO_ARGUMENT);
 				input.unread();
 				return true;
 			}
@@ -472,8 +1341,8 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 			if (c == '.') {
 				// dot sign can't be part of an ID
 				// notify error listener about unfinished number
-				errorListener.error("Error on '.' - Insert trailing digits to complete Number definition",
-						factory.produce(ESQFTokentype.ERROR_TOKEN, input.getOffset() - 1, input.getOffset()));
+				report(EDiagnosticCode.MISSING_DECIMAL_DIGITS, input.getOffset() - 1, input.getOffset(),
+						EDiagnosticCode.NO_ARGUMENT);
 				input.unread();
 				return true;
 			}
@@ -487,7 +1356,7 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 			}
 		}
 
-		tokens.add(factory.produce(type, start, input.getOffset()));
+		emit(type, start, input.getOffset());
 		return true;
 	}
 
@@ -530,8 +1399,7 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 
 			if (!Character.isDigit(c)) {
 				// notify error listener about missing digit
-				errorListener.error("Error on '" + (char) c + "' - Digits expected to complete scientific notation",
-						factory.produce(ESQFTokentype.ERROR_TOKEN, input.getOffset() - 1, input.getOffset()));
+				report(EDiagnosticCode.MISSING_EXPONENT_DIGITS, input.getOffset() - 1, input.getOffset(), c);
 				// consume as number anyway
 				return true;
 			}
@@ -564,8 +1432,8 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 						if (matchedPeriod) {
 							// matched second period in one number -> error (but consume period)
 							// notify error listener about too many periods
-							errorListener.error("Error on '.' - Only one period per number allowed", factory
-									.produce(ESQFTokentype.ERROR_TOKEN, input.getOffset() - 1, input.getOffset()));
+							report(EDiagnosticCode.MULTIPLE_PERIODS, input.getOffset() - 1, input.getOffset(),
+									EDiagnosticCode.NO_ARGUMENT);
 							// returning true because at this point a digit has already been consumed -> is
 							// definitely a number
 							return true;
@@ -701,8 +1569,8 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 			c = input.read();
 			if (c != '&') {
 				// notify error listener about missing &
-				errorListener.error("Missing second '&'",
-						factory.produce(ESQFTokentype.ERROR_TOKEN, input.getOffset() - 1, input.getOffset()));
+				report(EDiagnosticCode.MISSING_SECOND_AMPERSAND, input.getOffset() - 1, input.getOffset(),
+						EDiagnosticCode.NO_ARGUMENT);
 
 				// consume as && anyway -> add imaginary second & and unread current character
 				// as it is not part of this token
@@ -713,8 +1581,8 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 			c = input.read();
 			if (c != '|') {
 				// notify error listener about missing |
-				errorListener.error("Missing second '|'",
-						factory.produce(ESQFTokentype.ERROR_TOKEN, input.getOffset() - 1, input.getOffset()));
+				report(EDiagnosticCode.MISSING_SECOND_PIPE, input.getOffset() - 1, input.getOffset(),
+						EDiagnosticCode.NO_ARGUMENT);
 
 				// consume as || anyway -> add imaginary second | and unread current character
 				// as it is not part of this token
@@ -734,7 +1602,7 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 			return false;
 		}
 
-		tokens.add(factory.produce(type, start, input.getOffset()));
+		emit(type, start, input.getOffset());
 		return true;
 	}
 
@@ -752,22 +1620,22 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 
 		switch (c) {
 		case '(':
-			tokens.add(factory.produce(ESQFTokentype.PARENTHESIS_OPEN, start, input.getOffset()));
+			emit(ESQFTokentype.PARENTHESIS_OPEN, start, input.getOffset());
 			break;
 		case ')':
-			tokens.add(factory.produce(ESQFTokentype.PARENTHESIS_CLOSE, start, input.getOffset()));
+			emit(ESQFTokentype.PARENTHESIS_CLOSE, start, input.getOffset());
 			break;
 		case '[':
-			tokens.add(factory.produce(ESQFTokentype.SQUARE_BRACKET_OPEN, start, input.getOffset()));
+			emit(ESQFTokentype.SQUARE_BRACKET_OPEN, start, input.getOffset());
 			break;
 		case ']':
-			tokens.add(factory.produce(ESQFTokentype.SQUARE_BRACKET_CLOSE, start, input.getOffset()));
+			emit(ESQFTokentype.SQUARE_BRACKET_CLOSE, start, input.getOffset());
 			break;
 		case '{':
-			tokens.add(factory.produce(ESQFTokentype.CURLY_BRACKET_OPEN, start, input.getOffset()));
+			emit(ESQFTokentype.CURLY_BRACKET_OPEN, start, input.getOffset());
 			break;
 		case '}':
-			tokens.add(factory.produce(ESQFTokentype.CURLY_BRACKET_CLOSE, start, input.getOffset()));
+			emit(ESQFTokentype.CURLY_BRACKET_CLOSE, start, input.getOffset());
 			break;
 		default:
 			input.unread();
@@ -777,10 +1645,484 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 		return true;
 	}
 
+	/**
+	 * Gets the buffer whose backing array can be scanned directly instead of
+	 * reading the given input character by character
+	 * 
+	 * @param input
+	 *            The input to scan
+	 * @return The respective buffer or <code>null</code> if bulk scanning is not
+	 *         possible (or disabled)
+	 */
+	private CharArrayBuffer bulkBuffer(ICharacterInputStream input) {
+		if (bulkScanning && input instanceof CharArrayInputStream
+				&& input.getBuffer() instanceof CharArrayBuffer) {
+			return (CharArrayBuffer) input.getBuffer();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Emits a token of the given type. Depending on the current output the token
+	 * is either added to {@link #tokens} or pushed to {@link #sink}. Trivia is
+	 * handled according to {@link #triviaMode}
+	 * 
+	 * @param type
+	 *            The token type
+	 * @param start
+	 *            The start index of the token (inclusive)
+	 * @param end
+	 *            The end index of the token (exclusive)
+	 */
+	protected void emit(ESQFTokentype type, int start, int end) {
+		if (!sideInformation && lineStarts.size() > 1) {
+			// only the start of the current line is kept
+			lineBase += lineStarts.size() - 1;
+			lineStarts.subList(0, lineStarts.size() - 1).clear();
+		}
+
+		if (triviaMode != ETriviaMode.KEEP
+				&& (type == ESQFTokentype.WHITESPACE || type == ESQFTokentype.COMMENT)) {
+			if (triviaMode == ETriviaMode.SEPARATE && sideInformation) {
+				trivia.add(type, start, end, sink == null ? tokens.size() : sinkSize);
+			}
+
+			return;
+		}
+
+		if (sink == null) {
+			tokens.add(factory.produce(type, start, end));
+		} else {
+			if (factory instanceof AbstractSQFTokenFactory) {
+				// classify the token without creating a token object
+				AbstractSQFTokenFactory sqfFactory = (AbstractSQFTokenFactory) factory;
+				int symbol = sqfFactory.symbolOf(type, start, end, text);
+
+				sink.accept(type, start, end, sqfFactory.precedenceOf(type, symbol),
+						sqfFactory.operatorTypeOf(type, symbol), symbol);
+			} else {
+				SQFToken token = factory.produce(type, start, end);
+
+				sink.accept(type, start, end, token.precendence(), token.operatorType(), token.symbolId());
+			}
+
+			sinkSize++;
+
+			if (!sideInformation) {
+				return;
+			}
+		}
+
+		numberValues.add(type == ESQFTokentype.NUMBER ? numberValue(text, start, end) : Double.NaN);
+		literalIds.add(StringLiteralTable.isLiteral(type) ? stringLiterals.intern(type, text, start, end)
+				: StringLiteralTable.NO_LITERAL);
+		bracketPairs.add(type);
+		significant.add(type);
+	}
+
+	/**
+	 * Computes the value of the number literal delimited by the given indices. The
+	 * literal is expected to have been matched by
+	 * {@link #consumeNumber(ICharacterInputStream, int, boolean)} before. Its
+	 * digits are accumulated in a <code>long</code> so that no text has to be
+	 * created - only literals whose digits don't form an exactly representable
+	 * double (more than 2^53) or that have large exponents are handed to
+	 * {@link Double#parseDouble(String)}. Erroneous literals (e.g. a missing
+	 * exponent) are evaluated as far as they are valid.
+	 * 
+	 * @param buffer
+	 *            The buffer containing the literal
+	 * @param start
+	 *            The start index of the literal (inclusive)
+	 * @param end
+	 *            The end index of the literal (exclusive)
+	 * @return The value of the literal
+	 */
+	protected static double numberValue(ICharacterBuffer buffer, int start, int end) {
+		// a literal that is terminated by the end of the input (e.g. "1e") may
+		// extend behind it
+		end = Math.min(end, buffer.length());
+		int i = start;
+		int c = Character.toLowerCase(buffer.get(i));
+
+		if (c == '$' || (c == '0' && end - start > 2 && Character.toLowerCase(buffer.get(i + 1)) == 'x')) {
+			// hexadecimal number
+			i += (c == '$') ? 1 : 2;
+
+			double value = 0;
+			for (; i < end; i++) {
+				value = value * 16 + Character.digit(buffer.get(i), 16);
+			}
+
+			return value;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean matchedPeriod = false;
+		boolean exact = true;
+		int validEnd = start;
+
+		for (; i < end; i++) {
+			c = buffer.get(i);
+
+			if (Character.isDigit(c)) {
+				if (digits < 18) {
+					mantissa = mantissa * 10 + Character.digit(c, 10);
+					if (mantissa != 0) {
+						// leading zeros are not significant
+						digits++;
+					}
+					if (matchedPeriod) {
+						exponent--;
+					}
+				} else {
+					exact = false;
+				}
+			} else if (c == '.' && !matchedPeriod) {
+				matchedPeriod = true;
+			} else {
+				break;
+			}
+
+			validEnd = i + 1;
+		}
+
+		if (i < end && Character.toLowerCase(buffer.get(i)) == 'e') {
+			// scientific notation
+			int j = i + 1;
+			boolean negative = false;
+
+			if (j < end && (buffer.get(j) == '+' || buffer.get(j) == '-')) {
+				negative = buffer.get(j) == '-';
+				j++;
+			}
+
+			int scientificExponent = 0;
+			for (; j < end && Character.isDigit(buffer.get(j)); j++) {
+				scientificExponent = Math.min(scientificExponent * 10 + Character.digit(buffer.get(j), 10), 100000);
+				validEnd = j + 1;
+			}
+
+			exponent += negative ? -scientificExponent : scientificExponent;
+		}
+
+		if (exact && mantissa <= 1L << 53 && exponent >= -22 && exponent <= 22) {
+			// the mantissa and the power of ten are both exactly representable -> a
+			// single multiplication/division is correctly rounded
+			return (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+		}
+
+		return Double.parseDouble(buffer.getText(start, validEnd - start));
+	}
+
+	/**
+	 * Gets an editable version of {@link #text}. If the current text buffer can't
+	 * be edited it is copied and all tokens are re-created so that they refer to
+	 * the copy.
+	 */
+	protected CharacterBuffer editableText() {
+		if (text instanceof CharacterBuffer) {
+			CharacterBuffer buffer = (CharacterBuffer) text;
+			// the input stream may have buffered EOF markers behind the text
+			buffer.truncate(textLength);
+
+			return buffer;
+		}
+
+		CharacterBuffer buffer = new CharacterBuffer(textLength);
+		for (int i = 0; i < textLength; i++) {
+			buffer.append(text.get(i));
+		}
+
+		text = buffer;
+		factory.setBuffer(buffer);
+		trivia.setCharacterSource(buffer);
+
+		TokenBuffer<SQFToken> copy = new TokenBuffer<>(tokens.size());
+		for (int i = 0; i < tokens.size(); i++) {
+			SQFToken current = tokens.get(i);
+			copy.add(factory.produce(current.type(), current.start(), current.stop()));
+		}
+		tokens = copy;
+
+		return buffer;
+	}
+
+	/**
+	 * Gets the index of the first token that ends at or after the given offset
+	 * (or the amount of tokens if there is none)
+	 */
+	private int firstTokenEndingAt(int offset) {
+		int low = 0;
+		int high = tokens.size();
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (tokens.stop(mid) < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Gets the index of the first entry in {@link #lineStarts} that is greater than
+	 * the given offset (or the amount of entries if there is none)
+	 */
+	private int firstLineStartAfter(int offset) {
+		int low = 0;
+		int high = lineStarts.size();
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (lineStarts.get(mid) <= offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Checks whether the token at the given index continues a String that
+	 * contains preprocessor statements (and has therefore been split into
+	 * multiple tokens)
+	 * 
+	 * @param tokens
+	 *            The tokens to check
+	 * @param index
+	 *            The index of the token to check
+	 */
+	private static boolean continuesString(TokenBuffer<SQFToken> tokens, int index) {
+		if (index <= 0 || index >= tokens.size()) {
+			return false;
+		}
+
+		ESQFTokentype previous = tokens.get(index - 1).type();
+
+		switch (tokens.get(index).type()) {
+		case SUBSTRING_END:
+			return true;
+		case PREPROCESSOR:
+			// a SUBSTRING is always followed by a preprocessor statement inside the String
+			return previous == ESQFTokentype.SUBSTRING;
+		case SUBSTRING:
+			return previous == ESQFTokentype.PREPROCESSOR && index > 1
+					&& tokens.get(index - 2).type() == ESQFTokentype.SUBSTRING;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the values of the number literals of the last lexing. The buffer is
+	 * indexed the same way as the emitted tokens.
+	 */
+	public NumberValueBuffer getNumberValues() {
+		return numberValues;
+	}
+
+	/**
+	 * Gets the value of the number literal at the given token index
+	 * 
+	 * @param index
+	 *            The index of the token
+	 * @return The value of the literal or {@link Double#NaN} if the token is not a
+	 *         number
+	 */
+	public double numberValue(int index) {
+		return numberValues.get(index);
+	}
+
+	/**
+	 * Gets the IDs of the String literals of the last lexing in
+	 * {@link #getStringLiterals()}. The buffer is indexed the same way as the
+	 * emitted tokens and contains {@link StringLiteralTable#NO_LITERAL} for all
+	 * tokens that are no String literals.
+	 */
+	public IntArrayBuffer getLiteralIds() {
+		return literalIds;
+	}
+
+	/**
+	 * Gets the (unescaped) value of the String literal at the given token index.
+	 * Each distinct literal is only unescaped once.
+	 * 
+	 * @param index
+	 *            The index of the token
+	 * @return The value of the literal or <code>null</code> if the token is no
+	 *         String literal
+	 */
+	public String stringValue(int index) {
+		int id = literalIds.get(index);
+
+		return (id == StringLiteralTable.NO_LITERAL) ? null : stringLiterals.getValue(id);
+	}
+
+	/**
+	 * Gets the table the String literals are interned into
+	 */
+	public StringLiteralTable getStringLiterals() {
+		return stringLiterals;
+	}
+
+	/**
+	 * Sets the table the String literals should be interned into. Using the same
+	 * table for the lexers of multiple files deduplicates the literals across all
+	 * of them. In contrast to the table a lexer creates by default, a table that
+	 * has been set is never cleared or compacted by this lexer - it is up to the
+	 * caller to {@link StringLiteralTable#clear() clear} it once it is no longer
+	 * needed.
+	 * 
+	 * @param table
+	 *            The table to use
+	 */
+	public void setStringLiterals(StringLiteralTable table) {
+		assert (table != null);
+
+		stringLiterals = table;
+		ownsStringLiterals = false;
+	}
+
+	/**
+	 * Gets the index of matching bracket pairs of the last lexing. The index refers
+	 * to the emitted tokens.
+	 */
+	public BracketPairBuffer getBracketPairs() {
+		return bracketPairs;
+	}
+
+	/**
+	 * Gets the index of the significant tokens (everything but trivia) of the
+	 * last lexing. The index refers to the emitted tokens and is filled while
+	 * lexing and kept up to date by {@link #relex(int, int, CharSequence)} so
+	 * that it doesn't have to be built in a separate pass over the tokens (see
+	 * {@link parser.SQFParser#parse(ITokenSource, SignificantTokenIndex)}).
+	 */
+	public SignificantTokenIndex getSignificantTokens() {
+		return significant;
+	}
+
 	public TokenBuffer<SQFToken> getTokens() {
 		return tokens;
 	}
 
+	/**
+	 * Gets the trivia that has been split off the token stream during the last
+	 * lexing. This is only populated if the trivia mode is
+	 * {@link ETriviaMode#SEPARATE}
+	 */
+	public TriviaBuffer getTrivia() {
+		return trivia;
+	}
+
+	/**
+	 * Sets how whitespace and comments should be handled. If they are not kept in
+	 * the token stream the indices of the remaining tokens stay dense.
+	 * 
+	 * @param mode
+	 *            The trivia mode to use
+	 */
+	public void setTriviaMode(ETriviaMode mode) {
+		assert (mode != null);
+
+		triviaMode = mode;
+	}
+
+	/**
+	 * Gets the way whitespace and comments are handled
+	 */
+	public ETriviaMode getTriviaMode() {
+		return triviaMode;
+	}
+
+	/**
+	 * Sets whether runs of whitespace and the bodies of comments and Strings
+	 * should be scanned directly on the backing array if the input is a
+	 * {@linkplain CharArrayInputStream} reading from a
+	 * {@linkplain CharArrayBuffer} (enabled by default). The result is the same
+	 * either way.
+	 * 
+	 * @param bulkScanning
+	 *            Whether to use bulk scanning
+	 */
+	public void setBulkScanning(boolean bulkScanning) {
+		this.bulkScanning = bulkScanning;
+	}
+
+	/**
+	 * Sets how often checkpoints should be recorded while lexing. A checkpoint
+	 * is recorded at the first token boundary after at least the given amount of
+	 * tokens (including trivia) since the last checkpoint. The first checkpoint
+	 * is recorded right at the start of the input. Checkpoints are not recorded
+	 * when lexing in parallel and an incremental re-lexing drops all checkpoints
+	 * behind the edit.
+	 * 
+	 * @param interval
+	 *            The minimum amount of tokens between two checkpoints or 0 in
+	 *            order to disable checkpoints
+	 * @param everyLine
+	 *            Whether a checkpoint should additionally be recorded at the first
+	 *            token boundary of every line
+	 */
+	public void setCheckpointInterval(int interval, boolean everyLine) {
+		assert (interval >= 0);
+
+		checkpointInterval = interval;
+		lineCheckpoints = everyLine;
+	}
+
+	/**
+	 * Gets the checkpoints recorded during the last lexing in ascending order
+	 */
+	public List<LexerCheckpoint> getCheckpoints() {
+		return Collections.unmodifiableList(checkpoints);
+	}
+
+	/**
+	 * Gets the last checkpoint at or in front of the given offset
+	 * 
+	 * @param offset
+	 *            The character offset
+	 * @return The respective checkpoint or <code>null</code> if there is none
+	 */
+	public LexerCheckpoint getCheckpoint(int offset) {
+		int low = 0;
+		int high = checkpoints.size();
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (checkpoints.get(mid).offset() <= offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return (low == 0) ? null : checkpoints.get(low - 1);
+	}
+
+	/**
+	 * Gets the index the first token in {@link #getTokens()} has in the whole
+	 * input. This is only non-zero after lexing has been resumed from a
+	 * checkpoint on a fresh lexer (see
+	 * {@link #lexFrom(LexerCheckpoint, ICharacterInputStream)})
+	 */
+	public int getTokenBase() {
+		return tokenBase;
+	}
+
 	public List<Integer> getNewlineIndices() {
 		return lineStarts;
 	}
@@ -821,6 +2163,22 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 		lineStarts.clear();
 		lineStarts.add(0); // first line starts right at the beginning
 		tokens = new TokenBuffer<>();
+		trivia.clear();
+		numberValues.clear();
+		literalIds.clear();
+		if (ownsStringLiterals) {
+			// the literals of the previous input are no longer referenced
+			stringLiterals.clear();
+			literalLimit = MIN_LITERAL_LIMIT;
+		}
+		bracketPairs.clear();
+		significant.clear();
+		checkpoints.clear();
+		tokenBase = 0;
+		triviaBase = 0;
+		lineBase = 0;
+		reportedCount = 0;
+		partial = false;
 		if (clearMacros) {
 			macroSet.clear();
 		}
@@ -858,4 +2216,63 @@ public class SQFLexer implements ITokenSource<SQFToken> {
 
 		errorListener = listener;
 	}
+
+	/**
+	 * Sets the listener structured diagnostics should be reported to. As long as
+	 * it is set, the error listener is not notified and no messages or error
+	 * tokens are created.
+	 * 
+	 * @param listener
+	 *            The listener to report diagnostics to or <code>null</code> in
+	 *            order to report them to the error listener again
+	 */
+	public void setDiagnosticListener(IDiagnosticListener listener) {
+		diagnosticListener = listener;
+	}
+
+	/**
+	 * Gets the listener structured diagnostics are reported to (may be
+	 * <code>null</code>)
+	 */
+	public IDiagnosticListener getDiagnosticListener() {
+		return diagnosticListener;
+	}
+
+	/**
+	 * Sets the amount of diagnostics after which lexing should stop. The rest of
+	 * the input is skipped and the result is marked as partial (see
+	 * {@link #isPartial()}). This is meant for checking whether an input is valid
+	 * without lexing all of it if it isn't. The budget doesn't apply to
+	 * {@link #relex(int, int, CharSequence)} as the updated tokens have to be
+	 * complete. When lexing in parallel only the reporting stops as the chunks
+	 * have been lexed already.
+	 * 
+	 * @param budget
+	 *            The amount of diagnostics to report before stopping (1 stops at
+	 *            the first one) or 0 in order to lex everything (default)
+	 */
+	public void setErrorBudget(int budget) {
+		if (budget < 0) {
+			throw new IllegalArgumentException("The error budget may not be negative");
+		}
+
+		errorBudget = budget;
+	}
+
+	/**
+	 * Gets the amount of diagnostics after which lexing stops (0 if it never
+	 * stops)
+	 */
+	public int getErrorBudget() {
+		return errorBudget;
+	}
+
+	/**
+	 * Checks whether the last lexing has been stopped because the error budget has
+	 * been used up. In that case the tokens only cover the input up to (and
+	 * including) the token that caused the last reported diagnostic
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
 }
@@ -0,0 +1,239 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import dataStructures.EDiagnosticCode;
+import dataStructures.IBuildableIndexTree;
+import dataStructures.ITokenSource;
+import dataStructures.IntStack;
+import dataStructures.SQFToken;
+
+/**
+ * Parses the top-level statements of a token sequence on a
+ * {@linkplain ForkJoinPool} and concatenates the results in the target
+ * {@linkplain SQFParser}. The sequence is split into segments at top-level
+ * semicolons (bracket depth 0, outside of macro argument lists). Behind such a
+ * semicolon the parser only differs from its initial state by the branches
+ * built so far. As these are only needed again by a statement starting with a
+ * parenthesis, the sequence is only split in front of statements that don't
+ * (see {@link StatementScanner#isIndependent()}). Therefore each segment can be
+ * parsed by its own parser and the branches can simply be appended to each
+ * other.
+ *
+ * @author Raven
+ *
+ */
+class ParallelParser {
+
+	/**
+	 * The default minimum amount of tokens per segment
+	 */
+	static final int DEFAULT_SEGMENT_SIZE = 4096;
+
+	/**
+	 * The parser the result is stored in
+	 */
+	protected SQFParser target;
+	/**
+	 * The pool to parse the segments on
+	 */
+	protected ForkJoinPool pool;
+	/**
+	 * The minimum amount of tokens per segment
+	 */
+	protected int segmentSize;
+
+
+	ParallelParser(SQFParser target, ForkJoinPool pool, int segmentSize) {
+		assert (segmentSize > 0);
+
+		this.target = target;
+		this.pool = pool;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Parses the given source into the target parser. The target parser is
+	 * expected to have been reset beforehand.
+	 *
+	 * @param source
+	 *            The tokens to parse. The source has to support concurrent reads
+	 * @return The index of the last processed token
+	 */
+	int parse(ITokenSource<SQFToken> source) {
+		int size = source.size();
+		int[] splits = findSplitPoints(source, size);
+		List<Segment> segments = new ArrayList<>(splits.length);
+
+		for (int i = 0; i < splits.length; i++) {
+			Segment current = new Segment(source, splits[i], (i + 1 < splits.length) ? splits[i + 1] : size);
+			segments.add(current);
+
+			if (splits.length > 1) {
+				pool.execute(current);
+			}
+		}
+
+		IBuildableIndexTree tree = target.tree();
+		int last = -1;
+		boolean partial = false;
+		for (Segment current : segments) {
+			if (splits.length > 1) {
+				current.join();
+			} else {
+				current.compute();
+			}
+
+			if (current.parser.tree().branchCount() > 0) {
+				// a segment of trivia only has no branches that could be merged
+				tree.merge(current.parser.tree());
+			}
+
+			for (int i = 0; i < current.codes.size(); i++) {
+				target.report(current.codes.get(i), current.tokens.get(i));
+			}
+
+			last = current.last;
+			partial |= current.parser.partial;
+		}
+
+		// a used up budget only stops the reporting as all segments have been parsed
+		target.partial = partial;
+		target.currentTokenIndex = last + 1;
+
+		return last;
+	}
+
+	/**
+	 * Finds the token indices at which the given source should be split into
+	 * segments. A split point follows the end of a top-level statement and
+	 * precedes an independent one (see {@linkplain StatementScanner}).
+	 *
+	 * @param source
+	 *            The source to split
+	 * @param size
+	 *            The amount of tokens in the source
+	 * @return The (ascending) split points. The first one is always 0
+	 */
+	protected int[] findSplitPoints(ITokenSource<SQFToken> source, int size) {
+		IntStack splits = new IntStack();
+		splits.push(0);
+
+		StatementScanner scanner = new StatementScanner(source, size, 0);
+
+		while (!scanner.isDone()) {
+			int end = scanner.next();
+
+			if (end < size && end - splits.peek() >= segmentSize && scanner.isIndependent()) {
+				splits.push(end);
+			}
+		}
+
+		int[] result = new int[splits.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = splits.get(i);
+		}
+
+		return result;
+	}
+
+	/**
+	 * A view of a source that ends at the end of a segment
+	 */
+	protected static class SegmentSource implements ITokenSource<SQFToken> {
+		/**
+		 * The complete source
+		 */
+		protected final ITokenSource<SQFToken> source;
+		/**
+		 * The index behind the last token of the segment
+		 */
+		protected final int end;
+
+
+		protected SegmentSource(ITokenSource<SQFToken> source, int end) {
+			this.source = source;
+			this.end = end;
+		}
+
+		@Override
+		public SQFToken get(int index) {
+			if (index >= end) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + end);
+			}
+
+			return source.get(index);
+		}
+
+		@Override
+		public int size() {
+			return end;
+		}
+	}
+
+	/**
+	 * A task parsing a single segment using its own parser
+	 */
+	protected class Segment extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The source containing the segment
+		 */
+		protected final ITokenSource<SQFToken> source;
+		/**
+		 * The index of the first token of the segment
+		 */
+		protected final int start;
+		/**
+		 * The index behind the last token of the segment
+		 */
+		protected final int end;
+		/**
+		 * The parser used for this segment
+		 */
+		protected SQFParser parser;
+		/**
+		 * The index of the last processed token
+		 */
+		protected int last;
+		/**
+		 * The codes of the diagnostics reported while parsing this segment
+		 */
+		protected final List<EDiagnosticCode> codes;
+		/**
+		 * The tokens the diagnostics in {@link #codes} refer to
+		 */
+		protected final List<SQFToken> tokens;
+
+
+		protected Segment(ITokenSource<SQFToken> source, int start, int end) {
+			this.source = source;
+			this.start = start;
+			this.end = end;
+			codes = new ArrayList<>(4);
+			tokens = new ArrayList<>(4);
+		}
+
+		@Override
+		protected void compute() {
+			parser = new SQFParser() {
+				@Override
+				protected void report(EDiagnosticCode code, SQFToken token) {
+					// diagnostics are reported in order once all segments are done
+					codes.add(code);
+					tokens.add(token);
+				}
+			};
+			parser.suppressMissingTerminatorErrorMessages(target.isSuppressingMissingTerminatorErrorMessages());
+			parser.setLazyCodeBlocks(target.isParsingCodeBlocksLazily());
+			parser.blockOwner = target.blockOwner;
+
+			parser.begin(new SegmentSource(source, end), start);
+			last = parser.finish();
+		}
+	}
+}
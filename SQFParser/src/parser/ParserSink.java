@@ -0,0 +1,256 @@
+package parser;
+
+import java.util.Arrays;
+
+import dataStructures.ESQFOperatorType;
+import dataStructures.ESQFTokentype;
+import dataStructures.ICharacterBuffer;
+import dataStructures.ITokenSink;
+import dataStructures.ITokenSource;
+import dataStructures.SQFToken;
+import dataStructures.TokenBuffer;
+
+/**
+ * An {@linkplain ITokenSink} that feeds the tokens to an
+ * {@linkplain SQFParser} as they arrive so that lexing and parsing are done in
+ * a single pass. Tokens are handed over to the parser as soon as possible: only
+ * a macro is held back until it is known whether it has arguments and if so
+ * until its argument list is complete (as the parser processes these in one
+ * go).<br>
+ * The sink itself serves as the token source of the parser. The tree is
+ * available via {@link SQFParser#tree()} once the sink has been finished.<br>
+ * <br>
+ * If the tokens don't have to be kept, the sink only holds a small window of
+ * tokens: the last token the parser has processed (which is needed for
+ * reporting a missing terminator) and the ones that haven't been handed over
+ * yet (a pending macro together with its argument list). The indices in the
+ * tree still count all tokens. The lexer doesn't record its side information
+ * (e.g. number values or newline indices) in that case either (see
+ * {@link ITokenSink#requiresSideInformation()}).
+ * 
+ * @author Raven
+ *
+ */
+public class ParserSink implements ITokenSink, ITokenSource<SQFToken> {
+
+	/**
+	 * The parser the tokens are fed to
+	 */
+	protected SQFParser parser;
+	/**
+	 * All tokens that have arrived so far or <code>null</code> if the tokens
+	 * aren't kept
+	 */
+	protected TokenBuffer<SQFToken> tokens;
+	/**
+	 * Whether all tokens are kept in {@link #tokens}
+	 */
+	protected boolean keepTokens;
+	/**
+	 * The tokens that are still needed if the tokens aren't kept. The first one
+	 * has the index {@link #windowStart}
+	 */
+	protected SQFToken[] window;
+	/**
+	 * The index of the first token in the {@link #window}
+	 */
+	protected int windowStart;
+	/**
+	 * The amount of tokens that have arrived so far
+	 */
+	protected int arrived;
+	/**
+	 * The character buffer the tokens refer to
+	 */
+	protected ICharacterBuffer characterSource;
+	/**
+	 * The amount of tokens that have been handed over to the parser
+	 */
+	protected int released;
+	/**
+	 * The end offset of the last macro if it is not yet known whether it has
+	 * arguments, -1 otherwise
+	 */
+	protected int macroEnd;
+	/**
+	 * The amount of open parenthesis in the current macro argument list (0 if
+	 * there is none)
+	 */
+	protected int argumentDepth;
+
+
+	public ParserSink(SQFParser parser) {
+		this(parser, true);
+	}
+
+	/**
+	 * @param parser
+	 *            The parser to feed the tokens to
+	 * @param keepTokens
+	 *            Whether all tokens should be kept (see {@link #getTokens()}). If
+	 *            not, only the tokens the parser may still access are held
+	 */
+	public ParserSink(SQFParser parser, boolean keepTokens) {
+		assert (parser != null);
+
+		this.parser = parser;
+		this.keepTokens = keepTokens;
+		macroEnd = -1;
+
+		if (keepTokens) {
+			tokens = new TokenBuffer<>();
+		} else {
+			window = new SQFToken[16];
+		}
+	}
+
+	@Override
+	public boolean requiresSideInformation() {
+		// the side information would grow with the input as well
+		return keepTokens;
+	}
+
+	@Override
+	public void start(ICharacterBuffer characterSource) {
+		this.characterSource = characterSource;
+		if (keepTokens) {
+			tokens = new TokenBuffer<>();
+		} else {
+			Arrays.fill(window, null);
+			windowStart = 0;
+		}
+		arrived = 0;
+		released = 0;
+		macroEnd = -1;
+		argumentDepth = 0;
+
+		parser.begin(this, 0);
+	}
+
+	@Override
+	public void accept(ESQFTokentype type, int start, int end, int precedence, ESQFOperatorType operatorType,
+			int symbol) {
+		if (parser.isPartial()) {
+			// the parser has stopped -> the remaining tokens are skipped
+			return;
+		}
+
+		SQFToken token = new SQFToken(type, start, end, precedence, operatorType, symbol, characterSource);
+		if (keepTokens) {
+			tokens.add(token);
+		} else {
+			if (arrived - windowStart == window.length) {
+				window = Arrays.copyOf(window, window.length * 2);
+			}
+			window[arrived - windowStart] = token;
+		}
+		arrived++;
+
+		if (argumentDepth > 0) {
+			// inside a macro argument list
+			if (type == ESQFTokentype.PARENTHESIS_OPEN) {
+				argumentDepth++;
+			} else if (type == ESQFTokentype.PARENTHESIS_CLOSE) {
+				argumentDepth--;
+			}
+
+			if (argumentDepth == 0) {
+				release(arrived);
+			}
+
+			return;
+		}
+
+		if (macroEnd >= 0) {
+			// this token determines whether the preceding macro has arguments
+			boolean hasArguments = type == ESQFTokentype.PARENTHESIS_OPEN && start == macroEnd;
+			macroEnd = -1;
+
+			if (hasArguments) {
+				argumentDepth = 1;
+				return;
+			}
+		}
+
+		if (operatorType == ESQFOperatorType.MACRO) {
+			release(arrived - 1);
+			macroEnd = end;
+		} else {
+			release(arrived);
+		}
+	}
+
+	@Override
+	public void finish() {
+		released = arrived;
+
+		parser.finish();
+	}
+
+	/**
+	 * Hands the tokens up to the given index over to the parser
+	 * 
+	 * @param count
+	 *            The amount of tokens the parser may process
+	 */
+	protected void release(int count) {
+		released = count;
+
+		parser.proceed();
+
+		// a parser that has been stopped (see SQFParser#isPartial()) hasn't processed
+		// all released tokens
+		int keep = Math.min(released, parser.getCurrentTokenIndex()) - 1;
+		if (!keepTokens && keep > windowStart) {
+			// only the last processed token and the pending ones are needed from now on
+			int discarded = keep - windowStart;
+			System.arraycopy(window, discarded, window, 0, arrived - keep);
+			Arrays.fill(window, arrived - keep, arrived - windowStart, null);
+			windowStart = keep;
+		}
+	}
+
+	/**
+	 * Gets the tokens that have been handed over to the parser so far
+	 */
+	@Override
+	public SQFToken get(int index) {
+		if (index >= released) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + released);
+		}
+
+		if (keepTokens) {
+			return tokens.get(index);
+		}
+
+		if (index < windowStart) {
+			throw new IndexOutOfBoundsException("The token " + index + " isn't kept anymore");
+		}
+
+		return window[index - windowStart];
+	}
+
+	/**
+	 * Gets the amount of tokens that have been handed over to the parser so far
+	 */
+	@Override
+	public int size() {
+		return released;
+	}
+
+	/**
+	 * Gets all tokens that have arrived so far
+	 * 
+	 * @return The tokens or <code>null</code> if the tokens aren't kept
+	 */
+	public TokenBuffer<SQFToken> getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * Gets the parser the tokens are fed to
+	 */
+	public SQFParser getParser() {
+		return parser;
+	}
+}
@@ -0,0 +1,113 @@
+package parser;
+
+import java.util.Arrays;
+
+/**
+ * A stack of pending binary operators as used by the {@linkplain SQFParser}.
+ * For each operator its precedence and its level in the tree are packed into a
+ * single <code>long</code> (the precedence in the upper and the level in the
+ * lower 32 bits) so that pushing an operator doesn't allocate anything.
+ * 
+ * @author Raven
+ *
+ */
+public class PendingOperatorStack {
+
+	/**
+	 * The packed operators (the top of the stack is at <code>size - 1</code>)
+	 */
+	protected long[] operators;
+	/**
+	 * The amount of operators on this stack
+	 */
+	protected int size;
+
+
+	public PendingOperatorStack() {
+		this(16);
+	}
+
+	public PendingOperatorStack(int initialCapacity) {
+		operators = new long[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Pushes an operator onto this stack
+	 * 
+	 * @param precedence
+	 *            The precedence of the operator
+	 * @param level
+	 *            The level of the operator in the tree
+	 */
+	public void push(int precedence, int level) {
+		if (size == operators.length) {
+			operators = Arrays.copyOf(operators, size * 2);
+		}
+
+		operators[size++] = ((long) precedence << 32) | (level & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Gets the precedence of the operator at the given index (counted from the
+	 * bottom of the stack)
+	 */
+	public int precedence(int index) {
+		return (int) (operators[check(index)] >> 32);
+	}
+
+	/**
+	 * Gets the level of the operator at the given index (counted from the bottom
+	 * of the stack)
+	 */
+	public int level(int index) {
+		return (int) operators[check(index)];
+	}
+
+	/**
+	 * Searches this stack from the top for the first operator with lower
+	 * precedence than the given one (that is an operator with a greater
+	 * precedence value as it binds less tightly)
+	 * 
+	 * @param precedence
+	 *            The precedence value to compare against
+	 * @return The index of the found operator or -1 if there is none
+	 */
+	public int findLowerPrecedence(int precedence) {
+		for (int i = size - 1; i >= 0; i--) {
+			if ((int) (operators[i] >> 32) > precedence) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Gets the amount of operators on this stack
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether this stack is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all operators from this stack (the allocated capacity is kept)
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	private int check(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		return index;
+	}
+}
@@ -0,0 +1,107 @@
+package parser;
+
+import java.util.List;
+
+import dataStructures.ESQFOperatorType;
+import dataStructures.ESQFTokentype;
+import dataStructures.ITokenSource;
+import dataStructures.SQFToken;
+import dataStructures.TokenRange;
+
+/**
+ * A view of a token sequence as it has been before some of its tokens have
+ * been replaced. The tokens in front of the change are the current ones, the
+ * removed tokens are taken from the {@linkplain TokenRange} and the tokens
+ * behind the change are the current ones at their shifted indices. As those
+ * have been moved, the token directly behind the change is returned as a copy
+ * in its old position so that it can be checked whether it follows a removed
+ * token directly.
+ *
+ * @author Raven
+ *
+ */
+class PreviousTokenSource implements ITokenSource<SQFToken> {
+
+	/**
+	 * The current token sequence
+	 */
+	protected final ITokenSource<SQFToken> source;
+	/**
+	 * The change that has been applied to the old token sequence
+	 */
+	protected final TokenRange change;
+	/**
+	 * The tokens that have been removed by the change
+	 */
+	protected final List<SQFToken> removed;
+	/**
+	 * The difference between the new and the old token indices behind the change
+	 */
+	protected final int delta;
+
+
+	/**
+	 * @param source
+	 *            The current token sequence
+	 * @param change
+	 *            The change that has been applied. Its removed tokens have to be
+	 *            known
+	 */
+	PreviousTokenSource(ITokenSource<SQFToken> source, TokenRange change) {
+		assert (change.removedTokens() != null);
+
+		this.source = source;
+		this.change = change;
+		removed = change.removedTokens();
+		delta = change.insertedCount() - change.removedCount();
+	}
+
+	@Override
+	public SQFToken get(int index) {
+		if (index < change.start()) {
+			return source.get(index);
+		}
+		if (index < change.oldStop()) {
+			return removed.get(index - change.start());
+		}
+
+		SQFToken token = source.get(index + delta);
+		if (index == change.oldStop() && change.movedBy() != 0) {
+			token = new SQFToken(token.type(), token.start() - change.movedBy(), token.stop() - change.movedBy(),
+					token.precendence(), token.operatorType(), token.symbolId(), null);
+		}
+
+		return token;
+	}
+
+	@Override
+	public int size() {
+		return source.size() - delta;
+	}
+
+	@Override
+	public boolean has(int index) {
+		return index < change.oldStop() || source.has(index + delta);
+	}
+
+	/**
+	 * Checks whether a macro of the old token sequence might have been followed
+	 * by its argument list without it being decidable anymore. This is the case
+	 * if a macro at (or in front of) the change is followed by an opening
+	 * parenthesis with characters in between, as the old characters aren't
+	 * known anymore.
+	 */
+	boolean hasUndecidableMacroArguments() {
+		for (int i = Math.max(change.start(), 1); i <= change.oldStop() && has(i); i++) {
+			SQFToken previous = get(i - 1);
+			SQFToken current = get(i);
+
+			if (previous.operatorType() == ESQFOperatorType.MACRO && current.type() == ESQFTokentype.PARENTHESIS_OPEN
+					&& current.start() != previous.stop()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -1,23 +1,31 @@
 package parser;
 
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
+import dataStructures.ArrayStack;
+import dataStructures.CancellationToken;
 import dataStructures.ConsoleErrorListener;
+import dataStructures.EDiagnosticCode;
 import dataStructures.ESQFOperatorType;
 import dataStructures.ESQFTokentype;
 import dataStructures.IBuildableIndexTree;
+import dataStructures.IDiagnosticListener;
 import dataStructures.IErrorListener;
 import dataStructures.ITokenSource;
 import dataStructures.IndexTree;
 import dataStructures.IndexTreeElement;
+import dataStructures.IntStack;
+import dataStructures.LazyIndexTreeElement;
+import dataStructures.NestedIndexTree;
 import dataStructures.SQFToken;
+import dataStructures.SignificantTokenIndex;
+import dataStructures.TokenRange;
 
 public class SQFParser {
 
-	protected static int BINARY_INFO_LENGTH = 2;
-	protected static int BINARY_INFO_PRECEDENCE = 0;
-	protected static int BINARY_INFO_LEVEL = 1;
-
 	/**
 	 * The default error listener that will report errors to the console
 	 */
@@ -39,7 +47,9 @@ public class SQFParser {
 	}
 
 	/**
-	 * A class holding information about the current parser-state
+	 * A class holding information about the current parser-state. The states are
+	 * pooled by the parser (see {@link SQFParser#states}) and get reset whenever
+	 * they are reused.
 	 */
 	protected class ParserState {
 		/**
@@ -51,18 +61,16 @@ public class SQFParser {
 		 * binary operators involved in the current expression in a way so that a
 		 * following operator has to check against them.
 		 * 
-		 * The stored array has a length of {@link #BINARY_INFO_LENGTH} and will contain
-		 * the precedence of the respective operator at index
-		 * {@link #BINARY_INFO_PRECEDENCE} and the level of that operator in the
-		 * {@link #tree()} at index {@link #BINARY_INFO_LEVEL}
+		 * For each operator its precedence and its level in the {@link #tree()} are
+		 * stored
 		 */
-		public Stack<int[]> pendingBinaryOperators;
+		public PendingOperatorStack pendingBinaryOperators;
 		/**
 		 * A stack containing all active levels. An active level is a level in a
 		 * {@linkplain IBuildableIndexTree} that is still expecting a child node (that
 		 * means there is still an operator expecting a right argument)
 		 */
-		public Stack<Integer> pendingLevels;
+		public IntStack pendingLevels;
 
 		/**
 		 * The AST representing the given input as correlated by this parser
@@ -76,13 +84,18 @@ public class SQFParser {
 		 * indicates whether the parser has just processed a macro "call"
 		 */
 		public boolean justProcessedMacro;
+		/**
+		 * The tree used to build the content of a bracket expression in place inside
+		 * the enclosing tree. It is created once and reused afterwards.
+		 */
+		protected NestedIndexTree nestedTree;
 
 		public ParserState(EParserArgumentState argumentState) {
-			this(argumentState, new Stack<>(), new Stack<>(), new IndexTree(), ECodeContext.CODE);
+			this(argumentState, new PendingOperatorStack(4), new IntStack(4), new IndexTree(), ECodeContext.CODE);
 		}
 
-		public ParserState(EParserArgumentState state, Stack<int[]> pendingBinaryOperators,
-				Stack<Integer> pendingLevels, IBuildableIndexTree tree, ECodeContext ctx) {
+		public ParserState(EParserArgumentState state, PendingOperatorStack pendingBinaryOperators,
+				IntStack pendingLevels, IBuildableIndexTree tree, ECodeContext ctx) {
 			this.argumentState = state;
 			this.pendingBinaryOperators = pendingBinaryOperators;
 			this.pendingLevels = pendingLevels;
@@ -90,16 +103,74 @@ public class SQFParser {
 			this.codeContext = ctx;
 		}
 
-		public void reset() {
+		/**
+		 * Resets this state so that it can be reused
+		 * 
+		 * @param tree
+		 *            The tree to build into from now on
+		 */
+		public void reset(IBuildableIndexTree tree) {
 			argumentState = EParserArgumentState.WAITING;
 			pendingBinaryOperators.clear();
 			pendingLevels.clear();
-			tree = new IndexTree();
+			this.tree = tree;
+			codeContext = ECodeContext.CODE;
+			justProcessedMacro = false;
+		}
+
+		/**
+		 * Makes this state build its tree in place as the children of the given
+		 * element
+		 * 
+		 * @param host
+		 *            The element to add the branches of the tree to
+		 */
+		public void buildInto(IndexTreeElement host) {
+			if (nestedTree == null) {
+				nestedTree = new NestedIndexTree();
+			}
+
+			tree = nestedTree.attach(host);
+		}
+	}
+
+	/**
+	 * A code block whose content is parsed on first access (see
+	 * {@link SQFParser#setLazyCodeBlocks(boolean)})
+	 */
+	protected static class LazyCodeBlock extends LazyIndexTreeElement {
+		/**
+		 * The parser whose settings are used for parsing the content
+		 */
+		protected final SQFParser owner;
+		/**
+		 * The token source containing the block
+		 */
+		protected ITokenSource<SQFToken> source;
+
+
+		public LazyCodeBlock(SQFParser owner, ITokenSource<SQFToken> source, int open, int close) {
+			super(open, close);
+
+			this.owner = owner;
+			this.source = source;
+		}
+
+		@Override
+		protected IndexTreeElement parseContent() {
+			SQFParser parser = new SQFParser(owner.errorListener);
+			parser.setDiagnosticListener(owner.diagnosticListener);
+			parser.suppressMissingTerminatorErrorMessages(owner.suppressMissingTerminator);
+			parser.setLazyCodeBlocks(owner.lazyCodeBlocks);
+			parser.blockOwner = owner;
+
+			return parser.parseBlock(source, open, close, ESQFTokentype.CURLY_BRACKET_OPEN, getLevel());
 		}
 	}
 
 	/**
-	 * The parser state this parser is currently in
+	 * The parser state this parser is currently in (this is always
+	 * <code>states[depth]</code>)
 	 */
 	protected ParserState parserState;
 
@@ -111,15 +182,27 @@ public class SQFParser {
 	 * The error listener to report to
 	 */
 	protected IErrorListener errorListener;
+	/**
+	 * The listener structured diagnostics are reported to. If this is
+	 * <code>null</code> they are reported to the {@link #errorListener}
+	 */
+	protected IDiagnosticListener diagnosticListener;
 
 	/**
 	 * A stack containing all pending brackets
 	 */
-	protected Stack<SQFToken> bracketStack;
+	protected ArrayStack<SQFToken> bracketStack;
+	/**
+	 * The pool of parser states used as a stack. The state at index 0 is the
+	 * top-level one and each opened bracket uses the next one. States (and
+	 * therefore their stacks) are reused across brackets and calls to
+	 * {@link #parse(ITokenSource)}.
+	 */
+	protected ParserState[] states;
 	/**
-	 * A stack containing parser-states
+	 * The index of the current state in {@link #states}
 	 */
-	protected Stack<ParserState> states;
+	protected int depth;
 	/**
 	 * The index of the currently processed token. Changes to this value will
 	 * manipulate the token that will be read next
@@ -128,12 +211,43 @@ public class SQFParser {
 	/**
 	 * The nodes associated with bracket expressions
 	 */
-	protected Stack<IndexTreeElement> bracketNodes;
+	protected ArrayStack<IndexTreeElement> bracketNodes;
 	/**
 	 * Indicates whether error messages about missing terminators should get
 	 * suppressed (because they are being processed elsewhere)
 	 */
 	protected boolean suppressMissingTerminator;
+	/**
+	 * Indicates whether the content of code blocks should only be parsed once it
+	 * is accessed
+	 */
+	protected boolean lazyCodeBlocks;
+	/**
+	 * The parser whose settings are used for parsing the content of lazy code
+	 * blocks created by this parser. This is the parser itself unless it is only
+	 * used for a part of another parser's work
+	 */
+	protected SQFParser blockOwner = this;
+	/**
+	 * The consumer the top-level branches are handed to as soon as their
+	 * statement is complete (see {@link #setBranchConsumer(Consumer)}). If this is
+	 * <code>null</code> they are kept in the tree
+	 */
+	protected Consumer<IndexTreeElement> branchConsumer;
+	/**
+	 * The amount of diagnostics after which parsing stops or 0 if there is no
+	 * limit
+	 */
+	protected int errorBudget;
+	/**
+	 * The amount of diagnostics reported since the last reset
+	 */
+	protected int reportedCount;
+	/**
+	 * Whether parsing has been stopped because the {@link #errorBudget} has been
+	 * used up
+	 */
+	protected boolean partial;
 
 
 	public SQFParser() {
@@ -143,12 +257,12 @@ public class SQFParser {
 	public SQFParser(IErrorListener errorListener) {
 		this.errorListener = errorListener;
 
-		parserState = new ParserState(EParserArgumentState.WAITING, new Stack<>(), new Stack<>(), new IndexTree(),
-				ECodeContext.CODE);
+		states = new ParserState[16];
+		states[0] = new ParserState(EParserArgumentState.WAITING);
+		parserState = states[0];
 
-		bracketStack = new Stack<>();
-		states = new Stack<>();
-		bracketNodes = new Stack<>();
+		bracketStack = new ArrayStack<>();
+		bracketNodes = new ArrayStack<>();
 	}
 
 	/**
@@ -189,65 +303,682 @@ public class SQFParser {
 	 * @return The index of the last processed token
 	 */
 	public int parse(ITokenSource<SQFToken> source, int start, ESQFTokentype stopAt) {
-		reset();
-		this.source = source;
-
-		// iterate through all tokens
-		int size = source.size();
+		begin(source, start);
 
-		for (currentTokenIndex = start; currentTokenIndex < size; currentTokenIndex++) {
+		// iterate through all tokens (the source is asked for each token separately so
+		// that lazy sources only have to provide the tokens that are actually needed)
+		for (; !partial && source.has(currentTokenIndex); currentTokenIndex++) {
 			SQFToken currentToken = source.get(currentTokenIndex);
 
-			switch (currentToken.operatorType()) {
-			case BINARY:
-				binary(currentToken);
-				break;
-			case UNARY:
-				unary();
-				break;
-			case NULAR:
-				nular();
-				break;
-			case MACRO:
-				macro(currentToken);
-				break;
-			case OTHER:
-				other(currentToken);
-				break;
-			}
+			process(currentToken);
 
 			if (currentToken.type() == stopAt) {
 				return currentTokenIndex;
 			}
-			if (currentToken.operatorType() == ESQFOperatorType.MACRO) {
-				parserState.justProcessedMacro = true;
-			} else {
-				// check what kind of token it is
-				switch (currentToken.type()) {
-				case WHITESPACE:
-					// Macros might be followed by WS
-					break;
-				default:
+		}
+
+		return finish();
+	}
+
+	/**
+	 * Parses the given input from the beginning to the end while only visiting
+	 * the significant tokens of the given index. The trivia in between is skipped
+	 * without being looked at (unless it follows a macro). The indices in the
+	 * tree still refer to the given source and the result is exactly the same as
+	 * the one of {@link #parse(ITokenSource)}.
+	 * 
+	 * @param source
+	 *            The token source to use for parsing
+	 * @param significant
+	 *            The index of the significant tokens of the source (e.g.
+	 *            {@link lexer.SQFLexer#getSignificantTokens()})
+	 * @return The index of the last processed token
+	 */
+	public int parse(ITokenSource<SQFToken> source, SignificantTokenIndex significant) {
+		begin(source, 0);
+		// currentTokenIndex always points behind the last consumed token
+		currentTokenIndex = 0;
+
+		for (int position = 0; !partial && position < significant.size(); position++) {
+			int index = significant.get(position);
+
+			if (index < currentTokenIndex) {
+				// the token has already been consumed (e.g. as part of a macro)
+				continue;
+			}
+
+			skipTrivia(index);
+			process(source.get(currentTokenIndex));
+			currentTokenIndex++;
+		}
+
+		if (!partial && currentTokenIndex < significant.sourceSize()) {
+			skipTrivia(significant.sourceSize());
+		}
+
+		return finish();
+	}
+
+	/**
+	 * Skips the trivia from the {@link #currentTokenIndex} to the given index.
+	 * Trivia other than whitespace ends a macro (see
+	 * {@link #process(SQFToken)}) so that it only has to be looked at after a
+	 * macro.
+	 * 
+	 * @param index
+	 *            The index of the next token that has to be processed
+	 */
+	protected void skipTrivia(int index) {
+		if (parserState.justProcessedMacro) {
+			for (int i = currentTokenIndex; i < index; i++) {
+				if (source.get(i).type() != ESQFTokentype.WHITESPACE) {
 					parserState.justProcessedMacro = false;
 					break;
 				}
 			}
 		}
 
+		currentTokenIndex = index;
+	}
+
+	/**
+	 * Parses the given input from the beginning to the end and hands the
+	 * top-level branches to the given consumer as soon as their statement has
+	 * been terminated. See {@link #setBranchConsumer(Consumer)}
+	 * 
+	 * @param source
+	 *            The token source to use for parsing
+	 * @param consumer
+	 *            The consumer to hand the branches to (in order)
+	 * @return The index of the last processed token
+	 */
+	public int parse(ITokenSource<SQFToken> source, Consumer<IndexTreeElement> consumer) {
+		assert (consumer != null);
+
+		Consumer<IndexTreeElement> previous = branchConsumer;
+		branchConsumer = consumer;
+		try {
+			return parse(source, 0, null);
+		} finally {
+			branchConsumer = previous;
+		}
+	}
+
+	/**
+	 * Parses the given input from the beginning to the end by parsing its
+	 * top-level statements in parallel on the given pool. The input is split at
+	 * semicolons outside of any brackets and macro argument lists into segments
+	 * that are parsed by separate parsers. Their branches and diagnostics are
+	 * concatenated in order so that the result is exactly the same as if the
+	 * input had been parsed via {@link #parse(ITokenSource)}.
+	 *
+	 * @param source
+	 *            The token source to use for parsing. It has to support concurrent
+	 *            reads once its {@link ITokenSource#size()} has been determined
+	 * @param pool
+	 *            The pool to parse the segments on
+	 * @return The index of the last processed token
+	 */
+	public int parseParallel(ITokenSource<SQFToken> source, ForkJoinPool pool) {
+		return parseParallel(source, pool, ParallelParser.DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Parses the given input in parallel using segments of (roughly) the given
+	 * size. See {@link #parseParallel(ITokenSource, ForkJoinPool)}
+	 *
+	 * @param source
+	 *            The token source to use for parsing
+	 * @param pool
+	 *            The pool to parse the segments on
+	 * @param segmentSize
+	 *            The minimum amount of tokens per segment
+	 * @return The index of the last processed token
+	 */
+	public int parseParallel(ITokenSource<SQFToken> source, ForkJoinPool pool, int segmentSize) {
+		begin(source, 0);
+
+		int last = new ParallelParser(this, pool, segmentSize).parse(source);
+		if (branchConsumer != null) {
+			handOverBranches(true);
+		}
+
+		return last;
+	}
+
+	/**
+	 * Updates the tree of a previous parse after some of the tokens have been
+	 * replaced (e.g. by {@link lexer.SQFLexer#relex(int, int, CharSequence)}).
+	 * Only the innermost <code>{...}</code> or <code>[...]</code> block
+	 * enclosing the change is parsed again. If there is no such block, the
+	 * top-level statements intersecting the change are parsed again instead. They
+	 * extend to the first statement end behind the change that has been a
+	 * statement end before the change as well (e.g. removing an opening bracket
+	 * changes the statements behind it). This requires the removed tokens to be
+	 * known (see {@link TokenRange#removedTokens()}) - otherwise everything behind
+	 * the change is parsed again.
+	 * The results are spliced into the given tree and the indices of all reused
+	 * nodes behind the change are shifted accordingly. The resulting tree is
+	 * exactly the same as if the complete input had been parsed again.<br>
+	 * Only the diagnostics of the parsed part are reported.
+	 * 
+	 * @param source
+	 *            The token source after the change
+	 * @param previous
+	 *            The tree of the input before the change. It is updated in place
+	 * @param change
+	 *            The range of replaced tokens
+	 * @return The updated tree (which is also available via {@link #tree()})
+	 */
+	public IBuildableIndexTree reparse(ITokenSource<SQFToken> source, IBuildableIndexTree previous,
+			TokenRange change) {
+		int budget = errorBudget;
+		Consumer<IndexTreeElement> consumer = branchConsumer;
+		errorBudget = 0;
+		branchConsumer = null;
+
+		try {
+			return doReparse(source, previous, change);
+		} finally {
+			errorBudget = budget;
+			branchConsumer = consumer;
+		}
+	}
+
+	/**
+	 * Updates the tree of a previous parse after some of the tokens have been
+	 * replaced. See {@link #reparse(ITokenSource, IBuildableIndexTree, TokenRange)}
+	 * 
+	 * @param source
+	 *            The token source after the change
+	 * @param previous
+	 *            The tree of the input before the change
+	 * @param change
+	 *            The range of replaced tokens
+	 * @return The updated tree
+	 */
+	protected IBuildableIndexTree doReparse(ITokenSource<SQFToken> source, IBuildableIndexTree previous,
+			TokenRange change) {
+		int size = source.size();
+		int delta = change.insertedCount() - change.removedCount();
+
+		// find the top-level statements containing the change. The statement the
+		// parsing starts with must not depend on the branches in front of it
+		StatementScanner scanner = new StatementScanner(source, size, 0);
+		int start = 0;
+		int end;
+		while ((end = scanner.next()) <= change.start() && end < size) {
+			if (scanner.isIndependent()) {
+				start = end;
+			}
+		}
+
+		if (!reparseBlock(source, previous, change, start)) {
+			while (end < change.newStop()) {
+				end = scanner.next();
+			}
+
+			// the old branches behind the parsed statements are only valid if an old
+			// statement has ended at the same position (e.g. the change might have
+			// removed a bracket). If the old tokens are unknown, everything behind the
+			// change is parsed again
+			PreviousTokenSource previousSource = (change.removedTokens() == null) ? null
+					: new PreviousTokenSource(source, change);
+			StatementScanner oldScanner = (previousSource == null || previousSource.hasUndecidableMacroArguments())
+					? null
+					: new StatementScanner(previousSource, size - delta, start);
+			end = nextCommonEnd(scanner, end, oldScanner, change.oldStop(), delta);
+
+			// the first branch that is not in front of the change
+			int from = findBranch(previous, start);
+			if (from < previous.branchCount() && previous.getBranch(from).firstIndex() < start) {
+				// the branches don't align with the statements -> parse everything again
+				start = 0;
+				from = 0;
+			}
+
+			int to = from;
+			while (to < previous.branchCount() && previous.getBranch(to).firstIndex() < end - delta) {
+				int last = previous.getBranch(to).lastIndex();
+
+				if (last >= end - delta) {
+					// the old branch extends behind the end of the statements
+					end = nextCommonEnd(scanner, end, oldScanner, last + 1, delta);
+				}
+
+				to++;
+			}
+
+			begin(new ParallelParser.SegmentSource(source, end), start);
+			finish();
+			IBuildableIndexTree statements = parserState.tree;
+
+			for (int i = to; i < previous.branchCount() && delta != 0; i++) {
+				previous.getBranch(i).shiftIndices(change.oldStop(), delta);
+			}
+			previous.replaceBranches(from, to, statements);
+		}
+
+		parserState.tree = previous;
+		this.source = source;
+		currentTokenIndex = size;
+
+		return previous;
+	}
+
+	/**
+	 * Finds the first position at which a top-level statement ends in both the
+	 * new and the old token sequence. Behind it both sequences are
+	 * equal and the parser is in the same state for both of them.
+	 * 
+	 * @param scanner
+	 *            The scanner of the new sequence. It has to be behind the end of a
+	 *            statement
+	 * @param end
+	 *            The position of the given scanner
+	 * @param oldScanner
+	 *            The scanner of the old sequence. It has to be behind the end of a
+	 *            statement as well. If this is <code>null</code> the end of the
+	 *            source is returned
+	 * @param oldMinimum
+	 *            The index in the old sequence the statement has to end at or
+	 *            behind
+	 * @param delta
+	 *            The difference between the new and the old index of a token behind
+	 *            the change
+	 * @return The index behind the found statement in the new sequence
+	 */
+	protected static int nextCommonEnd(StatementScanner scanner, int end, StatementScanner oldScanner,
+			int oldMinimum, int delta) {
+		if (oldScanner == null) {
+			return scanner.size;
+		}
+
+		int oldEnd = oldScanner.position();
+		while (oldEnd < oldMinimum && !oldScanner.isDone()) {
+			oldEnd = oldScanner.next();
+		}
+
+		// both scanners end up at the end of the source at the latest
+		while (end - delta != oldEnd) {
+			if (end - delta < oldEnd) {
+				end = scanner.next();
+			} else {
+				oldEnd = oldScanner.next();
+			}
+		}
+
+		return end;
+	}
+
+	/**
+	 * Tries to parse the content of the innermost <code>{...}</code> or
+	 * <code>[...]</code> block enclosing the given change again and to replace
+	 * the old content of that block with the result
+	 * 
+	 * @param source
+	 *            The token source after the change
+	 * @param previous
+	 *            The tree of the input before the change
+	 * @param change
+	 *            The range of replaced tokens
+	 * @param statementStart
+	 *            The index of the first token of the top-level statement
+	 *            containing the change
+	 * @return Whether the block has been updated. If not, the tree hasn't been
+	 *         modified
+	 */
+	protected boolean reparseBlock(ITokenSource<SQFToken> source, IBuildableIndexTree previous, TokenRange change,
+			int statementStart) {
+		int size = source.size();
+		int delta = change.insertedCount() - change.removedCount();
+
+		StatementScanner scanner = new StatementScanner(source, size, statementStart);
+		while (scanner.position() < change.start()) {
+			scanner.step();
+		}
+		if (scanner.position() != change.start()) {
+			// the change starts inside the argument list of a macro
+			return false;
+		}
+
+		int blockDepth = scanner.depth() - 1;
+		while (blockDepth >= 0 && scanner.openType(blockDepth) == ESQFTokentype.PARENTHESIS_OPEN) {
+			blockDepth--;
+		}
+		if (blockDepth < 0) {
+			return false;
+		}
+
+		int open = scanner.openBracket(blockDepth);
+		ESQFTokentype type = scanner.openType(blockDepth);
+
+		// find the bracket closing the block
+		while (!scanner.isDone() && scanner.depth() > blockDepth) {
+			scanner.step();
+		}
+		int close = scanner.position() - 1;
+		if (scanner.depth() > blockDepth || close < change.newStop()) {
+			// the block isn't closed after the change
+			return false;
+		}
+
+		// find the node of the block in the old tree
+		int branch = findBranch(previous, open);
+		if (branch == previous.branchCount()) {
+			return false;
+		}
+		IndexTreeElement node = findBracketNode(previous.getBranch(branch), open);
+		if (node == null) {
+			return false;
+		}
+
+		if (node instanceof LazyCodeBlock && !((LazyCodeBlock) node).isExpanded()) {
+			if (((LazyCodeBlock) node).getClose() != close - delta) {
+				return false;
+			}
+
+			// the content hasn't been parsed yet -> it will be parsed from the changed
+			// source once it is needed
+			((LazyCodeBlock) node).source = unwrap(source);
+
+			for (int i = branch; i < previous.branchCount() && delta != 0; i++) {
+				previous.getBranch(i).shiftIndices(change.oldStop(), delta);
+			}
+
+			return true;
+		}
+
+		if (node.getChildren().get(node.getChildrenCount() - 1).getIndex() != close - delta) {
+			return false;
+		}
+
+		IndexTreeElement content = parseBlock(source, open, close, type, node.getLevel());
+
+		for (int i = branch; i < previous.branchCount() && delta != 0; i++) {
+			previous.getBranch(i).shiftIndices(change.oldStop(), delta);
+		}
+
+		List<IndexTreeElement> children = node.getChildren();
+		children.subList(1, children.size() - 1).clear();
+		if (content.hasChildren()) {
+			children.addAll(1, content.getChildren());
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parses the content of a <code>{...}</code> or <code>[...]</code> block as it
+	 * would be parsed inside the block. All brackets inside the block have to be
+	 * closed.
+	 * 
+	 * @param source
+	 *            The token source containing the block
+	 * @param open
+	 *            The index of the opening bracket
+	 * @param close
+	 *            The index of the closing bracket
+	 * @param type
+	 *            The type of the opening bracket
+	 * @param level
+	 *            The level of the node of the block
+	 * @return An element on the given level whose children are the branches of
+	 *         the content
+	 */
+	protected IndexTreeElement parseBlock(ITokenSource<SQFToken> source, int open, int close, ESQFTokentype type,
+			int level) {
+		reset();
+		this.source = new ParallelParser.SegmentSource(source, close);
+		parserState.codeContext = (type == ESQFTokentype.CURLY_BRACKET_OPEN) ? ECodeContext.INLINE
+				: ECodeContext.ARRAY;
+		IndexTreeElement content = new IndexTreeElement(IndexTreeElement.EMPTY);
+		content.changeLevel(level);
+		pushState();
+		parserState.buildInto(content);
+
+		currentTokenIndex = open + 1;
+		proceed();
+		assert (depth == 1 && bracketStack.isEmpty());
+		popState();
+
+		return content;
+	}
+
+	/**
+	 * Finds the first branch of the given tree that doesn't end in front of the
+	 * given token index
+	 * 
+	 * @param tree
+	 *            The tree to search in
+	 * @param index
+	 *            The token index
+	 * @return The position of the found branch or the amount of branches if there
+	 *         is none
+	 */
+	protected static int findBranch(IBuildableIndexTree tree, int index) {
+		int low = 0;
+		int high = tree.branchCount();
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (tree.getBranch(middle).lastIndex() < index) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Finds the node of the bracket expression opened by the given token
+	 * 
+	 * @param element
+	 *            The element to search in
+	 * @param open
+	 *            The index of the opening bracket
+	 * @return The found node or <code>null</code> if there is none
+	 */
+	protected static IndexTreeElement findBracketNode(IndexTreeElement element, int open) {
+		if (element instanceof LazyIndexTreeElement && !((LazyIndexTreeElement) element).isExpanded()) {
+			// don't parse the content only to search it
+			return (((LazyIndexTreeElement) element).getOpen() == open) ? element : null;
+		}
+
+		if (!element.hasChildren()) {
+			return null;
+		}
+
+		List<IndexTreeElement> children = element.getChildren();
+		if (element.getIndex() == IndexTreeElement.EMPTY && children.get(0).getIndex() == open) {
+			return element;
+		}
+
+		for (int i = 0; i < children.size(); i++) {
+			IndexTreeElement current = children.get(i);
+
+			if (current.firstIndex() <= open && current.lastIndex() >= open) {
+				return findBracketNode(current, open);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Prepares this parser for parsing the given source incrementally. After this
+	 * method has been called the tokens can be processed via {@link #proceed()}
+	 * as they become available in the source. Once all tokens are available
+	 * {@link #finish()} has to be called.
+	 * 
+	 * @param source
+	 *            The token source to use for parsing
+	 * @param start
+	 *            The token index to start parsing at
+	 */
+	public void begin(ITokenSource<SQFToken> source, int start) {
+		reset();
+		this.source = source;
+
+		currentTokenIndex = start;
+	}
+
+	/**
+	 * Processes all tokens that are currently available in the source. Note that
+	 * the source has to provide the complete argument list of a macro together
+	 * with the macro itself (or at least the token following a macro without
+	 * arguments) as these are processed in one go.
+	 */
+	public void proceed() {
+		for (; !partial && source.has(currentTokenIndex); currentTokenIndex++) {
+			process(source.get(currentTokenIndex));
+		}
+	}
+
+	/**
+	 * Processes the tokens that are currently available in the source until the
+	 * given token gets cancelled. It is checked every
+	 * {@link CancellationToken#CHECK_INTERVAL} tokens. If parsing has been
+	 * cancelled, it can be continued later on by calling this method (or
+	 * {@link #proceed()}) again.
+	 * 
+	 * @param cancellation
+	 *            The token to check
+	 * @return Whether all available tokens have been processed (otherwise parsing
+	 *         has been cancelled)
+	 */
+	public boolean proceed(CancellationToken cancellation) {
+		int check = 0;
+
+		for (; !partial && source.has(currentTokenIndex); currentTokenIndex++) {
+			if (++check == CancellationToken.CHECK_INTERVAL) {
+				check = 0;
+
+				if (cancellation.isCancelled()) {
+					return false;
+				}
+			}
+
+			process(source.get(currentTokenIndex));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parses the given input from the beginning to the end unless the given token
+	 * gets cancelled. In that case parsing can be continued via
+	 * {@link #resume(CancellationToken)} (e.g. with a new time budget).
+	 * 
+	 * @param source
+	 *            The token source to use for parsing
+	 * @param cancellation
+	 *            The token to check
+	 * @return Whether the input has been parsed completely. Only in that case the
+	 *         tree is complete
+	 */
+	public boolean parse(ITokenSource<SQFToken> source, CancellationToken cancellation) {
+		begin(source, 0);
+
+		return resume(cancellation);
+	}
+
+	/**
+	 * Continues a parsing process that has been cancelled. See
+	 * {@link #parse(ITokenSource, CancellationToken)}
+	 * 
+	 * @param cancellation
+	 *            The token to check
+	 * @return Whether the input has been parsed completely
+	 */
+	public boolean resume(CancellationToken cancellation) {
+		if (!proceed(cancellation)) {
+			return false;
+		}
+
+		finish();
+		return true;
+	}
+
+	/**
+	 * Gets the index of the token that will be processed next. After parsing has
+	 * been cancelled, this is the index at which it will be resumed
+	 */
+	public int getCurrentTokenIndex() {
+		return currentTokenIndex;
+	}
+
+	/**
+	 * Processes the remaining tokens in the source and completes the parsing by
+	 * closing all pending brackets. The result of the parsing is reflected in
+	 * {@link #tree()}.
+	 * 
+	 * @return The index of the last processed token
+	 */
+	public int finish() {
+		proceed();
+
 		if (!bracketStack.isEmpty()) {
 			// merge all sub-states into the current one
-			for (SQFToken unclosedBracket : bracketStack) {
-				unbalancedBracket(true, unclosedBracket);
+			for (int i = 0; i < bracketStack.size(); i++) {
+				unbalancedBracket(true, bracketStack.get(i));
 				// "close" all pending brackets
 				closeBracket(false);
 			}
 		}
 
-		if (!states.isEmpty()) {
+		if (depth != 0) {
 			throw new IllegalStateException("There are remaining unprocessed states left!");
 		}
 
-		return size - 1;
+		if (branchConsumer != null) {
+			handOverBranches(true);
+		}
+
+		return currentTokenIndex - 1;
+	}
+
+	/**
+	 * Processes the given token which is the token at {@link #currentTokenIndex}
+	 * 
+	 * @param currentToken
+	 *            The token to process
+	 */
+	protected void process(SQFToken currentToken) {
+		switch (currentToken.operatorType()) {
+		case BINARY:
+			binary(currentToken);
+			break;
+		case UNARY:
+			unary();
+			break;
+		case NULAR:
+			nular();
+			break;
+		case MACRO:
+			macro(currentToken);
+			break;
+		case OTHER:
+			other(currentToken);
+			break;
+		}
+
+		if (currentToken.operatorType() == ESQFOperatorType.MACRO) {
+			parserState.justProcessedMacro = true;
+		} else {
+			// check what kind of token it is
+			switch (currentToken.type()) {
+			case WHITESPACE:
+				// Macros might be followed by WS
+				break;
+			default:
+				parserState.justProcessedMacro = false;
+				break;
+			}
+		}
 	}
 
 	/**
@@ -265,12 +996,34 @@ public class SQFParser {
 			break;
 		case SQUARE_BRACKET_OPEN:
 		case CURLY_BRACKET_OPEN:
+			if (lazyCodeBlocks && token.type() == ESQFTokentype.CURLY_BRACKET_OPEN && lazyCodeBlock()) {
+				break;
+			}
+
 			createBracketSubNode(token);
 			parserState.codeContext = (token.type() == ESQFTokentype.CURLY_BRACKET_OPEN) ? ECodeContext.INLINE
 					: ECodeContext.ARRAY;
+
+			// the content is built directly inside the bracket node
+			IndexTreeElement bracketNode = bracketNodes.peek();
+			pushState();
+			parserState.buildInto(bracketNode);
+
+			// remember bracket
+			bracketStack.push(token);
+			break;
 		case PARENTHESIS_OPEN:
-			states.push(parserState);
-			parserState = new ParserState(EParserArgumentState.WAITING);
+			if (parserState.argumentState == EParserArgumentState.EXPECTING) {
+				// the content is the argument of the expecting operator
+				IndexTreeElement operator = parserState.tree.get(parserState.pendingLevels.peek());
+				pushState();
+				parserState.buildInto(operator);
+			} else {
+				// the content forms new branches in the current tree
+				IBuildableIndexTree tree = parserState.tree;
+				pushState();
+				parserState.tree = tree;
+			}
 
 			// remember bracket
 			bracketStack.push(token);
@@ -302,11 +1055,11 @@ public class SQFParser {
 
 		case COMMA:
 			if (getEnclosingContext() != ECodeContext.ARRAY) {
-				errorListener.error("',' outside of array context!", token);
+				report(EDiagnosticCode.COMMA_OUTSIDE_ARRAY, token);
 			}
 		case SEMICOLON:
 			if (getEnclosingContext() == ECodeContext.ARRAY && token.type() == ESQFTokentype.SEMICOLON) {
-				errorListener.error("';' instead of ',' in array context!", token);
+				report(EDiagnosticCode.SEMICOLON_IN_ARRAY, token);
 			}
 			// end of statement
 			endStatement(token);
@@ -337,19 +1090,19 @@ public class SQFParser {
 	 *            "bracket node" to add to ({@link #bracketNodes} may not be empty)
 	 */
 	protected void closeBracket(boolean addCurrentToken) {
-		if (states.isEmpty()) {
+		if (depth == 0) {
 			// There is no magic to be done here (propably an unclosed bracket in a macro
 			// expression)
 			return;
 		}
-		ParserState subState = parserState;
-		parserState = states.pop();
 
 		if (addCurrentToken) {
-			subState.tree.newBranch(currentTokenIndex);
+			parserState.tree.newBranch(currentTokenIndex);
 		}
 
-		addSubTree(subState.tree, addCurrentToken);
+		popState();
+
+		addSubTree(addCurrentToken);
 		// clear bracket context
 		parserState.codeContext = ECodeContext.CODE;
 		if (addCurrentToken) {
@@ -371,10 +1124,57 @@ public class SQFParser {
 		parserState.pendingLevels.push(subNode.getLevel());
 	}
 
+	/**
+	 * Adds a {@linkplain LazyCodeBlock} for the code block opened by the current
+	 * token and continues behind its closing bracket. The state is updated as if
+	 * the block had been parsed.
+	 * 
+	 * @return Whether the block has been added. This is not the case if the
+	 *         closing bracket isn't (yet) available in the source
+	 */
+	protected boolean lazyCodeBlock() {
+		// the scanner tracks the brackets (and macro argument lists) the same way
+		// this parser does
+		StatementScanner scanner = new StatementScanner(source, Integer.MAX_VALUE, currentTokenIndex);
+		do {
+			scanner.step();
+		} while (!scanner.isDone() && scanner.depth() > 0);
+
+		if (scanner.depth() > 0) {
+			return false;
+		}
+
+		int close = scanner.position() - 1;
+		LazyCodeBlock block = new LazyCodeBlock(blockOwner, unwrap(source), currentTokenIndex, close);
+		if (parserState.pendingLevels.isEmpty()) {
+			parserState.tree.newBranch(block);
+		} else {
+			parserState.tree.addElement(parserState.pendingLevels.pop(), block);
+		}
+		parserState.pendingLevels.push(block.getLevel());
+
+		// the block has been "closed" right away
+		currentTokenIndex = close;
+		addSubTree(true);
+
+		return true;
+	}
+
+	/**
+	 * Gets the complete source the given one is a part of
+	 */
+	protected static ITokenSource<SQFToken> unwrap(ITokenSource<SQFToken> source) {
+		while (source instanceof ParallelParser.SegmentSource) {
+			source = ((ParallelParser.SegmentSource) source).source;
+		}
+
+		return source;
+	}
+
 	protected void endStatement(SQFToken token) {
 		switch (parserState.argumentState) {
 		case EXPECTING:
-			errorListener.error("Missing argument to the right", token);
+			report(EDiagnosticCode.MISSING_RIGHT_ARGUMENT, token);
 		case PROVIDING:
 		case WAITING:
 			// add ending token as separate branch to the tree
@@ -383,6 +1183,33 @@ public class SQFParser {
 			endBranch();
 			break;
 		}
+
+		if (branchConsumer != null && depth == 0) {
+			// the top-level statement is complete
+			handOverBranches(false);
+		}
+	}
+
+	/**
+	 * Hands the branches of the top-level tree to the {@link #branchConsumer} and
+	 * removes them from the tree afterwards
+	 * 
+	 * @param all
+	 *            Whether all branches should be handed over. Otherwise the last
+	 *            branch is kept as a following binary operator might still take it
+	 *            as its left argument (see {@link #binary(SQFToken)})
+	 */
+	protected void handOverBranches(boolean all) {
+		IBuildableIndexTree tree = states[0].tree;
+		int count = all ? tree.branchCount() : tree.branchCount() - 1;
+
+		for (int i = 0; i < count; i++) {
+			branchConsumer.accept(tree.getBranch(i));
+		}
+
+		if (count > 0) {
+			tree.replaceBranches(0, count, new IndexTree());
+		}
 	}
 
 	protected int nular() {
@@ -443,16 +1270,16 @@ public class SQFParser {
 			break;
 		case PROVIDING:
 			// check if providing block is binary and of lower precedence
-			if (!parserState.pendingBinaryOperators.isEmpty() && checkBinaryPrecedence(token.precendence())) {
-				level = parserState.tree.insert(parserState.pendingBinaryOperators.pop()[BINARY_INFO_LEVEL],
-						currentTokenIndex);
+			int pending = parserState.pendingBinaryOperators.findLowerPrecedence(token.precendence());
+			if (pending >= 0) {
+				level = parserState.tree.insert(parserState.pendingBinaryOperators.level(pending), currentTokenIndex);
 
 				// set parser state to expecting
 				parserState.argumentState = EParserArgumentState.EXPECTING;
 				// set this as current expecting block
 				parserState.pendingLevels.push(level);
 				// add this as a pending binary operator
-				parserState.pendingBinaryOperators.push(new int[] { token.precendence(), level });
+				parserState.pendingBinaryOperators.push(token.precendence(), level);
 			} else {
 				// group providing block as first child of this token
 				parserState.tree.makeTopElement(currentTokenIndex);
@@ -461,7 +1288,7 @@ public class SQFParser {
 				// set this as the current expecting block
 				parserState.pendingLevels.push(0);
 				// add this as a pending binary operator
-				parserState.pendingBinaryOperators.push(new int[] { token.precendence(), 0 });
+				parserState.pendingBinaryOperators.push(token.precendence(), 0);
 			}
 			break;
 		case WAITING:
@@ -476,37 +1303,6 @@ public class SQFParser {
 		}
 	}
 
-	/**
-	 * Checks all pending binary operators for their precedence in order to
-	 * determine if an operator with the given precedence will have to reorder the
-	 * tree by overtaking the right parameter of such an pending operator. For that
-	 * {@link #pendingBinaryOperators} will be iterated and all operators that have
-	 * higher or equal precedence are being removed from it.
-	 * 
-	 * If there is a pending operator of lower precedence, it will be the first
-	 * element in {@link #pendingBinaryOperators} after this function has returned.
-	 * Otherwise {@link #pendingBinaryOperators} will be empty
-	 * 
-	 * @param precedence
-	 *            The precedence to check against
-	 * @return Whether a pending operator with lower precedence has been found
-	 */
-	private boolean checkBinaryPrecedence(int precedence) {
-		int i = parserState.pendingBinaryOperators.size() - 1;
-		while (i >= 0) {
-			int[] current = parserState.pendingBinaryOperators.get(i--);
-
-			if (current[BINARY_INFO_PRECEDENCE] > precedence) {
-				// the new operator has higher precedence
-				// but pending operator back on stack
-				parserState.pendingBinaryOperators.push(current);
-				return true;
-			}
-		}
-
-		return false;
-	}
-
 	/**
 	 * Gets called whenever a new branch is being completed. This method cleans up
 	 * all caching that is done for a branch
@@ -530,19 +1326,19 @@ public class SQFParser {
 
 
 	/**
-	 * Adds the given sub-tree as a nular node to the tree of this parser
+	 * Treats the just closed bracket expression as a nular node in the current
+	 * state. The sub-tree of the expression has already been built in place (see
+	 * {@link #other(SQFToken)}) so that only the state has to be updated.
 	 * 
-	 * @param subTree
-	 *            The sub-tree to add
-	 * @param addToBracketNode
-	 *            Indicates whether the given sub-tree should be added to a
-	 *            (beforehand created) empty "bracket-node"
+	 * @param isBracketNode
+	 *            Indicates whether the sub-tree has been built inside a
+	 *            (beforehand created) "bracket-node"
 	 */
-	protected void addSubTree(IBuildableIndexTree subTree, boolean addToBracketNode) {
+	protected void addSubTree(boolean isBracketNode) {
 		switch (parserState.argumentState) {
 		case EXPECTING:
-			// group this token as child of expecting block
-			parserState.tree.add(parserState.pendingLevels.pop(), subTree);
+			// the sub-tree already is the child of the expecting block
+			parserState.pendingLevels.pop();
 			// switch state to providing
 			parserState.argumentState = EParserArgumentState.PROVIDING;
 			break;
@@ -553,14 +1349,8 @@ public class SQFParser {
 			endBranch();
 			// set parser state to providing
 			parserState.argumentState = EParserArgumentState.PROVIDING;
-
-			if (!addToBracketNode) {
-				// Indices greater than zero indicate a non-empty node
-				parserState.tree.merge(subTree);
-			} else {
-				// add to empty node
-				parserState.tree.add(bracketNodes.peek().getLevel(), subTree);
-			}
+			// the sub-tree already consists of new branches or is the content of the
+			// bracket node
 			break;
 		}
 	}
@@ -581,11 +1371,38 @@ public class SQFParser {
 			// terminator could be in macro -> ignore
 			return;
 		}
-		errorListener.error("Missing " + (getEnclosingContext() == ECodeContext.ARRAY ? "','" : "';'"), token);
+		report((getEnclosingContext() == ECodeContext.ARRAY) ? EDiagnosticCode.MISSING_COMMA
+				: EDiagnosticCode.MISSING_SEMICOLON, token);
 	}
 
 	protected void unbalancedBracket(boolean isOpening, SQFToken unbalanced) {
-		errorListener.error((isOpening ? "Unclosed opening bracket!" : "Unopened closing bracket!"), unbalanced);
+		report(isOpening ? EDiagnosticCode.UNCLOSED_BRACKET : EDiagnosticCode.UNOPENED_BRACKET, unbalanced);
+	}
+
+	/**
+	 * Reports a diagnostic to the {@link #diagnosticListener}. If there is none
+	 * the message is formatted and reported to the {@link #errorListener}.
+	 * 
+	 * @param code
+	 *            The kind of the diagnostic
+	 * @param token
+	 *            The token the diagnostic refers to
+	 */
+	protected void report(EDiagnosticCode code, SQFToken token) {
+		if (partial) {
+			// the current token is still being processed
+			return;
+		}
+
+		if (diagnosticListener != null) {
+			diagnosticListener.diagnostic(code, token.start(), token.stop(), EDiagnosticCode.NO_ARGUMENT);
+		} else {
+			errorListener.error(code.format(EDiagnosticCode.NO_ARGUMENT), token);
+		}
+
+		if (++reportedCount == errorBudget) {
+			partial = true;
+		}
 	}
 
 	/**
@@ -594,10 +1411,10 @@ public class SQFParser {
 	 * is assumed as a default
 	 */
 	protected ECodeContext getEnclosingContext() {
-		if (states.isEmpty()) {
+		if (depth == 0) {
 			return ECodeContext.CODE;
 		} else {
-			return states.peek().codeContext;
+			return states[depth - 1].codeContext;
 		}
 	}
 
@@ -605,11 +1422,12 @@ public class SQFParser {
 	 * Matches a macro-usage (potentially with arguments)
 	 */
 	protected void macro(SQFToken token) {
-		int size = source.size();
-
-		// determine whether the macro has arguments
-		if (size - 1 == currentTokenIndex
-				|| source.get(currentTokenIndex + 1).type() != ESQFTokentype.PARENTHESIS_OPEN) {
+		// determine whether the macro has arguments. The argument list has to follow
+		// the macro name directly - this is checked via the characters in between so
+		// that it works on token streams without whitespace tokens as well
+		if (!source.has(currentTokenIndex + 1)
+				|| source.get(currentTokenIndex + 1).type() != ESQFTokentype.PARENTHESIS_OPEN
+				|| !token.isFollowedDirectlyBy(source.get(currentTokenIndex + 1))) {
 			// no arguments for the macro -> match macro as a nular expression
 			nular();
 		} else {
@@ -653,11 +1471,11 @@ public class SQFParser {
 
 				if (openedParenthesis > 0) {
 					currentTokenIndex++;
-					if (currentTokenIndex < size) {
+					if (source.has(currentTokenIndex)) {
 						currentToken = source.get(currentTokenIndex);
 					}
 				}
-			} while (currentTokenIndex < size && openedParenthesis > 0);
+			} while (source.has(currentTokenIndex) && openedParenthesis > 0);
 
 			// set parser state to providing
 			parserState.argumentState = EParserArgumentState.PROVIDING;
@@ -671,13 +1489,44 @@ public class SQFParser {
 	 * Resets this parser so that it can start parsing again
 	 */
 	public void reset() {
-		parserState = new ParserState(EParserArgumentState.WAITING);
+		depth = 0;
+		parserState = states[0];
+		parserState.reset(new IndexTree());
 		bracketStack.clear();
 		bracketNodes.clear();
+		reportedCount = 0;
+		partial = false;
 
 		currentTokenIndex = -1;
 	}
 
+	/**
+	 * Enters a new parser state for a bracket expression. The state is taken from
+	 * the pool and has to be given its tree afterwards.
+	 */
+	protected void pushState() {
+		if (++depth == states.length) {
+			states = Arrays.copyOf(states, depth * 2);
+		}
+
+		if (states[depth] == null) {
+			states[depth] = new ParserState(EParserArgumentState.WAITING, new PendingOperatorStack(4),
+					new IntStack(4), null, ECodeContext.CODE);
+		}
+
+		parserState = states[depth];
+		parserState.reset(null);
+	}
+
+	/**
+	 * Returns to the parser state of the enclosing bracket expression. The left
+	 * state stays in the pool.
+	 */
+	protected void popState() {
+		parserState.tree = null;
+		parserState = states[--depth];
+	}
+
 	/**
 	 * Resets the error listener for this parser
 	 */
@@ -696,6 +1545,18 @@ public class SQFParser {
 		errorListener = listener;
 	}
 
+	/**
+	 * Sets the listener structured diagnostics should be reported to. As long as
+	 * it is set, the error listener is not notified and no messages are created.
+	 * 
+	 * @param listener
+	 *            The listener to report diagnostics to or <code>null</code> in
+	 *            order to report them to the error listener again
+	 */
+	public void setDiagnosticListener(IDiagnosticListener listener) {
+		diagnosticListener = listener;
+	}
+
 	/**
 	 * Whether error messages for missing terminators (';' or ',' in array context)
 	 * should get suppressed
@@ -714,4 +1575,90 @@ public class SQFParser {
 	public boolean isSuppressingMissingTerminatorErrorMessages() {
 		return suppressMissingTerminator;
 	}
+
+	/**
+	 * Sets the consumer the top-level branches should be handed to as soon as
+	 * their statement has been terminated (the last one is kept until the next
+	 * statement has been terminated). Afterwards they are removed from the tree
+	 * so that the memory needed for the tree is bounded by the biggest statement
+	 * rather than by the complete input. This applies to all ways of parsing
+	 * (including the incremental one via {@link #begin(ITokenSource, int)} that
+	 * is used by the {@linkplain ParserSink}) except for
+	 * {@link #reparse(ITokenSource, IBuildableIndexTree, TokenRange)}. When
+	 * parsing in parallel the branches are handed over once all of them are
+	 * available. After parsing has been finished all branches have been handed
+	 * over and {@link #tree()} is empty.
+	 * 
+	 * @param consumer
+	 *            The consumer to hand the branches to (in order) or
+	 *            <code>null</code> in order to keep them in the tree (default)
+	 */
+	public void setBranchConsumer(Consumer<IndexTreeElement> consumer) {
+		branchConsumer = consumer;
+	}
+
+	/**
+	 * Sets the amount of diagnostics after which parsing should stop. The rest of
+	 * the input is skipped (the pending brackets are closed without reporting
+	 * them) and the result is marked as partial (see {@link #isPartial()}). This
+	 * is meant for checking whether an input is valid without parsing all of it
+	 * if it isn't. The budget doesn't apply to
+	 * {@link #reparse(ITokenSource, IBuildableIndexTree, TokenRange)} as the
+	 * updated tree has to be complete. When parsing in parallel only the
+	 * reporting stops as the segments have been parsed already.
+	 * 
+	 * @param budget
+	 *            The amount of diagnostics to report before stopping (1 stops at
+	 *            the first one) or 0 in order to parse everything (default)
+	 */
+	public void setErrorBudget(int budget) {
+		if (budget < 0) {
+			throw new IllegalArgumentException("The error budget may not be negative");
+		}
+
+		errorBudget = budget;
+	}
+
+	/**
+	 * Gets the amount of diagnostics after which parsing stops (0 if it never
+	 * stops)
+	 */
+	public int getErrorBudget() {
+		return errorBudget;
+	}
+
+	/**
+	 * Checks whether the last parsing has been stopped because the error budget
+	 * has been used up. In that case the tree only covers the input up to the
+	 * token that caused the last reported diagnostic
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+
+	/**
+	 * Sets whether the content of code blocks (<code>{...}</code>) should only be
+	 * parsed once it is needed. In this mode a code block is added to the tree as
+	 * a placeholder node that only knows the indices of its brackets. Its content
+	 * is parsed (with the settings of this parser at that time) when its children
+	 * are accessed for the first time and is kept from then on. Diagnostics inside
+	 * a code block are therefore only reported once it has been expanded.<br>
+	 * The placeholders refer to the parsed source so it must not be changed
+	 * unless the tree is updated via
+	 * {@link #reparse(ITokenSource, IBuildableIndexTree, TokenRange)}.
+	 * 
+	 * @param lazy
+	 *            Whether to parse code blocks lazily
+	 */
+	public void setLazyCodeBlocks(boolean lazy) {
+		lazyCodeBlocks = lazy;
+	}
+
+	/**
+	 * Indicates whether the content of code blocks is only parsed once it is
+	 * needed
+	 */
+	public boolean isParsingCodeBlocksLazily() {
+		return lazyCodeBlocks;
+	}
 }
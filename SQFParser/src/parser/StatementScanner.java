@@ -0,0 +1,218 @@
+package parser;
+
+import dataStructures.ESQFOperatorType;
+import dataStructures.ESQFTokentype;
+import dataStructures.ITokenSource;
+import dataStructures.IntStack;
+import dataStructures.SQFToken;
+
+/**
+ * Scans a token sequence for the ends of top-level statements without parsing
+ * it. A statement ends with a semicolon outside of any brackets. The brackets
+ * are tracked the same way as the {@linkplain SQFParser} does it: a closing
+ * bracket only closes the innermost bracket if it is of the matching kind and
+ * the argument list of a macro is skipped as a whole (see
+ * {@link SQFParser#macro(SQFToken)}). Behind the end of a top-level statement
+ * the parser state only differs from the one at the start of the input by the
+ * branches that have been built so far. These are only looked at again if the
+ * next statement starts with a parenthesis (see {@link #isIndependent()}).
+ *
+ * @author Raven
+ *
+ */
+class StatementScanner {
+
+	/**
+	 * All token types by their ordinal
+	 */
+	private static final ESQFTokentype[] TYPES = ESQFTokentype.values();
+
+	/**
+	 * The source to scan
+	 */
+	protected final ITokenSource<SQFToken> source;
+	/**
+	 * The amount of tokens in the source. Sources that don't know their size yet
+	 * may be scanned with {@link Integer#MAX_VALUE} instead in which case the
+	 * scanning stops at the first token that isn't available
+	 */
+	protected final int size;
+	/**
+	 * The index of the next token to scan
+	 */
+	protected int position;
+	/**
+	 * The indices of the currently open brackets
+	 */
+	protected final IntStack openBrackets;
+	/**
+	 * The types (ordinals) of the brackets in {@link #openBrackets}
+	 */
+	protected final IntStack openTypes;
+
+
+	/**
+	 * @param source
+	 *            The source to scan
+	 * @param size
+	 *            The amount of tokens in the source
+	 * @param start
+	 *            The index of the token to start at. It has to be the start of a
+	 *            top-level statement
+	 */
+	StatementScanner(ITokenSource<SQFToken> source, int size, int start) {
+		this.source = source;
+		this.size = size;
+		position = start;
+		openBrackets = new IntStack();
+		openTypes = new IntStack();
+	}
+
+	/**
+	 * Scans the next token (or the next macro together with its argument list)
+	 *
+	 * @return Whether a top-level statement has been ended by the scanned token
+	 */
+	boolean step() {
+		SQFToken current = source.get(position);
+
+		if (current.operatorType() == ESQFOperatorType.MACRO && position + 1 < size
+				&& source.has(position + 1) && source.get(position + 1).type() == ESQFTokentype.PARENTHESIS_OPEN
+				&& current.isFollowedDirectlyBy(source.get(position + 1))) {
+			// skip the argument list
+			int openedParenthesis = 0;
+			position++;
+			do {
+				ESQFTokentype type = source.get(position).type();
+				if (type == ESQFTokentype.PARENTHESIS_OPEN) {
+					openedParenthesis++;
+				} else if (type == ESQFTokentype.PARENTHESIS_CLOSE) {
+					openedParenthesis--;
+				}
+
+				position++;
+			} while (!isDone() && openedParenthesis > 0);
+
+			return false;
+		}
+
+		switch (current.type()) {
+		case PARENTHESIS_OPEN:
+		case SQUARE_BRACKET_OPEN:
+		case CURLY_BRACKET_OPEN:
+			openBrackets.push(position);
+			openTypes.push(current.type().ordinal());
+			break;
+		case PARENTHESIS_CLOSE:
+			close(ESQFTokentype.PARENTHESIS_OPEN);
+			break;
+		case SQUARE_BRACKET_CLOSE:
+			close(ESQFTokentype.SQUARE_BRACKET_OPEN);
+			break;
+		case CURLY_BRACKET_CLOSE:
+			close(ESQFTokentype.CURLY_BRACKET_OPEN);
+			break;
+		case SEMICOLON:
+			position++;
+			return openBrackets.isEmpty();
+		default:
+			break;
+		}
+
+		position++;
+		return false;
+	}
+
+	/**
+	 * Closes the innermost open bracket if it is of the given kind
+	 */
+	private void close(ESQFTokentype opener) {
+		if (!openTypes.isEmpty() && openTypes.peek() == opener.ordinal()) {
+			openBrackets.pop();
+			openTypes.pop();
+		}
+	}
+
+	/**
+	 * Scans until the end of the current top-level statement
+	 *
+	 * @return The index behind the statement's semicolon or the size of the
+	 *         source if the end has been reached
+	 */
+	int next() {
+		while (!isDone()) {
+			if (step()) {
+				return position;
+			}
+		}
+
+		return position;
+	}
+
+	/**
+	 * Checks whether the statement starting at the current position can be parsed
+	 * without knowing the branches in front of it. This is not the case if it
+	 * starts with a parenthesis (or a token the parser ignores): if no branch is
+	 * created until the parenthesis is closed, a following binary operator takes
+	 * the last branch of the previous statement as its left argument (see
+	 * {@link SQFParser#binary(SQFToken)}).
+	 */
+	boolean isIndependent() {
+		for (int i = position; i < size && source.has(i); i++) {
+			SQFToken current = source.get(i);
+
+			switch (current.type()) {
+			case WHITESPACE:
+			case COMMENT:
+			case PREPROCESSOR:
+				continue;
+			case SQUARE_BRACKET_OPEN:
+			case CURLY_BRACKET_OPEN:
+			case SEMICOLON:
+			case COMMA:
+				return true;
+			default:
+				return current.operatorType() != ESQFOperatorType.OTHER;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the index of the next token to scan
+	 */
+	int position() {
+		return position;
+	}
+
+	/**
+	 * Checks whether all tokens have been scanned
+	 */
+	boolean isDone() {
+		return position >= size || !source.has(position);
+	}
+
+	/**
+	 * Gets the amount of currently open brackets
+	 */
+	int depth() {
+		return openBrackets.size();
+	}
+
+	/**
+	 * Gets the index of the open bracket on the given depth (0 being the
+	 * outermost one)
+	 */
+	int openBracket(int depth) {
+		return openBrackets.get(depth);
+	}
+
+	/**
+	 * Gets the type of the open bracket on the given depth (0 being the outermost
+	 * one)
+	 */
+	ESQFTokentype openType(int depth) {
+		return TYPES[openTypes.get(depth)];
+	}
+}
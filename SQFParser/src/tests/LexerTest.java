@@ -3,26 +3,56 @@ package tests;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import dataStructures.BracketPairBuffer;
+import dataStructures.CancellationToken;
+import dataStructures.CharArrayBuffer;
+import dataStructures.CharArrayInputStream;
 import dataStructures.CharacterInputStream;
+import dataStructures.CommandTable;
+import dataStructures.DiagnosticCollector;
+import dataStructures.EDiagnosticCode;
 import dataStructures.ESQFOperatorType;
 import dataStructures.ESQFTokentype;
 import dataStructures.IErrorListener;
+import dataStructures.ITokenSource;
+import dataStructures.PackedTokenBuffer;
 import dataStructures.SQFTestTokenFactory;
 import dataStructures.SQFToken;
+import dataStructures.SignificantTokenIndex;
+import dataStructures.StringLiteralTable;
+import dataStructures.SymbolTable;
 import dataStructures.TokenBuffer;
+import dataStructures.TokenBufferSink;
+import dataStructures.TokenRange;
+import dataStructures.TokenStatisticsSink;
+import dataStructures.TriviaBuffer;
+import lexer.LexerCheckpoint;
 import lexer.SQFLexer;
+import lexer.SQFLexer.ETriviaMode;
 
 class LexerTest {
 
@@ -760,6 +790,729 @@ class LexerTest {
 				ESQFTokentype.SUBSTRING_END }, tokenTypes, "Wrong token types");
 	}
 
+	@Test
+	void packedTokenBuffer() throws IOException {
+		for (String file : new String[] { "LexerInput01", "SQFSnippet01.sqf", "SQFSnippet02.sqf" }) {
+			lexer.lex(new CharacterInputStream(new FileInputStream(new File(LEXER_FILE_PATH + file))));
+			TokenBuffer<SQFToken> expected = lexer.getTokens();
+
+			PackedTokenBuffer packed = new PackedTokenBuffer(4);
+			lexer.lex(new CharacterInputStream(new FileInputStream(new File(LEXER_FILE_PATH + file))), packed);
+
+			assertEquals(0, lexer.getTokens().size(), "Tokens should only have been emitted to the packed buffer!");
+			assertSameTokens(expected, packed);
+
+			PackedTokenBuffer.Cursor cursor = packed.cursor();
+			int count = 0;
+			do {
+				assertEquals(count, cursor.index(), "Cursor is at the wrong index!");
+				assertEquals(expected.get(count).type(), cursor.type(), "Wrong token type!");
+				assertEquals(expected.get(count).getText(), cursor.getText(), "Wrong token text!");
+				count++;
+			} while (cursor.next());
+			assertEquals(expected.size(), count, "Cursor didn't visit all tokens!");
+		}
+	}
+
+	@Test
+	void triviaModes() throws IOException {
+		lexer.lex(new CharacterInputStream(new FileInputStream(new File(LEXER_FILE_PATH + "SQFSnippet02.sqf"))));
+		TokenBuffer<SQFToken> all = lexer.getTokens();
+
+		lexer.setTriviaMode(ETriviaMode.SEPARATE);
+		lexer.lex(new CharacterInputStream(new FileInputStream(new File(LEXER_FILE_PATH + "SQFSnippet02.sqf"))));
+		TokenBuffer<SQFToken> significant = lexer.getTokens();
+		TriviaBuffer trivia = lexer.getTrivia();
+
+		assertEquals(all.size(), significant.size() + trivia.size(), "Tokens got lost!");
+		assertTrue(trivia.size() > 0, "There should be trivia in the input!");
+
+		// recover the full token sequence
+		int triviaIndex = 0;
+		int allIndex = 0;
+		for (int i = 0; i <= significant.size(); i++) {
+			for (; triviaIndex < trivia.size() && trivia.anchor(triviaIndex) == i; triviaIndex++) {
+				assertEquals(all.get(allIndex).type(), trivia.type(triviaIndex), "Wrong trivia type!");
+				assertEquals(all.get(allIndex).start(), trivia.start(triviaIndex), "Wrong trivia start!");
+				assertEquals(all.get(allIndex++).stop(), trivia.stop(triviaIndex), "Wrong trivia end!");
+			}
+			assertEquals(triviaIndex, trivia.firstLeading(i + 1), "Wrong leading trivia lookup");
+
+			if (i < significant.size()) {
+				assertNotEquals(ESQFTokentype.WHITESPACE, significant.get(i).type(), "Unexpected trivia!");
+				assertNotEquals(ESQFTokentype.COMMENT, significant.get(i).type(), "Unexpected trivia!");
+				assertEquals(all.get(allIndex++).start(), significant.get(i).start(), "Wrong token start!");
+			}
+		}
+		assertEquals(all.size(), allIndex, "Not all tokens have been recovered!");
+
+		lexer.setTriviaMode(ETriviaMode.DROP);
+		lexer.lex(new CharacterInputStream(new FileInputStream(new File(LEXER_FILE_PATH + "SQFSnippet02.sqf"))));
+
+		assertEquals(0, lexer.getTrivia().size(), "Trivia should have been dropped!");
+		assertSameTokens(significant, lexer.getTokens());
+
+		lexer.setTriviaMode(ETriviaMode.KEEP);
+	}
+
+	@Test
+	void parallelLexing() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		for (String file : new String[] { "LexerInput01", "SQFSnippet01.sqf", "SQFSnippet02.sqf",
+				"SQFSnippet03.sqf" }) {
+			builder.append(new String(Files.readAllBytes(new File(LEXER_FILE_PATH + file).toPath()),
+					StandardCharsets.UTF_8));
+			builder.append('\n');
+		}
+		// constructs spanning multiple lines so that splits will be mis-speculated
+		builder.append("a = \"multi\nline\nstring\";\n/* multi\nline\ncomment */\n#ifdef X\nb = 2;\n#endif\n");
+		builder.append("#define Y \\\ncontinued\nc = 'x\n#include \"a\"\ny';\n` error\n5..3\n");
+		String text = builder.toString();
+
+		List<String> expectedErrors = new ArrayList<>();
+		lexer.setErrorListener(new IErrorListener() {
+
+			@Override
+			public void error(String msg, SQFToken token) {
+				expectedErrors.add(msg + token.start());
+			}
+		});
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+		TokenBuffer<SQFToken> expected = lexer.getTokens();
+		Integer[] expectedLines = lexer.getNewlineIndicesAsArray();
+		List<Double> expectedValues = new ArrayList<>();
+		List<Integer> expectedPartners = new ArrayList<>();
+		List<String> expectedStrings = new ArrayList<>();
+		for (int i = 0; i < expected.size(); i++) {
+			expectedValues.add(lexer.numberValue(i));
+			expectedPartners.add(lexer.getBracketPairs().partner(i));
+			expectedStrings.add(lexer.stringValue(i));
+		}
+
+		assertFalse(expectedErrors.isEmpty(), "The input should produce errors!");
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int chunkSize : new int[] { 1, 7, 64, 1024 }) {
+				List<String> errors = new ArrayList<>();
+				lexer.setErrorListener(new IErrorListener() {
+
+					@Override
+					public void error(String msg, SQFToken token) {
+						errors.add(msg + token.start());
+					}
+				});
+				lexer.lexParallel(text, pool, SQFTestTokenFactory::new, chunkSize);
+
+				assertSameTokens(expected, lexer.getTokens());
+				assertArrayEquals(expectedLines, lexer.getNewlineIndicesAsArray(), "Wrong line indices");
+				for (int i = 0; i < expected.size(); i++) {
+					assertEquals(expectedValues.get(i), lexer.numberValue(i), "Wrong number value");
+					assertEquals(expectedPartners.get(i), lexer.getBracketPairs().partner(i), "Wrong bracket partner");
+					assertEquals(expectedStrings.get(i), lexer.stringValue(i), "Wrong String value");
+				}
+				assertEquals(expectedErrors, errors, "Wrong errors");
+
+				// a used up budget only stops the reporting as the chunks are complete
+				errors.clear();
+				lexer.setErrorBudget(1);
+				lexer.lexParallel(text, pool, SQFTestTokenFactory::new, chunkSize);
+				lexer.setErrorBudget(0);
+
+				assertSameTokens(expected, lexer.getTokens());
+				assertEquals(expectedErrors.subList(0, 1), errors, "Wrong errors");
+				assertFalse(lexer.isPartial(), "The result shouldn't be partial");
+			}
+		} finally {
+			pool.shutdown();
+			lexer.resetListener();
+		}
+	}
+
+	@Test
+	void concurrentLexing() throws Exception {
+		StringBuilder builder = new StringBuilder();
+		for (String file : new String[] { "LexerInput01", "SQFSnippet01.sqf", "SQFSnippet02.sqf",
+				"SQFSnippet03.sqf" }) {
+			builder.append(new String(Files.readAllBytes(new File(LEXER_FILE_PATH + file).toPath()),
+					StandardCharsets.UTF_8));
+			builder.append('\n');
+		}
+		String text = builder.toString();
+
+		SQFLexer sequential = new SQFLexer();
+		sequential.setTokenFactory(new SQFTestTokenFactory());
+		sequential.lex(new CharArrayInputStream(new CharArrayBuffer(text)));
+		TokenBuffer<SQFToken> expected = sequential.getTokens();
+
+		CommandTable commands = new SQFTestTokenFactory().getCommandTable();
+		assertSame(commands, new SQFTestTokenFactory().getCommandTable(), "The command table should be shared");
+		assertEquals(SymbolTable.ASSIGNMENT, commands.lookup("="), "Wrong symbol of the assignment");
+		assertEquals(6, commands.precedence(commands.lookup("==")), "Wrong precedence");
+		assertEquals(ESQFOperatorType.UNARY, commands.operatorType(commands.lookup("HINT")), "Wrong operator type");
+
+		int threads = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<TokenBuffer<SQFToken>>> results = new ArrayList<>();
+
+			for (int i = 0; i < threads * 4; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+
+					// every thread uses its own lexer and factory but they share the command table
+					SQFLexer current = new SQFLexer();
+					current.setTokenFactory(new SQFTestTokenFactory());
+					current.lex(new CharArrayInputStream(new CharArrayBuffer(text)));
+
+					return current.getTokens();
+				}));
+			}
+			start.countDown();
+
+			for (Future<TokenBuffer<SQFToken>> current : results) {
+				assertSameTokens(expected, current.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void checkpoints() throws IOException, ClassNotFoundException {
+		StringBuilder builder = new StringBuilder();
+		for (String file : new String[] { "LexerInput01", "SQFSnippet01.sqf", "SQFSnippet02.sqf",
+				"SQFSnippet03.sqf" }) {
+			builder.append(new String(Files.readAllBytes(new File(LEXER_FILE_PATH + file).toPath()),
+					StandardCharsets.UTF_8));
+			builder.append('\n');
+		}
+		builder.append("a = \"multi\n#include \"x\"\nstring\";\n/* multi\nline */\n#ifdef X\nb = [(2;\n#endif\n");
+		CharArrayBuffer text = new CharArrayBuffer(builder.toString());
+
+		for (ETriviaMode mode : new ETriviaMode[] { ETriviaMode.KEEP, ETriviaMode.SEPARATE }) {
+			SQFLexer full = new SQFLexer();
+			full.setTokenFactory(new SQFTestTokenFactory());
+			full.setTriviaMode(mode);
+			full.setCheckpointInterval(16, true);
+			full.lex(new CharArrayInputStream(text));
+
+			TokenBuffer<SQFToken> expected = full.getTokens();
+			Integer[] expectedLines = full.getNewlineIndicesAsArray();
+			List<Integer> expectedPartners = new ArrayList<>();
+			for (int i = 0; i < expected.size(); i++) {
+				expectedPartners.add(full.getBracketPairs().partner(i));
+			}
+			List<LexerCheckpoint> checkpoints = new ArrayList<>(full.getCheckpoints());
+
+			assertTrue(checkpoints.size() > 10, "Too few checkpoints");
+			assertEquals(0, checkpoints.get(0).offset(), "The first checkpoint should be at the start");
+			for (int i = 1; i < checkpoints.size(); i++) {
+				assertTrue(checkpoints.get(i - 1).offset() < checkpoints.get(i).offset(), "Unordered checkpoints");
+			}
+
+			for (LexerCheckpoint checkpoint : checkpoints) {
+				// checkpoints can be stored and restored
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+					out.writeObject(checkpoint);
+				}
+				LexerCheckpoint restored;
+				try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+					restored = (LexerCheckpoint) in.readObject();
+				}
+				assertEquals(checkpoint.tokenIndex(), full.getCheckpoint(checkpoint.offset()).tokenIndex(),
+						"Wrong checkpoint for the offset");
+
+				// resuming on a fresh lexer only lexes the text behind the checkpoint
+				SQFLexer fresh = new SQFLexer();
+				fresh.setTokenFactory(new SQFTestTokenFactory());
+				fresh.setTriviaMode(mode);
+				fresh.lexFrom(restored, new CharArrayInputStream(text));
+
+				assertEquals(restored.tokenIndex(), fresh.getTokenBase(), "Wrong token base");
+				assertEquals(expected.size() - restored.tokenIndex(), fresh.size(), "Wrong number of tokens");
+				for (int i = 0; i < fresh.size(); i++) {
+					SQFToken expectedToken = expected.get(restored.tokenIndex() + i);
+
+					assertEquals(expectedToken.type(), fresh.get(i).type(), "Wrong token type");
+					assertEquals(expectedToken.start(), fresh.get(i).start(), "Wrong start index");
+					assertEquals(expectedToken.stop(), fresh.get(i).stop(), "Wrong end index");
+				}
+				assertEquals(Arrays.asList(expectedLines).subList(restored.lineIndex() - 1, expectedLines.length),
+						fresh.getNewlineIndices(), "Wrong line indices");
+
+				// resuming on a lexer that has lexed up to the checkpoint gives the full result
+				full.lexFrom(restored, new CharArrayInputStream(text));
+
+				assertSameTokens(expected, full.getTokens());
+				assertArrayEquals(expectedLines, full.getNewlineIndicesAsArray(), "Wrong line indices");
+				for (int i = 0; i < expected.size(); i++) {
+					assertEquals(expectedPartners.get(i), full.getBracketPairs().partner(i), "Wrong bracket partner");
+				}
+				assertEquals(checkpoints.size(), full.getCheckpoints().size(), "Wrong number of checkpoints");
+			}
+		}
+	}
+
+	@Test
+	void diagnostics() throws IOException {
+		String text = "` error\n5..3\n1e+x\n$ \n. a & b | c\n";
+
+		List<String> expected = new ArrayList<>();
+		lexer.setErrorListener(new IErrorListener() {
+
+			@Override
+			public void error(String msg, SQFToken token) {
+				expected.add(msg + " " + token.start() + "-" + token.stop());
+			}
+		});
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+		lexer.resetListener();
+
+		DiagnosticCollector diagnostics = new DiagnosticCollector(1);
+		lexer.setDiagnosticListener(diagnostics);
+		try {
+			lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+		} finally {
+			lexer.setDiagnosticListener(null);
+		}
+
+		assertEquals(10, diagnostics.size(), "Wrong number of diagnostics");
+		assertEquals(expected.size(), diagnostics.size(), "Wrong number of diagnostics");
+		for (int i = 0; i < diagnostics.size(); i++) {
+			assertEquals(expected.get(i), diagnostics.message(i) + " " + diagnostics.start(i) + "-" + diagnostics.end(i),
+					"Wrong diagnostic");
+		}
+		assertEquals(EDiagnosticCode.RECOGNITION_ERROR, diagnostics.code(0), "Wrong diagnostic code");
+		assertEquals('`', diagnostics.argument(0), "Wrong diagnostic argument");
+		assertEquals(EDiagnosticCode.MISSING_EXPONENT_DIGITS, diagnostics.code(3), "Wrong diagnostic code");
+		assertEquals(1, diagnostics.count(EDiagnosticCode.MISSING_SECOND_PIPE), "Wrong diagnostic count");
+	}
+
+	@Test
+	void stringLiterals() throws IOException {
+		String text = "a = \"x\"; b = \"x\"; c = 'it''s'; d = \"say \"\"hi\"\"\"; e = 'x';\n"
+				+ "f = \"multi\n#include \"g\"\nline\"\"s\";";
+
+		StringLiteralTable table = new StringLiteralTable(1);
+		SQFLexer first = new SQFLexer();
+		first.setTokenFactory(new SQFTestTokenFactory());
+		first.setTriviaMode(ETriviaMode.DROP);
+		first.setStringLiterals(table);
+		first.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+
+		// a = "x" ; b = "x" ; c = 'it''s' ; d = "say ""hi""" ; e = 'x' ; f = "multi #include line""s" ;
+		assertEquals("x", first.stringValue(2), "Wrong value");
+		assertEquals(first.getLiteralIds().get(2), first.getLiteralIds().get(6), "Literals should be deduplicated");
+		assertSame(first.stringValue(2), first.stringValue(6), "Literals should be unescaped only once");
+		assertEquals("it's", first.stringValue(10), "Wrong value");
+		assertEquals("say \"hi\"", first.stringValue(14), "Wrong value");
+		assertEquals("x", first.stringValue(18), "Wrong value");
+		assertEquals(first.getLiteralIds().get(2), first.getLiteralIds().get(18), "Equal values should share an ID");
+		assertEquals(ESQFTokentype.SUBSTRING, first.get(22).type(), "Wrong token type");
+		assertEquals("multi\n", first.stringValue(22), "Wrong value");
+		assertNull(first.stringValue(23), "A preprocessor statement is no literal");
+		assertEquals("line\"s", first.stringValue(24), "Wrong value");
+		assertNull(first.stringValue(0), "An ID is no literal");
+		assertEquals(StringLiteralTable.NO_LITERAL, first.getLiteralIds().get(1), "An operator is no literal");
+
+		// the table can be shared between files
+		int size = table.size();
+		SQFLexer second = new SQFLexer();
+		second.setTokenFactory(new SQFTestTokenFactory());
+		second.setStringLiterals(table);
+		second.lex(new CharacterInputStream(new ByteArrayInputStream("hint \"x\"".getBytes())));
+
+		assertEquals(size, table.size(), "The literal should have been known already");
+		assertEquals(first.getLiteralIds().get(2), second.getLiteralIds().get(2), "Literals should be deduplicated");
+
+		// a shared table is left alone by a reset
+		second.reset(false);
+		assertEquals(size, table.size(), "A shared table should not be cleared");
+
+		// the lexer's own table doesn't grow with every edit
+		SQFLexer own = new SQFLexer();
+		own.setTokenFactory(new SQFTestTokenFactory());
+		own.lex(new CharArrayInputStream(new CharArrayBuffer("a = \"x\"; b = 'x';")));
+		String value = "x";
+		for (int i = 0; i < 1000; i++) {
+			own.relex(5, value.length(), value = String.valueOf(i));
+		}
+		assertTrue(own.getStringLiterals().size() < 1000, "Unreferenced literals should have been removed");
+		assertEquals("999", own.stringValue(4), "Wrong value after compaction");
+		assertEquals("x", own.stringValue(11), "Wrong value after compaction");
+
+		own.reset(false);
+		assertEquals(0, own.getStringLiterals().size(), "The lexer's own table should be cleared");
+	}
+
+	@Test
+	void numberValues() throws IOException {
+		String[] decimals = new String[] { "12", "0.5", ".25", "1e3", "1.5E-2", "2e+4", "0.1", "3.14159", "007",
+				"123456789012345678901234", "1.7976931348623157e308", "4.9e-324", "0.000000000000000000000000001",
+				"9007199254740993", "1.5e22", "1.5e23", "846253187.48556989", "0.12345678901234567",
+				"9007199254.740993", "999999999999999999", "0.18014398509481985e5" };
+
+		StringBuilder builder = new StringBuilder();
+		for (String current : decimals) {
+			builder.append(current).append(" ");
+		}
+		builder.append("0x1F $ff 0XABCDEF _id");
+
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(builder.toString().getBytes())));
+		assertEquals(lexer.size(), lexer.getNumberValues().size(), "Wrong amount of values");
+
+		for (int i = 0; i < decimals.length; i++) {
+			assertEquals(ESQFTokentype.NUMBER, lexer.get(i * 2).type(), "Wrong token type!");
+			assertEquals(Double.parseDouble(decimals[i]), lexer.numberValue(i * 2), "Wrong value of " + decimals[i]);
+			assertTrue(Double.isNaN(lexer.numberValue(i * 2 + 1)), "Whitespace should not have a value");
+		}
+
+		int index = decimals.length * 2;
+		assertEquals(0x1F, lexer.numberValue(index), "Wrong hex value");
+		assertEquals(0xff, lexer.numberValue(index + 2), "Wrong hex value");
+		assertEquals(0xABCDEF, lexer.numberValue(index + 4), "Wrong hex value");
+		assertTrue(Double.isNaN(lexer.numberValue(index + 6)), "An ID should not have a value");
+
+		// an incomplete exponent at the end of an edited input
+		for (String text : new String[] { "a = 12", "a = 1." }) {
+			lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())));
+			lexer.relex(5, 1, "e");
+			assertEquals(5, lexer.size(), "Wrong amount of tokens");
+			assertEquals(1, lexer.numberValue(4), "Wrong value after editing " + text);
+		}
+
+		lexer.reset(true);
+	}
+
+	@Test
+	void bracketPairs() throws IOException {
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("[1,(2)]{x}(]{(}".getBytes())));
+		BracketPairBuffer pairs = lexer.getBracketPairs();
+		int[] expected = new int[] { 6, BracketPairBuffer.NO_BRACKET, BracketPairBuffer.NO_BRACKET, 5,
+				BracketPairBuffer.NO_BRACKET, 3, 0, 9, BracketPairBuffer.NO_BRACKET, 7, BracketPairBuffer.UNBALANCED,
+				BracketPairBuffer.UNBALANCED, 14, BracketPairBuffer.UNBALANCED, 12 };
+
+		assertEquals(expected.length, pairs.size(), "Wrong amount of tokens");
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], pairs.partner(i), "Wrong partner of token " + i);
+		}
+		assertEquals(1, pairs.depth(), "Wrong amount of open brackets");
+		assertTrue(pairs.isUnbalanced(10), "Bracket should be unbalanced");
+	}
+
+	@Test
+	void tokenSinks() throws IOException {
+		lexer.lex(new CharacterInputStream(new FileInputStream(new File(LEXER_FILE_PATH + "SQFSnippet02.sqf"))));
+		TokenBuffer<SQFToken> expected = lexer.getTokens();
+
+		TokenBufferSink buffer = new TokenBufferSink();
+		lexer.lex(new CharacterInputStream(new FileInputStream(new File(LEXER_FILE_PATH + "SQFSnippet02.sqf"))),
+				buffer);
+		assertSameTokens(expected, buffer.getTokens());
+		assertEquals(0, lexer.size(), "The tokens should only be available via the sink!");
+
+		TokenStatisticsSink statistics = new TokenStatisticsSink();
+		lexer.lex(new CharacterInputStream(new FileInputStream(new File(LEXER_FILE_PATH + "SQFSnippet02.sqf"))),
+				statistics);
+		assertEquals(expected.size(), statistics.total(), "Wrong amount of tokens");
+
+		for (ESQFTokentype type : ESQFTokentype.values()) {
+			int count = 0;
+			long characters = 0;
+			for (int i = 0; i < expected.size(); i++) {
+				if (expected.get(i).type() == type) {
+					count++;
+					characters += expected.get(i).length();
+				}
+			}
+
+			assertEquals(count, statistics.count(type), "Wrong amount of " + type + " tokens");
+			assertEquals(characters, statistics.characters(type), "Wrong amount of " + type + " characters");
+		}
+		assertTrue(statistics.count(ESQFOperatorType.BINARY) > 0, "There should be binary operators in the input!");
+	}
+
+	@Test
+	void bulkScanning() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		for (String file : new String[] { "LexerInput01", "SQFSnippet01.sqf", "SQFSnippet02.sqf",
+				"SQFSnippet03.sqf" }) {
+			builder.append(new String(Files.readAllBytes(new File(LEXER_FILE_PATH + file).toPath()),
+					StandardCharsets.UTF_8));
+			builder.append('\n');
+		}
+		builder.append("/* a **/ b */ \t\r\n \u00A0\u2003x = 'it''s\n  #define Y\n' + \"\"\"\" // end\n");
+
+		for (String text : new String[] { builder.toString(), "/* open *", "/* open", "\"open\n", "// end", " \n\n " }) {
+			List<String> expectedErrors = new ArrayList<>();
+			lexer.setErrorListener(new IErrorListener() {
+
+				@Override
+				public void error(String msg, SQFToken token) {
+					expectedErrors.add(msg + token.start());
+				}
+			});
+			lexer.setBulkScanning(false);
+			lexer.lex(new CharArrayInputStream(new CharArrayBuffer(text)));
+			TokenBuffer<SQFToken> expected = lexer.getTokens();
+			Integer[] expectedLines = lexer.getNewlineIndicesAsArray();
+
+			List<String> errors = new ArrayList<>();
+			lexer.setErrorListener(new IErrorListener() {
+
+				@Override
+				public void error(String msg, SQFToken token) {
+					errors.add(msg + token.start());
+				}
+			});
+			lexer.setBulkScanning(true);
+			lexer.lex(new CharArrayInputStream(new CharArrayBuffer(text)));
+
+			assertSameTokens(expected, lexer.getTokens());
+			assertArrayEquals(expectedLines, lexer.getNewlineIndicesAsArray(), "Wrong line indices");
+			assertEquals(expectedErrors, errors, "Wrong errors");
+		}
+
+		lexer.resetListener();
+	}
+
+	@Test
+	void incrementalRelexing() throws IOException {
+		String initial = "private _a = 12.5 + foo;\n/* multi\nline comment */\nb = \"string\n#include \"x\"\n end\";\n"
+				+ "#ifdef X\nc = 1;\n#endif\nd = [1, 2] select 0; // end";
+		// { search string, offset inside the match (-1 for the end of the text), removed length, inserted text }
+		String[][] edits = new String[][] { { "12.5", "2", "0", "7" }, { "foo", "0", "3", "\"open" },
+				{ "\"open", "0", "1", "" }, { "comment", "0", "0", "*/ " }, { "*/ ", "0", "3", "" },
+				{ "#include", "1", "0", " " }, { "# include", "1", "1", "" }, { "#ifdef", "0", "0", "\n" },
+				{ ";", "0", "0", "`" }, { "select", "0", "6", "+" }, { "", "-1", "0", "\nfinal = 1;" },
+				{ "private", "0", "8", "" }, { "\n", "0", "1", "" }, { "X", "0", "1", "\"" } };
+
+		SQFTestTokenFactory factory = new SQFTestTokenFactory();
+		SQFLexer full = new SQFLexer();
+		full.setTokenFactory(factory);
+
+		for (ETriviaMode mode : ETriviaMode.values()) {
+			SQFLexer incremental = new SQFLexer();
+			incremental.setTokenFactory(factory);
+			incremental.setTriviaMode(mode);
+			full.setTriviaMode(mode);
+
+			String text = initial;
+			if (mode == ETriviaMode.DROP) {
+				// the tokens of a parallel lexer have to be moved to an editable buffer first
+				incremental.lexParallel(text, ForkJoinPool.commonPool(), SQFTestTokenFactory::new, 16);
+			} else {
+				incremental.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+			}
+
+			for (String[] edit : edits) {
+				int offset = edit[1].equals("-1") ? text.length() : text.indexOf(edit[0]) + Integer.parseInt(edit[1]);
+				int removed = Integer.parseInt(edit[2]);
+				text = text.substring(0, offset) + edit[3] + text.substring(offset + removed);
+
+				int tokenCount = incremental.size();
+				TokenRange range = incremental.relex(offset, removed, edit[3]);
+				full.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+
+				String description = mode + " edit at " + offset + ": ";
+				assertEquals(tokenCount - range.removedCount() + range.insertedCount(), incremental.size(),
+						description + "Wrong token range");
+				assertSameTokens(full.getTokens(), incremental.getTokens());
+				assertArrayEquals(full.getNewlineIndicesAsArray(), incremental.getNewlineIndicesAsArray(),
+						description + "Wrong line indices");
+
+				for (int i = 0; i < incremental.size(); i++) {
+					assertEquals(full.get(i).getText(), incremental.get(i).getText(), description + "Wrong text");
+					assertEquals(full.numberValue(i), incremental.numberValue(i), description + "Wrong number value");
+					assertEquals(full.getBracketPairs().partner(i), incremental.getBracketPairs().partner(i),
+							description + "Wrong bracket partner");
+					assertEquals(full.stringValue(i), incremental.stringValue(i), description + "Wrong String value");
+				}
+
+				TriviaBuffer expectedTrivia = full.getTrivia();
+				TriviaBuffer trivia = incremental.getTrivia();
+				assertEquals(expectedTrivia.size(), trivia.size(), description + "Wrong amount of trivia");
+				for (int i = 0; i < trivia.size(); i++) {
+					assertEquals(expectedTrivia.start(i), trivia.start(i), description + "Wrong trivia start");
+					assertEquals(expectedTrivia.stop(i), trivia.stop(i), description + "Wrong trivia end");
+					assertEquals(expectedTrivia.anchor(i), trivia.anchor(i), description + "Wrong trivia anchor");
+				}
+
+				SignificantTokenIndex expectedSignificant = new SignificantTokenIndex(full);
+				SignificantTokenIndex significant = incremental.getSignificantTokens();
+				assertEquals(expectedSignificant.size(), significant.size(), description + "Wrong significant tokens");
+				assertEquals(expectedSignificant.sourceSize(), significant.sourceSize(),
+						description + "Wrong significant tokens");
+				for (int i = 0; i < significant.size(); i++) {
+					assertEquals(expectedSignificant.get(i), significant.get(i), description + "Wrong significant token");
+				}
+			}
+		}
+
+		// a small edit should only affect the tokens around it
+		SQFLexer incremental = new SQFLexer();
+		incremental.setTokenFactory(factory);
+		incremental.lex(new CharacterInputStream(new ByteArrayInputStream(initial.getBytes(StandardCharsets.UTF_8))));
+		TokenRange range = incremental.relex(initial.indexOf("12.5") + 2, 0, "7");
+
+		assertEquals(6, range.start(), "Wrong start of the token range");
+		assertEquals(1, range.removedCount(), "Wrong amount of removed tokens");
+		assertEquals(1, range.insertedCount(), "Wrong amount of inserted tokens");
+		assertEquals("127.5", incremental.get(6).getText(), "Wrong text of the edited token");
+
+		// a number followed by an error character (that isn't kept as a token) is
+		// decided by the character behind the error character
+		String errorText = "'it''s'\n;MACRO(0$\n2t<select\n";
+		String edited = errorText.substring(0, 17) + errorText.substring(18);
+		incremental.setDiagnosticListener(new DiagnosticCollector());
+		incremental.lex(new CharArrayInputStream(new CharArrayBuffer(errorText)));
+		incremental.relex(17, 1, "");
+		full.setTriviaMode(ETriviaMode.KEEP);
+		full.setDiagnosticListener(new DiagnosticCollector());
+		full.lex(new CharArrayInputStream(new CharArrayBuffer(edited)));
+
+		assertSameTokens(full.getTokens(), incremental.getTokens());
+		assertEquals("0$2", incremental.get(5).getText(), "Wrong text of the number");
+	}
+
+	@Test
+	void cancellableLexing() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		for (String file : new String[] { "LexerInput01", "SQFSnippet01.sqf", "SQFSnippet02.sqf",
+				"SQFSnippet03.sqf" }) {
+			builder.append(new String(Files.readAllBytes(new File(LEXER_FILE_PATH + file).toPath()),
+					StandardCharsets.UTF_8));
+			builder.append('\n');
+		}
+		String text = builder.toString();
+
+		SQFLexer full = new SQFLexer();
+		full.setTokenFactory(new SQFTestTokenFactory());
+		full.lex(new CharArrayInputStream(new CharArrayBuffer(text)));
+
+		// a cancelled token stops lexing at every check
+		CancellationToken cancelled = new CancellationToken();
+		cancelled.cancel();
+		SQFLexer sliced = new SQFLexer();
+		sliced.setTokenFactory(new SQFTestTokenFactory());
+		CharArrayInputStream input = new CharArrayInputStream(new CharArrayBuffer(text));
+		int slices = 1;
+		boolean complete = sliced.lex(input, cancelled);
+		while (!complete) {
+			int lexed = sliced.getTokens().size();
+			assertTrue(lexed < full.size(), "Lexing hasn't been stopped");
+			complete = sliced.resume(input, cancelled);
+			assertTrue(sliced.getTokens().size() > lexed, "Lexing hasn't been resumed");
+			slices++;
+		}
+
+		assertTrue(slices > 1, "Lexing hasn't been cancelled");
+		assertSameTokens(full, sliced);
+		assertEquals(full.getNewlineIndices(), sliced.getNewlineIndices(), "Wrong newline indices");
+
+		// a budget that isn't used up doesn't stop lexing
+		assertTrue(sliced.lex(new CharArrayInputStream(new CharArrayBuffer(text)), new CancellationToken(60000)));
+		assertSameTokens(full, sliced);
+	}
+
+	@Test
+	void errorBudget() throws IOException {
+		String text = "a = 1;\nb ` c;\nd = 2;\ne ` f;";
+		DiagnosticCollector diagnostics = new DiagnosticCollector();
+		SQFTestTokenFactory factory = new SQFTestTokenFactory();
+		SQFLexer budgetLexer = new SQFLexer();
+		budgetLexer.setTokenFactory(factory);
+		budgetLexer.setDiagnosticListener(diagnostics);
+
+		budgetLexer.lex(new CharArrayInputStream(new CharArrayBuffer(text)));
+		int total = diagnostics.size();
+		int size = budgetLexer.size();
+		assertTrue(total > 1, "The input should produce several diagnostics!");
+		assertFalse(budgetLexer.isPartial());
+
+		// stop at the first diagnostic
+		diagnostics.clear();
+		budgetLexer.setErrorBudget(1);
+		budgetLexer.lex(new CharArrayInputStream(new CharArrayBuffer(text)));
+		assertEquals(1, diagnostics.size(), "Wrong diagnostics");
+		assertTrue(budgetLexer.isPartial(), "The result should be partial");
+		assertTrue(budgetLexer.size() < size, "The rest of the input has been lexed");
+		assertTrue(budgetLexer.get(budgetLexer.size() - 1).stop() <= text.indexOf('`') + 1,
+				"Lexing hasn't stopped at the first diagnostic");
+
+		// a budget that isn't used up doesn't change anything
+		diagnostics.clear();
+		budgetLexer.setErrorBudget(total + 1);
+		budgetLexer.lex(new CharArrayInputStream(new CharArrayBuffer(text)));
+		assertEquals(total, diagnostics.size(), "Wrong diagnostics");
+		assertEquals(size, budgetLexer.size());
+		assertFalse(budgetLexer.isPartial());
+
+		// lexing can be resumed behind a used up budget which starts over then
+		diagnostics.clear();
+		budgetLexer.setErrorBudget(1);
+		CharArrayBuffer buffer = new CharArrayBuffer(text);
+		CharArrayInputStream input = new CharArrayInputStream(buffer);
+		assertTrue(budgetLexer.lex(input, new CancellationToken()), "Lexing should have finished");
+		assertTrue(budgetLexer.isPartial(), "The result should be partial");
+		int resumed = 0;
+		while (budgetLexer.isPartial()) {
+			assertTrue(budgetLexer.resume(input, new CancellationToken()), "Lexing should have finished");
+			resumed++;
+		}
+		assertEquals(total, resumed, "Wrong number of resumptions");
+		assertEquals(total, diagnostics.size(), "Wrong diagnostics");
+		assertEquals(size, budgetLexer.size());
+
+		// resuming at a checkpoint doesn't inherit the state of the partial result
+		budgetLexer.setCheckpointInterval(CancellationToken.CHECK_INTERVAL, true);
+		budgetLexer.lex(new CharArrayInputStream(buffer));
+		assertTrue(budgetLexer.isPartial(), "The result should be partial");
+		LexerCheckpoint checkpoint = budgetLexer.getCheckpoint(text.indexOf('b'));
+		assertTrue(budgetLexer.canResume(checkpoint, new CharArrayInputStream(buffer)));
+		diagnostics.clear();
+		budgetLexer.setErrorBudget(total + 1);
+		budgetLexer.lexFrom(checkpoint, new CharArrayInputStream(buffer));
+		assertEquals(total, diagnostics.size(), "Wrong diagnostics");
+		assertEquals(size, budgetLexer.size());
+		assertFalse(budgetLexer.isPartial());
+
+		// the budget doesn't apply to relexing as the tokens have to be complete
+		diagnostics.clear();
+		budgetLexer.setErrorBudget(1);
+		budgetLexer.relex(0, 1, "` `");
+		assertEquals(2, diagnostics.size(), "Wrong diagnostics");
+		assertFalse(budgetLexer.isPartial());
+
+		SQFLexer full = new SQFLexer();
+		full.setTokenFactory(factory);
+		full.setDiagnosticListener(new DiagnosticCollector());
+		full.lex(new CharArrayInputStream(new CharArrayBuffer("` `" + text.substring(1))));
+		assertSameTokens(full, budgetLexer);
+	}
+
+	/**
+	 * Asserts that the given token sources contain the same tokens
+	 */
+	static void assertSameTokens(ITokenSource<SQFToken> expected, ITokenSource<SQFToken> actual) {
+		assertEquals(expected.size(), actual.size(), "Wrong number of tokens");
+
+		for (int i = 0; i < expected.size(); i++) {
+			SQFToken expectedToken = expected.get(i);
+			SQFToken actualToken = actual.get(i);
+
+			assertEquals(expectedToken.type(), actualToken.type(), "Wrong token type at " + i);
+			assertEquals(expectedToken.start(), actualToken.start(), "Wrong start index at " + i);
+			assertEquals(expectedToken.stop(), actualToken.stop(), "Wrong end index at " + i);
+			assertEquals(expectedToken.precendence(), actualToken.precendence(), "Wrong precedence at " + i);
+			assertEquals(expectedToken.operatorType(), actualToken.operatorType(), "Wrong operator type at " + i);
+			assertEquals(expectedToken.symbolId(), actualToken.symbolId(), "Wrong symbol at " + i);
+		}
+	}
+
 	@Test
 	void macros() throws IOException {
 		HashSet<String> macros = new HashSet<>();
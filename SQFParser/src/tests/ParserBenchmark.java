@@ -0,0 +1,106 @@
+package tests;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import dataStructures.CharArrayBuffer;
+import dataStructures.CharArrayInputStream;
+import dataStructures.IBuildableIndexTree;
+import dataStructures.IErrorListener;
+import dataStructures.SQFTestTokenFactory;
+import dataStructures.SQFToken;
+import lexer.SQFLexer;
+import lexer.SQFLexer.ETriviaMode;
+import parser.SQFParser;
+
+/**
+ * A microbenchmark for the parser's hot path. It parses the SQF snippets of
+ * the tests together with some operator heavy statements a few hundred times
+ * over and prints the best time of a parse as well as the amount of memory
+ * allocated by a single parse (if the JVM is able to measure it). It is not
+ * run as part of the tests.
+ *
+ * @author Raven
+ *
+ */
+public class ParserBenchmark {
+
+	/**
+	 * The directory containing the SQF snippets (the same as the one of the
+	 * tests)
+	 */
+	public static final String DIR = System.getProperty("user.home")
+			+ "/Documents/Git/SQFParser/SQFParser/src/tests/";
+	/**
+	 * How often the input is repeated
+	 */
+	static final int REPETITIONS = 400;
+	/**
+	 * The amount of parses before anything is measured
+	 */
+	static final int WARMUP = 30;
+	/**
+	 * The amount of measured parses
+	 */
+	static final int RUNS = 30;
+
+
+	public static void main(String[] args) throws IOException {
+		String snippet = read("SQFSnippet01.sqf") + "\n" + read("SQFSnippet02.sqf") + "\n";
+
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < REPETITIONS; i++) {
+			builder.append(snippet);
+			builder.append("_x = 1 + 2 * 3 - 4 / 5 ^ 6 + 7 * 8 - 9 mod 10 + 11 * 12;\n");
+			builder.append("_y = [1, 2 + 3, {_a = _b * _c + _d}, (4 - 5) * 6];\n");
+		}
+
+		IErrorListener ignore = new IErrorListener() {
+
+			@Override
+			public void error(String msg, SQFToken token) {
+			}
+		};
+
+		SQFLexer lexer = new SQFLexer(ignore);
+		lexer.setTokenFactory(new SQFTestTokenFactory());
+		lexer.setTriviaMode(ETriviaMode.SEPARATE);
+		lexer.lex(new CharArrayInputStream(new CharArrayBuffer(builder.toString())));
+
+		SQFParser parser = new SQFParser(ignore);
+		parser.parse(lexer);
+		// the hash makes it easy to check that a change doesn't alter the result
+		System.out.println(lexer.size() + " tokens, tree hash "
+				+ IBuildableIndexTree.getPopulationString(parser.tree()).hashCode());
+
+		for (int i = 0; i < WARMUP; i++) {
+			parser.parse(lexer);
+		}
+
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			parser.parse(lexer);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.printf("best parse: %.3f ms%n", best / 1e6);
+
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+					.getThreadMXBean();
+			long id = Thread.currentThread().getId();
+
+			long before = threads.getThreadAllocatedBytes(id);
+			parser.parse(lexer);
+			System.out.println("allocated per parse: " + (threads.getThreadAllocatedBytes(id) - before) / 1024 + " KB");
+		}
+
+		lexer.reset(true);
+	}
+
+	private static String read(String name) throws IOException {
+		return new String(Files.readAllBytes(Paths.get(DIR + name)));
+	}
+}
@@ -6,8 +6,14 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.FillLayout;
@@ -15,14 +21,26 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import dataStructures.CancellationToken;
 import dataStructures.CharacterInputStream;
+import dataStructures.DiagnosticCollector;
+import dataStructures.EDiagnosticCode;
+import dataStructures.ESQFTokentype;
 import dataStructures.IBuildableIndexTree;
 import dataStructures.IErrorListener;
 import dataStructures.ITokenSource;
 import dataStructures.IndexTree;
+import dataStructures.IndexTreeElement;
+import dataStructures.LazyIndexTreeElement;
 import dataStructures.SQFTestTokenFactory;
 import dataStructures.SQFToken;
+import dataStructures.SignificantTokenIndex;
+import dataStructures.TokenBuffer;
+import dataStructures.TokenRange;
+import lexer.LazyTokenSource;
 import lexer.SQFLexer;
+import lexer.SQFLexer.ETriviaMode;
+import parser.ParserSink;
 import parser.SQFParser;
 import ui.TreeUI;
 
@@ -230,6 +248,100 @@ class ParserTest {
 		assertEquals(compareTree, parser.tree(), "Trees differ!");
 	}
 
+	@Test
+	public void nestedBrackets() throws IOException {
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("[[1],{(2+3)}]".getBytes())));
+		parser.parse(lexer);
+		IBuildableIndexTree first = parser.tree();
+		IBuildableIndexTree.populateFromString(compareTree, "b(0 n(1 2 3) 4 n(5 8(7 9) 11) 12)");
+		assertEquals(compareTree, first, "Trees differ!");
+
+		// the parser states are reused but the previous tree must stay untouched
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("a=(1+(2*[3]))".getBytes())));
+		parser.parse(lexer);
+		assertNotSame(first, parser.tree());
+		assertEquals(compareTree, first, "Previous tree has been modified!");
+		IBuildableIndexTree.populateFromString(compareTree, ":1(0 4(3 7(6 n(8 9 10))))");
+		assertEquals(compareTree, parser.tree(), "Trees differ!");
+
+		// the levels of the nodes built inside the brackets have to match their depth
+		assertLevels(parser.tree().branches().iterator().next(), 0);
+
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("();".getBytes())));
+		parser.parse(lexer);
+		IBuildableIndexTree.populateFromString(compareTree, ":2");
+		assertEquals(compareTree, parser.tree(), "Trees differ!");
+	}
+
+	@Test
+	public void unclosedBrackets() throws IOException {
+		List<String> errors = new ArrayList<>();
+		SQFParser recoveringParser = new SQFParser(collectErrors(errors));
+
+		// the content of an unclosed bracket stays inside of its node
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("[1,2".getBytes())));
+		recoveringParser.parse(lexer);
+		IBuildableIndexTree.populateFromString(compareTree, "b(0 1 2 3)");
+		assertEquals(compareTree, recoveringParser.tree(), "Trees differ!");
+
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("{a=1".getBytes())));
+		recoveringParser.parse(lexer);
+		IBuildableIndexTree.populateFromString(compareTree, "b(0 2(1 3))");
+		assertEquals(compareTree, recoveringParser.tree(), "Trees differ!");
+
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("[1,[2]".getBytes())));
+		recoveringParser.parse(lexer);
+		IBuildableIndexTree.populateFromString(compareTree, "b(0 1 2 n(3 4 5))");
+		assertEquals(compareTree, recoveringParser.tree(), "Trees differ!");
+
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("[{1}".getBytes())));
+		recoveringParser.parse(lexer);
+		IBuildableIndexTree.populateFromString(compareTree, "b(0 n(1 2 3))");
+		assertEquals(compareTree, recoveringParser.tree(), "Trees differ!");
+
+		assertEquals(4, errors.size(), "Wrong number of errors");
+		for (String error : errors) {
+			assertEquals("Unclosed opening bracket!0", error, "Wrong error");
+		}
+
+		// nested unclosed brackets are reported from the outside in
+		errors.clear();
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("a=[1,{2".getBytes())));
+		recoveringParser.parse(lexer);
+		IBuildableIndexTree.populateFromString(compareTree, ":1(0 n(2 3 4 n(5 6)))");
+		assertEquals(compareTree, recoveringParser.tree(), "Trees differ!");
+
+		assertEquals(2, errors.size(), "Wrong number of errors");
+		assertEquals("Unclosed opening bracket!2", errors.get(0), "Wrong error");
+		assertEquals("Unclosed opening bracket!5", errors.get(1), "Wrong error");
+
+		lexer.reset(true);
+	}
+
+	/**
+	 * Creates an error listener that adds each message followed by the start
+	 * offset of its token to the given list
+	 */
+	static IErrorListener collectErrors(List<String> errors) {
+		return new IErrorListener() {
+
+			@Override
+			public void error(String msg, SQFToken token) {
+				errors.add(msg + token.start());
+			}
+		};
+	}
+
+	static void assertLevels(IndexTreeElement element, int level) {
+		assertEquals(level, element.getLevel(), "Wrong level of " + element.getIndex());
+
+		if (element.hasChildren()) {
+			for (IndexTreeElement child : element.getChildren()) {
+				assertLevels(child, level + 1);
+			}
+		}
+	}
+
 	@Test
 	public void macroTest() throws IOException {
 		HashSet<String> macros = new HashSet<>();
@@ -257,6 +369,26 @@ class ParserTest {
 		IBuildableIndexTree.populateFromString(compareTree, ":0(1 2 3 4 5 6)");
 		assertEquals(compareTree, parser.tree());		
 
+		// an erroneous character doesn't separate the arguments from the macro but
+		// trivia does - no matter whether it is part of the token stream
+		lexer.setDiagnosticListener(new DiagnosticCollector());
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("MACRO`(1)".getBytes())));
+		parser.parse(lexer);
+		IBuildableIndexTree.populateFromString(compareTree, ":0(1 2 3)");
+		assertEquals(compareTree, parser.tree(), "Trees differ!");
+
+		lexer.setTriviaMode(ETriviaMode.SEPARATE);
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("MACRO`(1)".getBytes())));
+		parser.parse(lexer);
+		assertEquals(compareTree, parser.tree(), "Trees differ!");
+
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("MACRO/* c */(1)".getBytes())));
+		parser.parse(lexer);
+		IBuildableIndexTree.populateFromString(compareTree, ":0 :2");
+		assertEquals(compareTree, parser.tree(), "Trees differ!");
+		lexer.setTriviaMode(ETriviaMode.KEEP);
+		lexer.setDiagnosticListener(null);
+
 		lexer.reset(true);
 	}
 
@@ -324,6 +456,527 @@ class ParserTest {
 	}
 
 
+	@Test
+	public void diagnostics() throws IOException {
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("a = [1;2]; b = ; c, d)".getBytes())));
+
+		DiagnosticCollector diagnostics = new DiagnosticCollector();
+		SQFParser reportingParser = new SQFParser();
+		reportingParser.setDiagnosticListener(diagnostics);
+		reportingParser.parse(lexer);
+
+		assertEquals(1, diagnostics.count(EDiagnosticCode.SEMICOLON_IN_ARRAY), "Wrong diagnostics");
+		assertEquals(1, diagnostics.count(EDiagnosticCode.MISSING_RIGHT_ARGUMENT), "Wrong diagnostics");
+		assertEquals(1, diagnostics.count(EDiagnosticCode.COMMA_OUTSIDE_ARRAY), "Wrong diagnostics");
+		assertEquals(1, diagnostics.count(EDiagnosticCode.UNOPENED_BRACKET), "Wrong diagnostics");
+
+		// the error listener gets the same messages
+		List<String> messages = new ArrayList<>();
+		reportingParser.setDiagnosticListener(null);
+		reportingParser.setErrorListener(collectErrors(messages));
+		reportingParser.parse(lexer);
+
+		assertEquals(diagnostics.size(), messages.size(), "Wrong number of messages");
+		for (int i = 0; i < diagnostics.size(); i++) {
+			assertEquals(diagnostics.message(i) + diagnostics.start(i), messages.get(i), "Wrong message");
+		}
+	}
+
+	@Test
+	public void separatedTrivia() throws IOException {
+		// macro arguments are added to the tree token by token (including trivia) and
+		// are therefore not part of this comparison
+		for (String file : new String[] { "SQFSnippet01.sqf", "SQFSnippet02.sqf" }) {
+			lexer.lex(new CharacterInputStream(new FileInputStream(new File(DIR + file))));
+			parser.parse(lexer);
+			IBuildableIndexTree expected = parser.tree();
+
+			// remember the original index of every significant token
+			int[] originalIndices = new int[lexer.size()];
+			int significant = 0;
+			for (int i = 0; i < lexer.size(); i++) {
+				switch (lexer.get(i).type()) {
+				case WHITESPACE:
+				case COMMENT:
+					break;
+				default:
+					originalIndices[significant++] = i;
+				}
+			}
+
+			lexer.setTriviaMode(ETriviaMode.SEPARATE);
+			lexer.lex(new CharacterInputStream(new FileInputStream(new File(DIR + file))));
+			lexer.setTriviaMode(ETriviaMode.KEEP);
+			assertEquals(significant, lexer.size(), "Wrong number of significant tokens");
+
+			parser.parse(lexer);
+			for (IndexTreeElement current : parser.tree().branches()) {
+				remap(current, originalIndices);
+			}
+
+			assertEquals(expected, parser.tree(), "Trees differ!");
+		}
+	}
+
+	@Test
+	public void lazyTokenSource() throws IOException {
+		HashSet<String> macros = new HashSet<>();
+		macros.add("NOTIFICATION_LOG");
+		macros.add("GVAR");
+		macros.add("CHECK_TRUE");
+		lexer.setMacros(macros);
+
+		for (String file : new String[] { "SQFSnippet01.sqf", "SQFSnippet02.sqf", "SQFSnippet03.sqf" }) {
+			lexer.lex(new CharacterInputStream(new FileInputStream(new File(DIR + file))));
+			int lastIndex = parser.parse(lexer, 0, null);
+			IBuildableIndexTree expected = parser.tree();
+
+			LazyTokenSource source = lexer.lexLazily(new CharacterInputStream(new FileInputStream(new File(DIR + file))));
+			assertEquals(lastIndex, parser.parse(source, 0, null), "Wrong index of the last token");
+			assertTrue(source.isComplete(), "The input should have been lexed completely");
+			assertEquals(expected, parser.tree(), "Trees differ!");
+		}
+		lexer.reset(true);
+
+		// only the tokens up to the first statement should be lexed
+		StringBuilder builder = new StringBuilder("a = 1;");
+		for (int i = 0; i < 1000; i++) {
+			builder.append(" b = [1, 2, 3] select 0;");
+		}
+		LazyTokenSource source = lexer
+				.lexLazily(new CharacterInputStream(new ByteArrayInputStream(builder.toString().getBytes())));
+
+		assertEquals(5, parser.parse(source, 0, ESQFTokentype.SEMICOLON), "Wrong index of the last token");
+		assertFalse(source.isComplete(), "The input should not have been lexed completely");
+		assertTrue(source.lexedSize() <= 7, "Too many tokens have been lexed");
+		IBuildableIndexTree.populateFromString(compareTree, ":2(0 4) :5");
+		assertEquals(compareTree, parser.tree(), "Trees differ!");
+	}
+
+	@Test
+	public void parserSink() throws IOException {
+		HashSet<String> macros = new HashSet<>();
+		macros.add("NOTIFICATION_LOG");
+		macros.add("GVAR");
+		macros.add("CHECK_TRUE");
+		macros.add("MACRO");
+		lexer.setMacros(macros);
+
+		for (String file : new String[] { "SQFSnippet01.sqf", "SQFSnippet02.sqf", "SQFSnippet03.sqf" }) {
+			lexer.lex(new CharacterInputStream(new FileInputStream(new File(DIR + file))));
+			TokenBuffer<SQFToken> tokens = lexer.getTokens();
+			parser.parse(lexer);
+			IBuildableIndexTree expected = parser.tree();
+
+			ParserSink sink = new ParserSink(parser);
+			lexer.lex(new CharacterInputStream(new FileInputStream(new File(DIR + file))), sink);
+
+			assertEquals(expected, parser.tree(), "Trees differ!");
+			LexerTest.assertSameTokens(tokens, sink.getTokens());
+		}
+
+		// macro argument lists have to be handed over in one go
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("MACRO(arg) hint MACRO (x) + MACRO".getBytes())),
+				new ParserSink(parser));
+		IBuildableIndexTree.populateFromString(compareTree, ":0(1 2 3) :5(7) :13(10 15)");
+		assertEquals(compareTree, parser.tree(), "Trees differ!");
+
+		lexer.reset(true);
+	}
+
+	@Test
+	public void windowedParserSink() throws IOException {
+		HashSet<String> macros = new HashSet<>();
+		macros.add("NOTIFICATION_LOG");
+		macros.add("GVAR");
+		macros.add("CHECK_TRUE");
+		macros.add("MACRO");
+		lexer.setMacros(macros);
+
+		StringBuilder builder = new StringBuilder();
+		for (String file : new String[] { "SQFSnippet02.sqf", "EncounteredParseErrors01.sqf" }) {
+			builder.append(new String(Files.readAllBytes(new File(DIR + file).toPath()), StandardCharsets.UTF_8));
+			builder.append(";\n");
+		}
+		builder.append("MACRO(a; (b)) c MACRO (d) [1 2] MACRO\n{e f");
+		String text = builder.toString();
+
+		List<String> expectedErrors = new ArrayList<>();
+		SQFParser full = new SQFParser(collectErrors(expectedErrors));
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())));
+		full.parse(lexer);
+		int size = lexer.size();
+		assertFalse(expectedErrors.isEmpty(), "The input should produce errors!");
+
+		List<String> errors = new ArrayList<>();
+		SQFParser fused = new SQFParser(collectErrors(errors));
+		ParserSink sink = new ParserSink(fused, false);
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())), sink);
+
+		assertEquals(full.tree(), fused.tree(), "Trees differ!");
+		assertEquals(expectedErrors, errors, "Wrong errors");
+		assertNull(sink.getTokens());
+		assertEquals(size, sink.size());
+		assertThrows(IndexOutOfBoundsException.class, () -> sink.get(0));
+
+		// the lexer doesn't keep the side information of the tokens either
+		assertEquals(0, lexer.getNumberValues().size());
+		assertEquals(0, lexer.getLiteralIds().size());
+		assertEquals(0, lexer.getBracketPairs().size());
+		assertEquals(1, lexer.getNewlineIndices().size());
+
+		lexer.reset(true);
+	}
+
+	@Test
+	public void cancellableParsing() throws IOException {
+		HashSet<String> macros = new HashSet<>();
+		macros.add("NOTIFICATION_LOG");
+		macros.add("GVAR");
+		macros.add("CHECK_TRUE");
+		lexer.setMacros(macros);
+
+		StringBuilder builder = new StringBuilder();
+		for (String file : new String[] { "SQFSnippet01.sqf", "SQFSnippet02.sqf", "SQFSnippet03.sqf" }) {
+			builder.append(new String(Files.readAllBytes(new File(DIR + file).toPath()), StandardCharsets.UTF_8));
+			builder.append(";\n");
+		}
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(builder.toString().getBytes())));
+		parser.parse(lexer);
+		IBuildableIndexTree expected = parser.tree();
+
+		// a cancelled token stops parsing at every check
+		CancellationToken cancelled = new CancellationToken();
+		cancelled.cancel();
+		SQFParser sliced = new SQFParser();
+		int slices = 1;
+		boolean complete = sliced.parse(lexer, cancelled);
+		while (!complete) {
+			assertEquals(slices * (CancellationToken.CHECK_INTERVAL - 1), sliced.getCurrentTokenIndex(),
+					"Parsing hasn't been stopped at the check");
+			complete = sliced.resume(cancelled);
+			slices++;
+		}
+
+		assertTrue(slices > 1, "Parsing hasn't been cancelled");
+		assertEquals(expected, sliced.tree(), "Trees differ!");
+
+		// a budget that isn't used up doesn't stop parsing
+		assertTrue(sliced.parse(lexer, new CancellationToken(60000)));
+		assertEquals(expected, sliced.tree(), "Trees differ!");
+
+		lexer.reset(true);
+	}
+
+	@Test
+	public void errorBudget() throws IOException {
+		String text = "a = 1;\nb c;\n[1 2];\nd = (3;\ne = 4;";
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())));
+
+		DiagnosticCollector diagnostics = new DiagnosticCollector();
+		SQFParser budgetParser = new SQFParser();
+		budgetParser.setDiagnosticListener(diagnostics);
+		int last = budgetParser.parse(lexer, 0, null);
+		int total = diagnostics.size();
+		assertTrue(total > 2, "The input should produce several diagnostics!");
+		assertFalse(budgetParser.isPartial());
+		assertEquals(lexer.size() - 1, last);
+
+		// stop at the first diagnostic
+		diagnostics.clear();
+		budgetParser.setErrorBudget(1);
+		last = budgetParser.parse(lexer, 0, null);
+		assertEquals(1, diagnostics.size(), "Wrong diagnostics");
+		assertTrue(budgetParser.isPartial(), "The result should be partial");
+		assertEquals(text.indexOf('c'), lexer.get(last).start(), "Parsing hasn't stopped at the first diagnostic");
+		for (IndexTreeElement branch : budgetParser.tree().branches()) {
+			assertTrue(branch.lastIndex() <= last, "The rest of the input has been parsed");
+		}
+
+		// stop after two diagnostics
+		diagnostics.clear();
+		budgetParser.setErrorBudget(2);
+		budgetParser.parse(lexer);
+		assertEquals(2, diagnostics.size(), "Wrong diagnostics");
+		assertTrue(budgetParser.isPartial(), "The result should be partial");
+
+		// a budget that isn't used up doesn't change anything
+		diagnostics.clear();
+		budgetParser.setErrorBudget(total + 1);
+		budgetParser.parse(lexer);
+		assertEquals(total, diagnostics.size(), "Wrong diagnostics");
+		assertFalse(budgetParser.isPartial());
+
+		// the same applies to parsing while lexing
+		diagnostics.clear();
+		budgetParser.setErrorBudget(1);
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())),
+				new ParserSink(budgetParser, false));
+		assertEquals(1, diagnostics.size(), "Wrong diagnostics");
+		assertTrue(budgetParser.isPartial(), "The result should be partial");
+
+		lexer.reset(true);
+	}
+
+	@Test
+	public void parallelParsing() throws IOException {
+		HashSet<String> macros = new HashSet<>();
+		macros.add("NOTIFICATION_LOG");
+		macros.add("GVAR");
+		macros.add("CHECK_TRUE");
+		macros.add("MACRO");
+		lexer.setMacros(macros);
+
+		StringBuilder builder = new StringBuilder();
+		for (String file : new String[] { "SQFSnippet01.sqf", "SQFSnippet02.sqf", "SQFSnippet03.sqf",
+				"EncounteredParseErrors01.sqf" }) {
+			builder.append(new String(Files.readAllBytes(new File(DIR + file).toPath()), StandardCharsets.UTF_8));
+			builder.append(";\n");
+		}
+		// semicolons inside brackets and macro arguments don't end a statement and a
+		// binary operator behind an empty parenthesis takes the previous branch
+		builder.append("MACRO(a; [b; c]) + 1; x = [1; 2]; (y; z) call f; a b; () + b; ( ) * c; ] c; { d; ; 4 5\n");
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(builder.toString().getBytes())));
+
+		List<String> expectedErrors = new ArrayList<>();
+		SQFParser sequential = new SQFParser(collectErrors(expectedErrors));
+		int expectedLast = sequential.parse(lexer, 0, null);
+		assertFalse(expectedErrors.isEmpty(), "The input should produce errors!");
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int segmentSize : new int[] { 1, 5, 64, 4096 }) {
+				List<String> errors = new ArrayList<>();
+				SQFParser parallel = new SQFParser(collectErrors(errors));
+
+				assertEquals(expectedLast, parallel.parseParallel(lexer, pool, segmentSize));
+				assertEquals(sequential.tree(), parallel.tree(), "Trees differ!");
+				assertEquals(expectedErrors, errors, "Wrong errors");
+
+				// a used up budget only stops the reporting as the tree is complete
+				errors.clear();
+				parallel.setErrorBudget(1);
+				parallel.parseParallel(lexer, pool, segmentSize);
+				assertEquals(sequential.tree(), parallel.tree(), "Trees differ!");
+				assertEquals(expectedErrors.subList(0, 1), errors, "Wrong errors");
+				assertFalse(parallel.isPartial(), "The result shouldn't be partial");
+			}
+
+			// inputs (and segments) without any significant tokens
+			for (String input : new String[] { "", " ", "// c", "/* x */", "a; // c\n", "// c\n;b" }) {
+				lexer.lex(new CharacterInputStream(new ByteArrayInputStream(input.getBytes())));
+				expectedLast = sequential.parse(lexer, 0, null);
+
+				SQFParser parallel = new SQFParser(collectErrors(new ArrayList<>()));
+				assertEquals(expectedLast, parallel.parseParallel(lexer, pool, 1), "Wrong last index");
+				assertEquals(sequential.tree(), parallel.tree(), "Trees differ for \"" + input + "\"!");
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		lexer.reset(true);
+	}
+
+	@Test
+	public void streamingParse() throws IOException {
+		HashSet<String> macros = new HashSet<>();
+		macros.add("MACRO");
+		lexer.setMacros(macros);
+
+		// a binary operator behind an empty parenthesis takes the last branch of the
+		// previous statement
+		String text = "MACRO \"s\", ( ) +*;\na = 1; (b; c) call d; MACRO(e; f) + 1;\ng = {h; i}; x = [1, 2]\ny";
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())));
+
+		List<String> expectedErrors = new ArrayList<>();
+		SQFParser full = new SQFParser(collectErrors(expectedErrors));
+		int expectedLast = full.parse(lexer, 0, null);
+
+		List<String> errors = new ArrayList<>();
+		SQFParser streaming = new SQFParser(collectErrors(errors));
+		IndexTree streamed = new IndexTree();
+		Consumer<IndexTreeElement> consumer = branch -> {
+			// only the branches of the current statement (and the last one of the
+			// previous statement) are kept
+			assertTrue(streaming.tree().branchCount() <= 5, "Branches haven't been handed over");
+			streamed.newBranch(branch);
+		};
+		assertEquals(expectedLast, streaming.parse(lexer, consumer));
+
+		assertEquals(full.tree(), streamed, "Trees differ!");
+		assertEquals(expectedErrors, errors, "Wrong errors");
+		assertEquals(0, streaming.tree().branchCount());
+
+		// the same works while lexing into a sink that doesn't keep the tokens
+		streamed.clear();
+		errors.clear();
+		streaming.setBranchConsumer(consumer);
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())),
+				new ParserSink(streaming, false));
+		streaming.setBranchConsumer(null);
+
+		assertEquals(full.tree(), streamed, "Trees differ!");
+		assertEquals(expectedErrors, errors, "Wrong errors");
+		assertEquals(0, streaming.tree().branchCount());
+
+		lexer.reset(true);
+	}
+
+	@Test
+	public void significantTokens() throws IOException {
+		HashSet<String> macros = new HashSet<>();
+		macros.add("MACRO");
+		lexer.setMacros(macros);
+
+		String text = "a = 1; // comment\nMACRO /* c */ b;\nMACRO\n#define X\n c;\nMACRO (d) e;\nMACRO(f; g)  h [1 , 2]";
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())));
+
+		List<String> expectedErrors = new ArrayList<>();
+		SQFParser full = new SQFParser(collectErrors(expectedErrors));
+		int expectedLast = full.parse(lexer, 0, null);
+
+		List<String> errors = new ArrayList<>();
+		SQFParser skipping = new SQFParser(collectErrors(errors));
+		SignificantTokenIndex significant = new SignificantTokenIndex(lexer);
+		assertEquals(lexer.size(), significant.sourceSize());
+		for (int index : significant.toArray()) {
+			assertTrue(SignificantTokenIndex.isSignificant(lexer.get(index).type()));
+		}
+
+		// the lexer fills the same index while lexing
+		assertArrayEquals(significant.toArray(), lexer.getSignificantTokens().toArray(), "Wrong significant tokens");
+		assertEquals(lexer.size(), lexer.getSignificantTokens().sourceSize());
+		significant = lexer.getSignificantTokens();
+
+		assertEquals(expectedLast, skipping.parse(lexer, significant));
+		assertEquals(full.tree(), skipping.tree(), "Trees differ!");
+		assertEquals(expectedErrors, errors, "Wrong errors");
+
+		lexer.reset(true);
+	}
+
+	@Test
+	public void incrementalReparse() throws IOException {
+		String initial = "a = 1 + 2;\nf = { _x = [1, 2]; hint _x; };\n(b; c) call g;\nd = [3, {4}];\nMACRO(e; f) + 5;"
+				+ "\nx = 1; (y; hint) [1];";
+		// { search string, offset inside the match, removed length, inserted text }
+		String[][] edits = new String[][] { { "hint", "0", "4", "diag_log" }, { "2]", "1", "0", ", 7" },
+				{ "{4}", "1", "1", "4 + 5; 6" }, { "1 + 2", "2", "1", "*" }, { "(b", "2", "1", ", 8" },
+				{ "_x = [", "6", "0", "[" }, { "[[", "0", "1", "" }, { "e; f", "1", "1", ";;" },
+				{ "d =", "0", "0", "{ " }, { "{ d", "0", "2", "" }, { "diag_log", "0", "0", "}; " },
+				// removing or adding a bracket changes the statements behind it
+				{ "(y", "0", "1", "" }, { "y; hint", "0", "0", "(" }, { "x = 1", "4", "0", "[" },
+				{ "1[", "1", "1", "" } };
+
+		HashSet<String> macros = new HashSet<>();
+		macros.add("MACRO");
+		lexer.setMacros(macros);
+
+		SQFLexer incremental = new SQFLexer();
+		incremental.setTokenFactory(new SQFTestTokenFactory());
+		incremental.setMacros(macros);
+		IErrorListener ignore = new IErrorListener() {
+
+			@Override
+			public void error(String msg, SQFToken token) {
+			}
+		};
+		SQFParser full = new SQFParser(ignore);
+		SQFParser reparser = new SQFParser(ignore);
+
+		String text = initial;
+		incremental.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())));
+		reparser.parse(incremental);
+		IBuildableIndexTree tree = reparser.tree();
+
+		for (String[] edit : edits) {
+			int offset = text.indexOf(edit[0]) + Integer.parseInt(edit[1]);
+			int removed = Integer.parseInt(edit[2]);
+			text = text.substring(0, offset) + edit[3] + text.substring(offset + removed);
+
+			IndexTreeElement firstBranch = tree.getBranch(0);
+			TokenRange range = incremental.relex(offset, removed, edit[3]);
+			assertSame(tree, reparser.reparse(incremental, tree, range));
+
+			lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())));
+			full.parse(lexer);
+			assertEquals(full.tree(), tree, "Trees differ after editing \"" + edit[0] + "\"");
+			for (IndexTreeElement branch : tree.branches()) {
+				assertLevels(branch, 0);
+			}
+
+			if (range.start() > firstBranch.lastIndex() + 1) {
+				assertSame(firstBranch, tree.getBranch(0), "Unaffected branch has been replaced");
+			}
+		}
+
+		// an edit inside a block only replaces the content of the block
+		text = "a = 1;\nb = {c = 4 + 5; 6};";
+		incremental.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())));
+		reparser.parse(incremental);
+		tree = reparser.tree();
+		IndexTreeElement assignment = tree.getBranch(2);
+		IndexTreeElement block = assignment.getChildren().get(1);
+		IndexTreeElement statement = block.getChildren().get(1);
+
+		TokenRange range = incremental.relex(text.indexOf('4'), 1, "x");
+		reparser.reparse(incremental, tree, range);
+		IBuildableIndexTree.populateFromString(compareTree, ":2(0 4) :5 :9(7 n(11 14(12 18(16 20)) 21 23 24)) :25");
+		assertEquals(compareTree, tree, "Trees differ!");
+		assertSame(assignment, tree.getBranch(2));
+		assertSame(block, assignment.getChildren().get(1));
+		assertNotSame(statement, block.getChildren().get(1));
+
+		lexer.reset(true);
+	}
+
+	@Test
+	public void lazyCodeBlocks() throws IOException {
+		String text = "f = { _x = [1, {2}]; hint _x; };\ng = {1 2};\n[{3}, 4] call h;";
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream(text.getBytes())));
+
+		DiagnosticCollector diagnostics = new DiagnosticCollector();
+		SQFParser lazyParser = new SQFParser();
+		lazyParser.setDiagnosticListener(diagnostics);
+		lazyParser.setLazyCodeBlocks(true);
+		lazyParser.parse(lexer);
+		IBuildableIndexTree tree = lazyParser.tree();
+
+		LazyIndexTreeElement block = (LazyIndexTreeElement) tree.getBranch(0).getChildren().get(1);
+		assertFalse(block.isExpanded(), "Block has been parsed right away");
+		assertEquals(text.indexOf('{'), lexer.get(block.firstIndex()).start());
+		assertEquals(text.indexOf("};") + 1, lexer.get(block.lastIndex()).stop());
+		assertEquals(0, diagnostics.count(EDiagnosticCode.MISSING_SEMICOLON), "Block has been parsed right away");
+
+		SQFParser eagerParser = new SQFParser();
+		eagerParser.setDiagnosticListener(new DiagnosticCollector());
+		eagerParser.parse(lexer);
+		assertEquals(eagerParser.tree(), tree, "Trees differ!");
+		assertTrue(block.isExpanded());
+		assertEquals(1, diagnostics.count(EDiagnosticCode.MISSING_SEMICOLON), "Wrong diagnostics");
+		for (IndexTreeElement branch : tree.branches()) {
+			assertLevels(branch, 0);
+		}
+
+		lexer.reset(true);
+	}
+
+	/**
+	 * Maps the indices in the given (sub-)tree via the given lookup table
+	 */
+	static void remap(IndexTreeElement element, int[] indices) {
+		if (element.getIndex() >= 0) {
+			element.setIndex(indices[element.getIndex()]);
+		}
+
+		if (element.hasChildren()) {
+			for (IndexTreeElement current : element.getChildren()) {
+				remap(current, indices);
+			}
+		}
+	}
+
 	@SuppressWarnings("unused")
 	private static void displayTree(IBuildableIndexTree treeInput, ITokenSource<SQFToken> buffer) {
 		Display display = new Display();
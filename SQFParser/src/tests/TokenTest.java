@@ -3,26 +3,44 @@ package tests;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import dataStructures.CharacterInputStream;
+import dataStructures.CommandDatabase;
+import dataStructures.CommandDatabaseGenerator;
+import dataStructures.CommandTable;
 import dataStructures.ESQFOperatorType;
 import dataStructures.SQFTestTokenFactory;
 import dataStructures.SQFToken;
+import dataStructures.SQFTokenFactory;
+import dataStructures.SymbolTable;
 import dataStructures.TokenBuffer;
 import lexer.SQFLexer;
 
 class TokenTest {
 
+	public static String COMMAND_LIST_PATH = System.getProperty("user.home")
+			+ "/Documents/Git/SQFParser/SQFParser/commands.txt";
+
 	static SQFLexer lexer;
+	static SQFTestTokenFactory factory;
 
 	@BeforeAll
 	public static void setUp() {
 		lexer = new SQFLexer();
-		lexer.setTokenFactory(new SQFTestTokenFactory());
+		factory = new SQFTestTokenFactory();
+		lexer.setTokenFactory(factory);
 	}
 
 	@Test
@@ -45,4 +63,99 @@ class TokenTest {
 		}
 	}
 
+	@Test
+	void symbols() throws IOException {
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("_var = HINT _Var; hint 3".getBytes())));
+
+		TokenBuffer<SQFToken> buffer = lexer.getTokens();
+		SymbolTable symbols = factory.getSymbolTable();
+
+		assertEquals(SymbolTable.ASSIGNMENT, buffer.get(2).symbolId(), "Wrong symbol for assignment!");
+		assertEquals(buffer.get(0).symbolId(), buffer.get(6).symbolId(), "Symbols should be case-insensitive!");
+		assertEquals(buffer.get(4).symbolId(), buffer.get(9).symbolId(), "Symbols should be case-insensitive!");
+		assertNotEquals(buffer.get(0).symbolId(), buffer.get(4).symbolId(), "Different IDs share a symbol!");
+		assertEquals(SymbolTable.NO_SYMBOL, buffer.get(11).symbolId(), "Numbers must not have a symbol!");
+		assertEquals(SymbolTable.NO_SYMBOL, buffer.get(1).symbolId(), "Whitespace must not have a symbol!");
+
+		assertEquals("_var", symbols.getSymbol(buffer.get(6).symbolId()), "Wrong canonical spelling!");
+		assertEquals("hint", symbols.getSymbol(buffer.get(4).symbolId()), "Wrong canonical spelling!");
+		assertEquals(buffer.get(4).symbolId(), symbols.lookup("Hint"), "Lookup doesn't match interned symbol!");
+		assertEquals(SymbolTable.NO_SYMBOL, symbols.lookup("unknownSymbol"), "Unknown symbol has been found!");
+
+		// clearing only keeps the commands and the predefined symbols
+		int hint = buffer.get(4).symbolId();
+		int size = symbols.size();
+		for (int i = 0; i < 1000; i++) {
+			symbols.intern("_var" + i);
+		}
+		factory.clearSymbols();
+		assertTrue(symbols.size() < size, "The symbols haven't been removed!");
+		assertEquals(SymbolTable.NO_SYMBOL, symbols.lookup("_var"), "The symbol hasn't been removed!");
+		assertEquals(SymbolTable.NO_SYMBOL, symbols.lookup("_var999"), "The symbol hasn't been removed!");
+		assertEquals(hint, symbols.lookup("hint"), "The command has changed its ID!");
+		assertEquals(SymbolTable.ASSIGNMENT, symbols.lookup("="), "The assignment has changed its ID!");
+
+		lexer.lex(new CharacterInputStream(new ByteArrayInputStream("_var = HINT _Var".getBytes())));
+		assertEquals(lexer.get(0).symbolId(), lexer.get(6).symbolId(), "Symbols should be case-insensitive!");
+		assertEquals("_var", symbols.getSymbol(lexer.get(0).symbolId()), "Wrong canonical spelling!");
+		assertEquals(size, symbols.size(), "Wrong number of symbols!");
+	}
+
+	@Test
+	void commandDatabase() throws IOException {
+		CommandDatabaseGenerator generator = new CommandDatabaseGenerator();
+		generator.read(new StringReader("// comment\n\nHint UNARY\n== BINARY 6\nthen binary\nplayer NULAR\n"));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.write(out);
+
+		CommandTable commands = CommandDatabase.read(out.toByteArray());
+
+		assertEquals(4, commands.size(), "Wrong number of commands!");
+		assertEquals(ESQFOperatorType.UNARY, commands.operatorType(commands.lookup("HINT")), "Wrong operator type!");
+		assertEquals(6, commands.precedence(commands.lookup("==")), "Wrong precedence!");
+		assertEquals(5, commands.precedence(commands.lookup("then")), "Wrong default precedence!");
+		assertEquals("player", commands.name(commands.lookup("player")), "Wrong name!");
+		assertEquals(SymbolTable.NO_SYMBOL, commands.lookup("="), "The assignment has not been added!");
+		assertThrows(IOException.class, () -> CommandDatabase.read(Arrays.copyOf(out.toByteArray(), out.size() - 1)));
+
+		// the shipped database
+		SQFTokenFactory databaseFactory = new SQFTokenFactory();
+		SQFLexer databaseLexer = new SQFLexer();
+		databaseLexer.setTokenFactory(databaseFactory);
+		databaseLexer.lex(new CharacterInputStream(new ByteArrayInputStream("_a = diag_log 2 max 3".getBytes())));
+
+		TokenBuffer<SQFToken> buffer = databaseLexer.getTokens();
+		assertEquals(SymbolTable.ASSIGNMENT, buffer.get(2).symbolId(), "Wrong symbol for assignment!");
+		assertEquals(10, buffer.get(2).precendence(), "Wrong precedence!");
+		assertEquals(ESQFOperatorType.UNARY, buffer.get(4).operatorType(), "Wrong operator type!");
+		assertEquals(ESQFOperatorType.BINARY, buffer.get(8).operatorType(), "Wrong operator type!");
+		assertEquals(3, buffer.get(8).precendence(), "Wrong precedence!");
+		assertSame(CommandDatabase.getDefault(), databaseFactory.getCommandTable(), "The database should be shared!");
+	}
+
+	@Test
+	void commandDatabaseUpToDate() throws IOException {
+		// the shipped database has to be regenerated whenever the command list changes
+		CommandDatabaseGenerator generator = new CommandDatabaseGenerator();
+		try (Reader in = new InputStreamReader(new FileInputStream(COMMAND_LIST_PATH), StandardCharsets.UTF_8)) {
+			generator.read(in);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.write(out);
+
+		ByteArrayOutputStream shipped = new ByteArrayOutputStream();
+		try (InputStream in = CommandDatabase.class.getResourceAsStream(CommandDatabase.RESOURCE_NAME)) {
+			assertNotNull(in, "Missing command database!");
+
+			byte[] chunk = new byte[4096];
+			int read;
+			while ((read = in.read(chunk)) != -1) {
+				shipped.write(chunk, 0, read);
+			}
+		}
+
+		assertArrayEquals(out.toByteArray(), shipped.toByteArray(),
+				"The command database is out of date - regenerate it from " + COMMAND_LIST_PATH);
+		assertEquals(generator.size(), CommandDatabase.getDefault().size(), "Wrong number of commands!");
+	}
 }